@@ -0,0 +1,57 @@
+package org;
+
+import java.util.SplittableRandom;
+
+// Shared, seeded setup so every benchmark run sees the same boards and moves
+final class BenchmarkSupport {
+
+  static final long SEED = 0x5EEDL;
+
+  private static final Tetromino.Type[] TYPES = Tetromino.Type.values();
+
+  private BenchmarkSupport() {}
+
+  static GameBoard newBoard(String impl, int cols, int rows) {
+    if ("array".equals(impl)) return new Board(cols, rows);
+    if ("bit".equals(impl)) return new BitBoard(cols, rows);
+    throw new IllegalArgumentException("Unknown board: " + impl);
+  }
+
+  static Tetromino randomPiece(SplittableRandom random) {
+    Tetromino.Type type = TYPES[random.nextInt(TYPES.length)];
+    return Tetromino.of(type, random.nextInt(4));
+  }
+
+  // Drops random pieces until the stack covers fillPercent of the rows
+  static void fill(GameBoard board, int fillPercent, SplittableRandom random) {
+    int targetRows = board.getHeight() * fillPercent / 100;
+    board.reset();
+    while (stackHeight(board) < targetRows) {
+      Tetromino piece = randomPiece(random);
+      int px = random.nextInt(board.getWidth()) - piece.getMinX();
+      if (!board.canPlace(piece, px, -2)) continue;
+      int py = -2;
+      while (board.canPlace(piece, px, py + 1)) py++;
+      if (py + piece.getMinY() < 0) {
+        board.reset();
+        continue;
+      }
+      board.lockPiece(piece, px, py);
+      board.clearCompletedLines();
+    }
+  }
+
+  static int stackHeight(GameBoard board) {
+    int top = board.getHeight();
+    for (int x = 0; x < board.getWidth(); x++) {
+      top = Math.min(top, board.getHeight() - board.getColumnHeight(x));
+    }
+    return board.getHeight() - top;
+  }
+
+  // Rows the piece can fall from (px, py) before it lands
+  static int landingY(GameBoard board, Tetromino piece, int px, int py) {
+    while (board.canPlace(piece, px, py + 1)) py++;
+    return py;
+  }
+}
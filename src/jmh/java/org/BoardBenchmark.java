@@ -0,0 +1,174 @@
+package org;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// cols widens the board at a fixed height: bitboard collision should cost
+// about the same at every width, while line clears grow with the words and
+// color bytes per row
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardBenchmark {
+
+  private static final int PROBES = 1024; // power of two
+
+  @State(Scope.Thread)
+  public static class Probes {
+
+    @Param({ "array", "bit" })
+    public String impl;
+
+    @Param({ "0", "25", "50", "75" })
+    public int fillPercent;
+
+    @Param({ "10", "40", "200" })
+    public int cols;
+
+    GameBoard board;
+    final Tetromino[] pieces = new Tetromino[PROBES];
+    final int[] xs = new int[PROBES];
+    final int[] ys = new int[PROBES];
+    long[] snapshot;
+    int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+      SplittableRandom random = new SplittableRandom(BenchmarkSupport.SEED);
+      board = BenchmarkSupport.newBoard(impl, cols, Board.ROWS);
+      snapshot = new long[board.getSnapshotLongs()];
+      BenchmarkSupport.fill(board, fillPercent, random);
+      for (int i = 0; i < PROBES; i++) {
+        Tetromino piece = BenchmarkSupport.randomPiece(random);
+        int px = random.nextInt(cols) - piece.getMinX();
+        pieces[i] = piece;
+        xs[i] = px;
+        // Mix free-air probes with resting positions on the stack
+        ys[i] = random.nextBoolean()
+          ? random.nextInt(Board.ROWS) - 2
+          : BenchmarkSupport.landingY(board, piece, px, -2);
+      }
+    }
+
+    int nextIndex() {
+      next = (next + 1) & (PROBES - 1);
+      return next;
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class FullRows {
+
+    @Param({ "array", "bit" })
+    public String impl;
+
+    @Param({ "0", "25", "50", "75" })
+    public int fillPercent;
+
+    @Param({ "2", "4" })
+    public int lines;
+
+    @Param({ "10", "40", "200" })
+    public int cols;
+
+    GameBoard board;
+    final List<Tetromino> pieces = new ArrayList<Tetromino>();
+    final List<int[]> positions = new ArrayList<int[]>();
+
+    // Records the locks that build `lines` full rows with a random stack on
+    // top, so every invocation can rebuild the same board.
+    @Setup(Level.Trial)
+    public void setUpTrial() {
+      SplittableRandom random = new SplittableRandom(BenchmarkSupport.SEED);
+      board = BenchmarkSupport.newBoard(impl, cols, Board.ROWS);
+      if (lines == 2) {
+        Tetromino o = Tetromino.of(Tetromino.Type.O);
+        for (int x = 0; x < cols; x += 2) {
+          record(o, x - o.getMinX(), Board.ROWS - 2);
+        }
+      } else {
+        Tetromino i = Tetromino.of(Tetromino.Type.I, 1); // vertical
+        for (int x = 0; x < cols; x++) {
+          record(i, x - i.getMinX(), Board.ROWS - 4);
+        }
+      }
+      int targetRows = Math.max(lines, Board.ROWS * fillPercent / 100);
+      while (BenchmarkSupport.stackHeight(board) < targetRows) {
+        Tetromino piece = BenchmarkSupport.randomPiece(random);
+        int px = random.nextInt(cols) - piece.getMinX();
+        if (!board.canPlace(piece, px, -2)) continue;
+        int py = BenchmarkSupport.landingY(board, piece, px, -2);
+        if (py + piece.getMinY() < 0) break;
+        record(piece, px, py);
+      }
+    }
+
+    private void record(Tetromino piece, int px, int py) {
+      board.lockPiece(piece, px, py);
+      pieces.add(piece);
+      positions.add(new int[] { px, py });
+    }
+
+    // Line clears are destructive, so each call starts from a rebuilt board
+    @Setup(Level.Invocation)
+    public void setUpInvocation() {
+      board.reset();
+      for (int i = 0; i < pieces.size(); i++) {
+        int[] p = positions.get(i);
+        board.lockPiece(pieces.get(i), p[0], p[1]);
+      }
+    }
+  }
+
+  @Benchmark
+  public boolean canPlace(Probes s) {
+    int i = s.nextIndex();
+    return s.board.canPlace(s.pieces[i], s.xs[i], s.ys[i]);
+  }
+
+  @Benchmark
+  public void lockPiece(Probes s) {
+    int i = s.nextIndex();
+    // Re-locking onto occupied cells costs the same as onto empty ones
+    s.board.lockPiece(s.pieces[i], s.xs[i], s.ys[i]);
+  }
+
+  @Benchmark
+  public int clearCompletedLines(FullRows s) {
+    return s.board.clearCompletedLines();
+  }
+
+  @Benchmark
+  public long clearLines(FullRows s) {
+    return s.board.clearLines();
+  }
+
+  @Benchmark
+  public void removeLines(FullRows s) {
+    s.board.removeLines(s.board.getCompletedLines());
+  }
+
+  // One undo push plus pop: pack the board and unpack it again
+  @Benchmark
+  public long snapshotRoundTrip(Probes s) {
+    s.board.saveTo(s.snapshot, 0);
+    s.board.restoreFrom(s.snapshot, 0);
+    return s.board.getHash();
+  }
+}
@@ -0,0 +1,71 @@
+package org;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// One bot move (search plus driving the engine) per operation; the
+// placements counter reports how many candidate boards were evaluated
+// and the cache counters how well an EvalCache of the given size works
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class BotBenchmark {
+
+  @Param({ "0", "1" })
+  public int lookahead;
+
+  @Param({ "0", "1048576" })
+  public long cacheBytes;
+
+  private Bot bot;
+  private GameEngine engine;
+  private long seed = BenchmarkSupport.SEED;
+
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  @State(Scope.Thread)
+  public static class Placements {
+
+    public long placements;
+    public long cacheHits;
+    public long cacheMisses;
+    public long cacheEvictions;
+  }
+
+  @Setup(Level.Iteration)
+  public void setUp() {
+    EvalCache cache = cacheBytes > 0 ? new EvalCache(cacheBytes) : null;
+    bot = new Bot(Heuristic.DEFAULT, lookahead, cache);
+    engine = new GameEngine(seed++);
+  }
+
+  @Benchmark
+  public int move(Placements counter) {
+    long before = bot.getEvaluatedCount();
+    bot.playPiece(engine);
+    counter.placements += bot.getEvaluatedCount() - before;
+    EvalCache cache = bot.getCache();
+    if (cache != null) {
+      counter.cacheHits += cache.getHits();
+      counter.cacheMisses += cache.getMisses();
+      counter.cacheEvictions += cache.getEvictions();
+      cache.resetCounters();
+    }
+    if (engine.isGameOver()) engine = new GameEngine(seed++);
+    return engine.getPieceX();
+  }
+}
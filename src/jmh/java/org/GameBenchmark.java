@@ -0,0 +1,57 @@
+package org;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// One complete headless game per operation, driven by seeded random input
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class GameBenchmark {
+
+  private static final long FRAME_NANOS = 16_666_667L;
+  private static final int MAX_FRAMES = 200_000;
+
+  private static final int SEEDS = 64; // power of two
+
+  private int game;
+
+  @Benchmark
+  public int fullGame() {
+    // Cycle through a fixed set of seeds so every run plays the same games
+    long gameSeed = BenchmarkSupport.SEED + (game++ & (SEEDS - 1));
+    GameEngine engine = new GameEngine(gameSeed);
+    SplittableRandom inputs = new SplittableRandom(gameSeed);
+    for (int frame = 0; frame < MAX_FRAMES && !engine.isGameOver(); frame++) {
+      engine.step(nextInput(inputs), FRAME_NANOS);
+    }
+    return engine.getScoreboard().getScore();
+  }
+
+  private static int nextInput(SplittableRandom random) {
+    switch (random.nextInt(8)) {
+      case 0:
+        return GameInput.MOVE_LEFT;
+      case 1:
+        return GameInput.MOVE_RIGHT;
+      case 2:
+        return GameInput.ROTATE_CW;
+      case 3:
+        return GameInput.HARD_DROP;
+      default:
+        return GameInput.NONE;
+    }
+  }
+}
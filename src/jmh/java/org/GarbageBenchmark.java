@@ -0,0 +1,77 @@
+package org;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// One attack landing on a random stack: lines of garbage pushed in under
+// it, either sharing a hole or with a hole per row, or the stack pushed up
+// with nothing added. A server applies this for every attack in a match.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GarbageBenchmark {
+
+  @Param({ "array", "bit" })
+  public String impl;
+
+  @Param({ "25", "50" })
+  public int fillPercent;
+
+  @Param({ "1", "4" })
+  public int lines;
+
+  @Param({ "10", "40", "200" })
+  public int cols;
+
+  private GameBoard board;
+  private long[] snapshot;
+  private int[] holes;
+
+  @Setup(Level.Trial)
+  public void setUpTrial() {
+    SplittableRandom random = new SplittableRandom(BenchmarkSupport.SEED);
+    board = BenchmarkSupport.newBoard(impl, cols, Board.ROWS);
+    BenchmarkSupport.fill(board, fillPercent, random);
+    snapshot = new long[board.getSnapshotLongs()];
+    board.saveTo(snapshot, 0);
+    holes = new int[lines];
+    for (int i = 0; i < lines; i++) holes[i] = random.nextInt(cols);
+  }
+
+  // Garbage only ever raises the stack, so each call starts from the same
+  // board
+  @Setup(Level.Invocation)
+  public void setUpInvocation() {
+    board.restoreFrom(snapshot, 0);
+  }
+
+  @Benchmark
+  public boolean addGarbage() {
+    return board.addGarbage(lines, holes[0]);
+  }
+
+  @Benchmark
+  public boolean addGarbageRows() {
+    return board.addGarbage(holes, 0, lines);
+  }
+
+  @Benchmark
+  public boolean shiftUp() {
+    return board.shiftUp(lines);
+  }
+}
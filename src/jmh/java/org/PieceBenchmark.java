@@ -0,0 +1,59 @@
+package org;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PieceBenchmark {
+
+  private Tetromino piece;
+  private PieceFactory factory;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    piece = Tetromino.of(Tetromino.Type.T);
+    factory = new PieceFactory(BenchmarkSupport.SEED);
+  }
+
+  @Benchmark
+  public List<java.awt.Point> getCells() {
+    piece = piece.rotatedCW();
+    return piece.getCells();
+  }
+
+  @Benchmark
+  public void cellTable(Blackhole bh) {
+    piece = piece.rotatedCW();
+    for (int i = 0; i < Tetromino.CELL_COUNT; i++) {
+      bh.consume(piece.cellX(i));
+      bh.consume(piece.cellY(i));
+    }
+  }
+
+  @Benchmark
+  public Tetromino nextPiece() {
+    return factory.nextPiece();
+  }
+
+  @Benchmark
+  public Tetromino.Type nextType() {
+    return factory.nextType();
+  }
+}
@@ -0,0 +1,66 @@
+package org;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Resolving one turn of a piece resting on a random stack, where most
+// turns need a kick or fail; the GC profiler should show no allocation
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RotationBenchmark {
+
+  private static final int PROBES = 1024; // power of two
+
+  @Param({ "srs", "legacy" })
+  public String rotation;
+
+  private RotationSystem system;
+  private GameBoard board;
+  private final Tetromino[] pieces = new Tetromino[PROBES];
+  private final int[] xs = new int[PROBES];
+  private final int[] ys = new int[PROBES];
+  private int next;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    SplittableRandom random = new SplittableRandom(BenchmarkSupport.SEED);
+    system = RotationSystem.forName(rotation);
+    board = new BitBoard();
+    BenchmarkSupport.fill(board, 50, random);
+    for (int i = 0; i < PROBES; i++) {
+      Tetromino piece = BenchmarkSupport.randomPiece(random);
+      int px = random.nextInt(Board.COLS) - piece.getMinX();
+      pieces[i] = piece;
+      xs[i] = px;
+      ys[i] = BenchmarkSupport.landingY(board, piece, px, -2);
+    }
+  }
+
+  @Benchmark
+  public int turn() {
+    next = (next + 1) & (PROBES - 1);
+    Tetromino piece = pieces[next];
+    Tetromino rotated = (next & 1) == 0
+      ? piece.rotatedCW()
+      : piece.rotatedCCW();
+    int kick = system.findKick(board, piece, rotated, xs[next], ys[next]);
+    if (kick < 0) return xs[next];
+    return xs[next] + system.kickX(piece, rotated, kick);
+  }
+}
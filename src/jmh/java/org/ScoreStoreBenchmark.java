@@ -0,0 +1,97 @@
+package org;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Queries against a store of `records` games spread over `players`
+// players (1 is a kiosk where every game has the same name), plus unsynced appends (the log write and tail update, with a compaction
+// every DEFAULT_TAIL_LIMIT games). The store is built once per trial in a
+// temporary directory.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ScoreStoreBenchmark {
+
+  @Param({ "1000000" })
+  public int records;
+
+  @Param({ "1000", "1" })
+  public int players;
+
+  private Path dir;
+  private ScoreStore store;
+  private SplittableRandom random;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    dir = Files.createTempDirectory("scores");
+    random = new SplittableRandom(BenchmarkSupport.SEED);
+    store = new ScoreStore(dir);
+    store.setSync(false);
+    for (int i = 0; i < records; i++) store.append(randomGame());
+    store.close();
+    store = new ScoreStore(dir);
+    store.setSync(false);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    store.close();
+    Files.delete(dir.resolve(ScoreStore.LOG_FILE));
+    Files.delete(dir.resolve(ScoreStore.INDEX_FILE));
+    Files.delete(dir);
+  }
+
+  private ScoreRecord randomGame() {
+    return new ScoreRecord(
+      "player" + random.nextInt(players),
+      random.nextInt(1_000_000),
+      random.nextInt(500),
+      random.nextInt(50),
+      random.nextLong(1L << 40),
+      random.nextLong(),
+      System.currentTimeMillis(),
+      -1L
+    );
+  }
+
+  @Benchmark
+  public List<ScoreRecord> top10() throws IOException {
+    return store.top(10);
+  }
+
+  @Benchmark
+  public List<ScoreRecord> top10ForPlayer() throws IOException {
+    return store.topForPlayer("player" + random.nextInt(players), 10);
+  }
+
+  @Benchmark
+  public long rank() {
+    return store.rank(random.nextInt(1_000_000));
+  }
+
+  @Benchmark
+  public long append() throws IOException {
+    return store.append(randomGame());
+  }
+}
@@ -0,0 +1,85 @@
+package org;
+
+import java.nio.ByteBuffer;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// One 60 Hz tick of a game with random inputs plus its spectator message
+// per operation; the bytes and keyframes counters show what the stream
+// costs next to a full snapshot every tick (the snapshotBytes counter)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SpectatorBenchmark {
+
+  private static final long TICK = 16_666_667L;
+
+  private static final int[] INPUTS = {
+    GameInput.NONE,
+    GameInput.NONE,
+    GameInput.NONE,
+    GameInput.MOVE_LEFT,
+    GameInput.MOVE_RIGHT,
+    GameInput.ROTATE_CW,
+    GameInput.HARD_DROP,
+  };
+
+  @Param({ "10", "40" })
+  public int cols;
+
+  @Param({ "30", "120" })
+  public int keyframeInterval;
+
+  private GameEngine engine;
+  private SpectatorEncoder encoder;
+  private ByteBuffer buffer;
+  private SplittableRandom random;
+
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  @State(Scope.Thread)
+  public static class Traffic {
+
+    public long bytes;
+    public long keyframes;
+    public long snapshotBytes;
+  }
+
+  @Setup(Level.Iteration)
+  public void setUp() {
+    engine = new GameEngine(BenchmarkSupport.SEED, cols, Board.ROWS);
+    encoder = new SpectatorEncoder(keyframeInterval);
+    buffer = ByteBuffer.allocate(
+      SpectatorEncoder.maxMessageSize(cols, Board.ROWS)
+    );
+    random = new SplittableRandom(BenchmarkSupport.SEED);
+  }
+
+  @Benchmark
+  public int tick(Traffic counter) {
+    if (engine.isGameOver()) engine.step(GameInput.RESTART, 0);
+    engine.step(INPUTS[random.nextInt(INPUTS.length)], TICK);
+    buffer.clear();
+    long keyframes = encoder.getKeyframes();
+    int length = encoder.encode(engine, buffer);
+    counter.bytes += length;
+    counter.keyframes += encoder.getKeyframes() - keyframes;
+    counter.snapshotBytes += engine.getSnapshotLongs() * 8;
+    return length;
+  }
+}
@@ -0,0 +1,30 @@
+package org;
+
+import java.util.SplittableRandom;
+
+public class BagRandomizer implements Randomizer {
+
+  private final SplittableRandom random;
+  private final int[] bag = new int[Tetromino.Type.values().length];
+  private int index;
+
+  public BagRandomizer(SplittableRandom random) {
+    this.random = random;
+    for (int i = 0; i < bag.length; i++) bag[i] = i;
+    index = bag.length; // shuffle on first draw
+  }
+
+  public int next() {
+    if (index == bag.length) {
+      // In-place Fisher-Yates over the previous bag's order
+      for (int i = bag.length - 1; i > 0; i--) {
+        int j = random.nextInt(i + 1);
+        int tmp = bag[i];
+        bag[i] = bag[j];
+        bag[j] = tmp;
+      }
+      index = 0;
+    }
+    return bag[index++];
+  }
+}
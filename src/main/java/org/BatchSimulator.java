@@ -0,0 +1,248 @@
+package org;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+// Runs many independent headless games across a ForkJoinPool. Every game
+// gets its own engine, policy and seed derived from the batch seed, so a
+// batch is reproducible whatever the thread count. Per-game results are
+// streamed as CSV or JSON lines; the aggregate is returned at the end.
+//
+// Usage: BatchSimulator [--games N] [--seed S] [--threads T]
+//                       [--format csv|json] [--randomizer bag|classic|history]
+//                       [--policy random|bot] [--lookahead N] [--cache-mb M]
+//                       [--cols C] [--rows R]
+public class BatchSimulator {
+
+  private static final int GAMES_PER_TASK = 8;
+  private static final int MAX_PIECES = 100_000; // stop very long games
+
+  public enum Format {
+    CSV,
+    JSON,
+  }
+
+  private final Policy.Factory policies;
+  private final Randomizer.Kind randomizer;
+  private final Format format;
+  private final Writer out; // may be null to skip per-game lines
+  private int cols = Board.COLS;
+  private int rows = Board.ROWS;
+
+  public BatchSimulator(
+    Policy.Factory policies,
+    Randomizer.Kind randomizer,
+    Format format,
+    Writer out
+  ) {
+    this.policies = policies;
+    this.randomizer = randomizer;
+    this.format = format;
+    this.out = out;
+  }
+
+  public void setBoardSize(int cols, int rows) {
+    Board.checkSize(cols, rows);
+    this.cols = cols;
+    this.rows = rows;
+  }
+
+  public SimulationStats run(int games, long seed, ForkJoinPool pool)
+    throws IOException {
+    if (out != null && format == Format.CSV) {
+      out.write("game,seed,score,lines,level,pieces\n");
+    }
+    SimulationStats stats = pool.invoke(new GamesTask(0, games, seed));
+    if (out != null) out.flush();
+    return stats;
+  }
+
+  // Independent, well-mixed seed for game i of a batch
+  public static long gameSeed(long batchSeed, int game) {
+    return new SplittableRandom(batchSeed + game * 0x9E3779B97F4A7C15L)
+      .nextLong();
+  }
+
+  private class GamesTask extends RecursiveTask<SimulationStats> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int from;
+    private final int to;
+    private final long batchSeed;
+
+    GamesTask(int from, int to, long batchSeed) {
+      this.from = from;
+      this.to = to;
+      this.batchSeed = batchSeed;
+    }
+
+    @Override
+    protected SimulationStats compute() {
+      if (to - from <= GAMES_PER_TASK) return runGames();
+      int mid = (from + to) >>> 1;
+      GamesTask left = new GamesTask(from, mid, batchSeed);
+      left.fork();
+      SimulationStats stats = new GamesTask(mid, to, batchSeed).compute();
+      stats.merge(left.join());
+      return stats;
+    }
+
+    private SimulationStats runGames() {
+      SimulationStats stats = new SimulationStats();
+      StringBuilder lines = new StringBuilder();
+      for (int game = from; game < to; game++) {
+        long seed = gameSeed(batchSeed, game);
+        GameEngine engine = new GameEngine(
+          new BitBoard(cols, rows),
+          new PieceFactory(randomizer.create(seed)),
+          seed
+        );
+        Policy policy = policies.create(seed);
+        int pieces = 0;
+        while (!engine.isGameOver() && pieces < MAX_PIECES) {
+          policy.playPiece(engine);
+          pieces++;
+        }
+        Scoreboard score = engine.getScoreboard();
+        stats.record(
+          score.getScore(),
+          score.getTotalLines(),
+          score.getLevel(),
+          pieces
+        );
+        if (out != null) {
+          appendLine(lines, game, seed, score, pieces);
+        }
+      }
+      if (out != null) writeLines(lines);
+      return stats;
+    }
+  }
+
+  private void appendLine(
+    StringBuilder sb,
+    int game,
+    long seed,
+    Scoreboard score,
+    int pieces
+  ) {
+    if (format == Format.CSV) {
+      sb.append(game).append(',').append(seed).append(',');
+      sb.append(score.getScore()).append(',');
+      sb.append(score.getTotalLines()).append(',');
+      sb.append(score.getLevel()).append(',').append(pieces).append('\n');
+    } else {
+      sb.append("{\"game\":").append(game);
+      sb.append(",\"seed\":").append(seed);
+      sb.append(",\"score\":").append(score.getScore());
+      sb.append(",\"lines\":").append(score.getTotalLines());
+      sb.append(",\"level\":").append(score.getLevel());
+      sb.append(",\"pieces\":").append(pieces).append("}\n");
+    }
+  }
+
+  // One write per task keeps workers from fighting over the stream
+  private void writeLines(StringBuilder lines) {
+    synchronized (out) {
+      try {
+        out.write(lines.toString());
+      } catch (IOException e) {
+        throw new IllegalStateException("Could not write results", e);
+      }
+    }
+  }
+
+  public static void main(String[] args) throws IOException {
+    int games = 10_000;
+    long seed = 1L;
+    int threads = Runtime.getRuntime().availableProcessors();
+    Format format = Format.CSV;
+    Randomizer.Kind randomizer = Randomizer.Kind.BAG;
+    String policy = "random";
+    int lookahead = 1;
+    long cacheBytes = 0L;
+    int cols = Board.COLS;
+    int rows = Board.ROWS;
+    for (int i = 0; i < args.length; i += 2) {
+      if (i + 1 >= args.length) {
+        throw new IllegalArgumentException("Missing value for " + args[i]);
+      }
+      String value = args[i + 1];
+      switch (args[i]) {
+        case "--games":
+          games = Integer.parseInt(value);
+          break;
+        case "--seed":
+          seed = Long.parseLong(value);
+          break;
+        case "--threads":
+          threads = Integer.parseInt(value);
+          break;
+        case "--format":
+          format = Format.valueOf(value.toUpperCase());
+          break;
+        case "--randomizer":
+          randomizer = Randomizer.Kind.valueOf(value.toUpperCase());
+          break;
+        case "--policy":
+          policy = value;
+          break;
+        case "--lookahead":
+          lookahead = Integer.parseInt(value);
+          break;
+        case "--cache-mb":
+          cacheBytes = Long.parseLong(value) << 20;
+          break;
+        case "--cols":
+          cols = Integer.parseInt(value);
+          break;
+        case "--rows":
+          rows = Integer.parseInt(value);
+          break;
+        default:
+          throw new IllegalArgumentException("Unknown option " + args[i]);
+      }
+    }
+
+    PrintWriter out = new PrintWriter(
+      new OutputStreamWriter(System.out, StandardCharsets.UTF_8),
+      false
+    );
+    Policy.Factory policies;
+    if (policy.equals("random")) {
+      policies = RandomPolicy.FACTORY;
+    } else if (policy.equals("bot")) {
+      policies = Bot.factory(lookahead, cacheBytes);
+    } else {
+      throw new IllegalArgumentException("Unknown policy " + policy);
+    }
+    BatchSimulator simulator = new BatchSimulator(
+      policies,
+      randomizer,
+      format,
+      out
+    );
+    simulator.setBoardSize(cols, rows);
+    ForkJoinPool pool = new ForkJoinPool(threads);
+    long start = System.nanoTime();
+    SimulationStats stats = simulator.run(games, seed, pool);
+    long wall = System.nanoTime() - start;
+    pool.shutdown();
+
+    System.err.println(stats.toJson());
+    System.err.printf(
+      "%d games on %d threads in %.3fs (%.0f games/s)%n",
+      stats.getGames(),
+      threads,
+      wall / 1e9,
+      stats.getGames() / (wall / 1e9)
+    );
+  }
+}
@@ -0,0 +1,425 @@
+package org;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Board backed by occupancy bitmasks (bit x of word x / 64 = column x) plus
+// a separate color plane that is only touched when cells are locked or
+// moved. Rows up to 64 columns are a single long; wider boards use several
+// words per row. A piece never touches more than two of them, so collision
+// costs the same at any width. Line clears do not: the full-row test,
+// rehashing and heights go word by word, and moving a row also copies its
+// color bytes, so they grow with the width.
+public class BitBoard implements GameBoard {
+
+  private final int width;
+  private final int height;
+  private final int words; // longs per row
+  private final long lastWordMask; // columns of the last word on the board
+
+  private final long[] rows; // height * words, row y starts at y * words
+  private final byte[] colors; // -1 = empty, GARBAGE or a Tetromino.Type ordinal
+  private final int[] heights; // skyline: filled height per column
+  private long hash; // see Zobrist
+
+  public BitBoard() {
+    this(true);
+  }
+
+  // Without colors the board only tracks occupancy (filled cells read as
+  // ordinal 0), which makes copies and locks cheaper for search code.
+  public BitBoard(boolean trackColors) {
+    this(Board.COLS, Board.ROWS, trackColors);
+  }
+
+  public BitBoard(int width, int height) {
+    this(width, height, true);
+  }
+
+  public BitBoard(int width, int height, boolean trackColors) {
+    Board.checkSize(width, height);
+    this.width = width;
+    this.height = height;
+    words = (width + 63) >>> 6;
+    int lastBits = width - 64 * (words - 1);
+    lastWordMask = lastBits == 64 ? -1L : (1L << lastBits) - 1;
+    rows = new long[height * words];
+    colors = trackColors ? new byte[height * width] : null;
+    heights = new int[width];
+    reset();
+  }
+
+  public void reset() {
+    Arrays.fill(rows, 0L);
+    if (colors != null) Arrays.fill(colors, (byte) -1);
+    Arrays.fill(heights, 0);
+    hash = 0L;
+  }
+
+  public int getWidth() {
+    return width;
+  }
+
+  public int getHeight() {
+    return height;
+  }
+
+  // Makes this board an exact copy of source without allocating; both must
+  // have the same size
+  public void copyFrom(GameBoard source) {
+    if (source.getWidth() != width || source.getHeight() != height) {
+      throw new IllegalArgumentException("Board sizes differ");
+    }
+    if (source instanceof BitBoard) {
+      BitBoard other = (BitBoard) source;
+      System.arraycopy(other.rows, 0, rows, 0, rows.length);
+      System.arraycopy(other.heights, 0, heights, 0, heights.length);
+      hash = other.hash;
+      if (colors != null && other.colors != null) {
+        System.arraycopy(other.colors, 0, colors, 0, colors.length);
+        return;
+      }
+    }
+    Arrays.fill(rows, 0L);
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        int ord = source.getCell(x, y);
+        if (ord >= 0) rows[y * words + (x >>> 6)] |= 1L << x;
+        if (colors != null) colors[y * width + x] = (byte) ord;
+      }
+    }
+    recomputeHeights();
+    hash = Zobrist.of(this);
+  }
+
+  public int getCell(int x, int y) {
+    if (x < 0 || x >= width || y < 0 || y >= height) return -1;
+    if ((rows[y * words + (x >>> 6)] >>> x & 1L) == 0) return -1;
+    return colors == null ? 0 : colors[y * width + x];
+  }
+
+  public int getWordsPerRow() {
+    return words;
+  }
+
+  // Columns 64 * word .. 64 * word + 63 of row y
+  public long getRowWord(int y, int word) {
+    if (y < 0 || y >= height || word < 0 || word >= words) return 0L;
+    return rows[y * words + word];
+  }
+
+  // Columns 0-63 of row y; the whole row on boards up to 64 wide
+  public long getRowMask(int y) {
+    return getRowWord(y, 0);
+  }
+
+  public boolean canPlace(Tetromino piece, int px, int py) {
+    if (px + piece.getMinX() < 0 || px + piece.getMaxX() >= width) {
+      return false;
+    }
+    for (int r = piece.getMinY(); r <= piece.getMaxY(); r++) {
+      int y = py + r;
+      if (y >= height) return false;
+      if (y < 0) continue; // allow spawn above visible board
+      if (overlaps(y, piece.rowMask(r), px)) return false;
+    }
+    return true;
+  }
+
+  // Whether a piece row (bit c = column px + c, already known to be inside
+  // the board) hits a filled cell of row y
+  private boolean overlaps(int y, int mask, int px) {
+    int base = y * words;
+    if (px < 0) return (rows[base] & ((long) mask >>> -px)) != 0;
+    int word = px >>> 6;
+    int offset = px & 63;
+    if ((rows[base + word] & ((long) mask << offset)) != 0) return true;
+    // Piece rows are four bits wide, so only offsets past 60 spill over
+    if (offset > 60 && word + 1 < words) {
+      return (rows[base + word + 1] & ((long) mask >>> (64 - offset))) != 0;
+    }
+    return false;
+  }
+
+  public void lockPiece(Tetromino piece, int px, int py) {
+    byte ordinal = (byte) piece.getType().ordinal();
+    for (int r = 0; r < Tetromino.SIZE; r++) {
+      int mask = piece.rowMask(r);
+      int y = py + r;
+      if (mask == 0 || y < 0 || y >= height) continue;
+      while (mask != 0) {
+        int x = px + Integer.numberOfTrailingZeros(mask);
+        mask &= mask - 1;
+        if (x < 0 || x >= width) continue;
+        int i = y * words + (x >>> 6);
+        long bit = 1L << x;
+        if ((rows[i] & bit) == 0) {
+          rows[i] |= bit;
+          hash ^= Zobrist.cell(x, y);
+        }
+        if (colors != null) colors[y * width + x] = ordinal;
+        if (height - y > heights[x]) heights[x] = height - y;
+      }
+    }
+  }
+
+  public int getColumnHeight(int x) {
+    if (x < 0 || x >= width) return 0;
+    return heights[x];
+  }
+
+  public int dropDistance(Tetromino piece, int px, int py) {
+    int best = Integer.MAX_VALUE;
+    for (int c = piece.getMinX(); c <= piece.getMaxX(); c++) {
+      int bottom = piece.columnBottom(c);
+      if (bottom < 0) continue;
+      int x = px + c;
+      int y = py + bottom;
+      int obstacle = height - heights[x];
+      if (y >= obstacle) {
+        // Piece is tucked under an overhang: scan down to the next block
+        int word = x >>> 6;
+        long bit = 1L << x;
+        obstacle = y + 1;
+        while (
+          obstacle < height && (rows[obstacle * words + word] & bit) == 0
+        ) {
+          obstacle++;
+        }
+      }
+      if (obstacle - y - 1 < best) best = obstacle - y - 1;
+    }
+    return best;
+  }
+
+  private boolean isFull(int y) {
+    int base = y * words;
+    for (int w = 0; w < words - 1; w++) {
+      if (rows[base + w] != -1L) return false;
+    }
+    return rows[base + words - 1] == lastWordMask;
+  }
+
+  public List<Integer> getCompletedLines() {
+    List<Integer> full = new ArrayList<Integer>();
+    for (int y = 0; y < height; y++) {
+      if (isFull(y)) full.add(Integer.valueOf(y));
+    }
+    return full;
+  }
+
+  public int clearCompletedLines() {
+    return LineClear.count(clearLines());
+  }
+
+  public long clearLines() {
+    long result = LineClear.NONE;
+    int write = height - 1;
+    for (int read = height - 1; read >= 0; read--) {
+      if (isFull(read)) {
+        result = LineClear.add(result, read);
+        hash ^= rowHash(read, read);
+        continue;
+      }
+      moveRow(read, write);
+      write--;
+    }
+    clearRows(write + 1);
+    if (result != LineClear.NONE) recomputeHeights();
+    return result;
+  }
+
+  public void removeLines(List<Integer> lines) {
+    if (lines == null || lines.isEmpty()) return;
+    boolean[] remove = new boolean[height];
+    for (Integer row : lines) {
+      int y = row.intValue();
+      if (y >= 0 && y < height) remove[y] = true;
+    }
+    int write = height - 1;
+    for (int read = height - 1; read >= 0; read--) {
+      if (remove[read]) {
+        hash ^= rowHash(read, read);
+        continue;
+      }
+      moveRow(read, write);
+      write--;
+    }
+    clearRows(write + 1);
+    recomputeHeights();
+  }
+
+  public int getStackHeight() {
+    int stack = 0;
+    for (int x = 0; x < width; x++) stack = Math.max(stack, heights[x]);
+    return stack;
+  }
+
+  // Rows move up with one array copy; only rows holding blocks are rehashed
+  public boolean shiftUp(int count) {
+    if (count <= 0) return true;
+    int n = Math.min(count, height);
+    int stack = getStackHeight();
+    for (int y = height - stack; y < height; y++) {
+      long before = rowHash(y, y);
+      hash ^= y - n >= 0 ? before ^ rowHash(y, y - n) : before;
+    }
+    System.arraycopy(rows, n * words, rows, 0, (height - n) * words);
+    Arrays.fill(rows, (height - n) * words, height * words, 0L);
+    if (colors != null) {
+      System.arraycopy(colors, n * width, colors, 0, (height - n) * width);
+      Arrays.fill(colors, (height - n) * width, height * width, (byte) -1);
+    }
+    if (stack + n > height) {
+      recomputeHeights();
+      return false;
+    }
+    for (int x = 0; x < width; x++) {
+      if (heights[x] > 0) heights[x] += n;
+    }
+    return true;
+  }
+
+  public boolean addGarbage(int count, int hole) {
+    if (count <= 0) return true;
+    Board.checkHole(width, hole);
+    int n = Math.min(count, height);
+    boolean fits = shiftUp(n) && count <= height;
+    for (int y = height - n; y < height; y++) fillGarbage(y, hole);
+    for (int x = 0; x < width; x++) {
+      if (x != hole && heights[x] < n) heights[x] = n;
+    }
+    return fits;
+  }
+
+  public boolean addGarbage(int[] holes, int offset, int count) {
+    if (count <= 0) return true;
+    int n = Math.min(count, height);
+    int first = offset + count - n; // rows before it went off the top
+    for (int i = first; i < first + n; i++) Board.checkHole(width, holes[i]);
+    boolean fits = shiftUp(n) && count <= height;
+    for (int i = 0; i < n; i++) fillGarbage(height - n + i, holes[first + i]);
+    raiseHeights(holes, first, n);
+    return fits;
+  }
+
+  // Skyline after n garbage rows went in under a raised stack: every
+  // column reaches the top garbage row but its hole, which an empty column
+  // fills down to the first row below with another hole
+  private void raiseHeights(int[] holes, int first, int n) {
+    int top = holes[first];
+    boolean holed = heights[top] == 0;
+    for (int x = 0; x < width; x++) {
+      if (heights[x] < n) heights[x] = n;
+    }
+    if (!holed) return;
+    int i = 1;
+    while (i < n && holes[first + i] == top) i++;
+    heights[top] = n - i;
+  }
+
+  // Fills the empty row y except for column hole
+  private void fillGarbage(int y, int hole) {
+    int base = y * words;
+    Arrays.fill(rows, base, base + words - 1, -1L);
+    rows[base + words - 1] = lastWordMask;
+    rows[base + (hole >>> 6)] &= ~(1L << hole);
+    if (colors != null) {
+      Arrays.fill(colors, y * width, (y + 1) * width, (byte) GARBAGE);
+      colors[y * width + hole] = -1;
+    }
+    hash ^= rowHash(y, y);
+  }
+
+  public long getHash() {
+    return hash;
+  }
+
+  public int getSnapshotLongs() {
+    return Board.snapshotLongs(width, height);
+  }
+
+  // Cells in row-major order, CELLS_PER_LONG to a long, then the hash
+  public void saveTo(long[] out, int offset) {
+    int index = offset;
+    int slot = 0;
+    long packed = 0L;
+    for (int y = 0; y < height; y++) {
+      int base = y * words;
+      for (int x = 0; x < width; x++) {
+        if ((rows[base + (x >>> 6)] >>> x & 1L) != 0) {
+          long code = colors != null ? colors[y * width + x] + 1 : 1;
+          packed |= code << (4 * slot);
+        }
+        if (++slot == Board.CELLS_PER_LONG) {
+          out[index++] = packed;
+          packed = 0L;
+          slot = 0;
+        }
+      }
+    }
+    if (slot > 0) out[index] = packed;
+    out[offset + getSnapshotLongs() - 1] = hash;
+  }
+
+  public void restoreFrom(long[] in, int offset) {
+    Arrays.fill(rows, 0L);
+    int index = offset;
+    int slot = 0;
+    for (int y = 0; y < height; y++) {
+      int base = y * words;
+      for (int x = 0; x < width; x++) {
+        int code = (int) (in[index] >>> (4 * slot) & 15);
+        if (code != 0) rows[base + (x >>> 6)] |= 1L << x;
+        if (colors != null) colors[y * width + x] = (byte) (code - 1);
+        if (++slot == Board.CELLS_PER_LONG) {
+          index++;
+          slot = 0;
+        }
+      }
+    }
+    hash = in[offset + getSnapshotLongs() - 1];
+    recomputeHeights();
+  }
+
+  // Walks down from the top until every column has met its first block
+  private void recomputeHeights() {
+    Arrays.fill(heights, 0);
+    for (int w = 0; w < words; w++) {
+      long remaining = w == words - 1 ? lastWordMask : -1L;
+      for (int y = 0; y < height && remaining != 0; y++) {
+        long found = rows[y * words + w] & remaining;
+        remaining &= ~found;
+        while (found != 0) {
+          heights[64 * w + Long.numberOfTrailingZeros(found)] = height - y;
+          found &= found - 1;
+        }
+      }
+    }
+  }
+
+  // Zobrist keys of the cells of row y if they were placed in row at
+  private long rowHash(int y, int at) {
+    long h = 0L;
+    int base = y * words;
+    for (int w = 0; w < words; w++) {
+      h ^= Zobrist.row(rows[base + w], 64 * w, at);
+    }
+    return h;
+  }
+
+  private void moveRow(int from, int to) {
+    if (from == to) return;
+    hash ^= rowHash(from, from) ^ rowHash(from, to);
+    System.arraycopy(rows, from * words, rows, to * words, words);
+    if (colors == null) return;
+    System.arraycopy(colors, from * width, colors, to * width, width);
+  }
+
+  // Empties the top count rows after a compaction
+  private void clearRows(int count) {
+    Arrays.fill(rows, 0, count * words, 0L);
+    if (colors != null) Arrays.fill(colors, 0, count * width, (byte) -1);
+  }
+}
@@ -1,41 +1,89 @@
 package org;
 
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.List;
 
-public class Board {
+public class Board implements GameBoard {
 
+  // Standard size; other sizes are chosen at runtime
   public static final int COLS = 10;
   public static final int ROWS = 20;
 
-  private final int[][] cells; // -1 = empty, otherwise ordinal of Tetromino.Type
+  static final int MIN_SIZE = 4; // a piece must fit
+  static final int MAX_SIZE = 4096;
+
+  // Snapshots pack four bits per cell
+  static final int CELLS_PER_LONG = 16;
+
+  private final int cols;
+  private final int rows;
+  private final int[][] cells; // -1 = empty, GARBAGE or a Tetromino.Type ordinal
+  private final int[] heights; // skyline: filled height per column
+  private long hash; // see Zobrist
 
   public Board() {
-    cells = new int[ROWS][COLS];
+    this(COLS, ROWS);
+  }
+
+  public Board(int cols, int rows) {
+    checkSize(cols, rows);
+    this.cols = cols;
+    this.rows = rows;
+    cells = new int[rows][cols];
+    heights = new int[cols];
     reset();
   }
 
+  static void checkSize(int cols, int rows) {
+    if (
+      cols < MIN_SIZE || rows < MIN_SIZE || cols > MAX_SIZE || rows > MAX_SIZE
+    ) {
+      throw new IllegalArgumentException("Board size " + cols + "x" + rows);
+    }
+  }
+
+  // Garbage always leaves a hole, so it can never be cleared as it lands
+  static void checkHole(int cols, int hole) {
+    if (hole < 0 || hole >= cols) {
+      throw new IllegalArgumentException("Garbage hole " + hole);
+    }
+  }
+
+  // Longs in a snapshot of a board this size: the cells, then the hash
+  static int snapshotLongs(int cols, int rows) {
+    return (cols * rows + CELLS_PER_LONG - 1) / CELLS_PER_LONG + 1;
+  }
+
+  public int getWidth() {
+    return cols;
+  }
+
+  public int getHeight() {
+    return rows;
+  }
+
   public void reset() {
-    for (int y = 0; y < ROWS; y++) {
-      for (int x = 0; x < COLS; x++) {
+    for (int y = 0; y < rows; y++) {
+      for (int x = 0; x < cols; x++) {
         cells[y][x] = -1;
       }
     }
+    Arrays.fill(heights, 0);
+    hash = 0L;
   }
 
   public int getCell(int x, int y) {
-    if (x < 0 || x >= COLS || y < 0 || y >= ROWS) return -1;
+    if (x < 0 || x >= cols || y < 0 || y >= rows) return -1;
     return cells[y][x];
   }
 
   public boolean canPlace(Tetromino piece, int px, int py) {
-    List<java.awt.Point> blocks = piece.getCells();
-    for (java.awt.Point p : blocks) {
-      int x = px + p.x;
-      int y = py + p.y;
-      if (x < 0 || x >= COLS) return false;
-      if (y >= ROWS) return false;
+    for (int i = 0; i < Tetromino.CELL_COUNT; i++) {
+      int x = px + piece.cellX(i);
+      int y = py + piece.cellY(i);
+      if (x < 0 || x >= cols) return false;
+      if (y >= rows) return false;
       if (y < 0) continue; // allow spawn above visible board
       if (cells[y][x] != -1) return false;
     }
@@ -44,20 +92,45 @@ public class Board {
 
   public void lockPiece(Tetromino piece, int px, int py) {
     int ordinal = piece.getType().ordinal();
-    for (java.awt.Point p : piece.getCells()) {
-      int x = px + p.x;
-      int y = py + p.y;
-      if (y >= 0 && y < ROWS && x >= 0 && x < COLS) {
+    for (int i = 0; i < Tetromino.CELL_COUNT; i++) {
+      int x = px + piece.cellX(i);
+      int y = py + piece.cellY(i);
+      if (y >= 0 && y < rows && x >= 0 && x < cols) {
+        if (cells[y][x] == -1) hash ^= Zobrist.cell(x, y);
         cells[y][x] = ordinal;
+        if (rows - y > heights[x]) heights[x] = rows - y;
+      }
+    }
+  }
+
+  public int getColumnHeight(int x) {
+    if (x < 0 || x >= cols) return 0;
+    return heights[x];
+  }
+
+  public int dropDistance(Tetromino piece, int px, int py) {
+    int best = Integer.MAX_VALUE;
+    for (int c = piece.getMinX(); c <= piece.getMaxX(); c++) {
+      int bottom = piece.columnBottom(c);
+      if (bottom < 0) continue;
+      int x = px + c;
+      int y = py + bottom;
+      int obstacle = rows - heights[x];
+      if (y >= obstacle) {
+        // Piece is tucked under an overhang: scan down to the next block
+        obstacle = y + 1;
+        while (obstacle < rows && cells[obstacle][x] == -1) obstacle++;
       }
+      if (obstacle - y - 1 < best) best = obstacle - y - 1;
     }
+    return best;
   }
 
   public List<Integer> getCompletedLines() {
     List<Integer> full = new ArrayList<Integer>();
-    for (int y = 0; y < ROWS; y++) {
+    for (int y = 0; y < rows; y++) {
       boolean isFull = true;
-      for (int x = 0; x < COLS; x++) {
+      for (int x = 0; x < cols; x++) {
         if (cells[y][x] == -1) {
           isFull = false;
           break;
@@ -69,26 +142,209 @@ public class Board {
   }
 
   public int clearCompletedLines() {
-    List<Integer> lines = getCompletedLines();
-    if (lines.isEmpty()) return 0;
-    removeLines(lines);
-    return lines.size();
+    return LineClear.count(clearLines());
+  }
+
+  public long clearLines() {
+    long result = LineClear.NONE;
+    int write = rows - 1;
+    for (int read = rows - 1; read >= 0; read--) {
+      if (isFull(cells[read])) {
+        result = LineClear.add(result, read);
+        hash ^= rowHash(cells[read], read);
+        continue;
+      }
+      swapRows(read, write);
+      write--;
+    }
+    emptyTopRows(write + 1);
+    if (result != LineClear.NONE) recomputeHeights();
+    return result;
   }
 
   public void removeLines(List<Integer> lines) {
     if (lines == null || lines.isEmpty()) return;
-    // Remove from bottom-most upwards to avoid reindexing issues
-    Collections.sort(lines, Collections.reverseOrder());
-    for (Integer rowObj : lines) {
-      int row = rowObj.intValue();
-      for (int y = row; y > 0; y--) {
-        for (int x = 0; x < COLS; x++) {
-          cells[y][x] = cells[y - 1][x];
+    boolean[] remove = new boolean[rows];
+    for (Integer row : lines) {
+      int y = row.intValue();
+      if (y >= 0 && y < rows) remove[y] = true;
+    }
+    int write = rows - 1;
+    for (int read = rows - 1; read >= 0; read--) {
+      if (remove[read]) {
+        hash ^= rowHash(cells[read], read);
+        continue;
+      }
+      swapRows(read, write);
+      write--;
+    }
+    emptyTopRows(write + 1);
+    recomputeHeights();
+  }
+
+  public int getStackHeight() {
+    int stack = 0;
+    for (int x = 0; x < cols; x++) stack = Math.max(stack, heights[x]);
+    return stack;
+  }
+
+  public boolean shiftUp(int count) {
+    if (count <= 0) return true;
+    int n = Math.min(count, rows);
+    int stack = getStackHeight();
+    raiseRows(n, stack);
+    if (stack + n > rows) {
+      recomputeHeights();
+      return false;
+    }
+    for (int x = 0; x < cols; x++) {
+      if (heights[x] > 0) heights[x] += n;
+    }
+    return true;
+  }
+
+  public boolean addGarbage(int count, int hole) {
+    if (count <= 0) return true;
+    checkHole(cols, hole);
+    int n = Math.min(count, rows);
+    boolean fits = shiftUp(n) && count <= rows;
+    for (int y = rows - n; y < rows; y++) fillGarbage(y, hole);
+    for (int x = 0; x < cols; x++) {
+      if (x != hole && heights[x] < n) heights[x] = n;
+    }
+    return fits;
+  }
+
+  public boolean addGarbage(int[] holes, int offset, int count) {
+    if (count <= 0) return true;
+    int n = Math.min(count, rows);
+    int first = offset + count - n; // rows before it went off the top
+    for (int i = first; i < first + n; i++) checkHole(cols, holes[i]);
+    boolean fits = shiftUp(n) && count <= rows;
+    for (int i = 0; i < n; i++) fillGarbage(rows - n + i, holes[first + i]);
+    raiseHeights(holes, first, n);
+    return fits;
+  }
+
+  // Row y moves to row y - n by swapping row arrays. Only rows holding
+  // blocks are rehashed, and the rows left at the bottom only need
+  // emptying if blocks went off the top.
+  private void raiseRows(int n, int stack) {
+    for (int y = rows - stack; y < rows; y++) {
+      long before = rowHash(cells[y], y);
+      hash ^= y - n >= 0 ? before ^ rowHash(cells[y], y - n) : before;
+    }
+    for (int y = 0; y + n < rows; y++) {
+      int[] tmp = cells[y];
+      cells[y] = cells[y + n];
+      cells[y + n] = tmp;
+    }
+    if (stack + n > rows) {
+      for (int y = rows - n; y < rows; y++) Arrays.fill(cells[y], -1);
+    }
+  }
+
+  // Fills the empty row y except for column hole
+  private void fillGarbage(int y, int hole) {
+    Arrays.fill(cells[y], GARBAGE);
+    cells[y][hole] = -1;
+    hash ^= rowHash(cells[y], y);
+  }
+
+  // Skyline after n garbage rows went in under a raised stack: every
+  // column reaches the top garbage row but its hole, which an empty column
+  // fills down to the first row below with another hole
+  private void raiseHeights(int[] holes, int first, int n) {
+    int top = holes[first];
+    boolean holed = heights[top] == 0;
+    for (int x = 0; x < cols; x++) {
+      if (heights[x] < n) heights[x] = n;
+    }
+    if (!holed) return;
+    int i = 1;
+    while (i < n && holes[first + i] == top) i++;
+    heights[top] = n - i;
+  }
+
+  public long getHash() {
+    return hash;
+  }
+
+  public int getSnapshotLongs() {
+    return snapshotLongs(cols, rows);
+  }
+
+  // Cells in row-major order, CELLS_PER_LONG to a long, then the hash
+  public void saveTo(long[] out, int offset) {
+    int index = offset;
+    int slot = 0;
+    long packed = 0L;
+    for (int y = 0; y < rows; y++) {
+      for (int x = 0; x < cols; x++) {
+        packed |= (long) (cells[y][x] + 1) << (4 * slot);
+        if (++slot == CELLS_PER_LONG) {
+          out[index++] = packed;
+          packed = 0L;
+          slot = 0;
         }
       }
-      for (int x = 0; x < COLS; x++) {
-        cells[0][x] = -1;
+    }
+    if (slot > 0) out[index] = packed;
+    out[offset + getSnapshotLongs() - 1] = hash;
+  }
+
+  public void restoreFrom(long[] in, int offset) {
+    int index = offset;
+    int slot = 0;
+    for (int y = 0; y < rows; y++) {
+      for (int x = 0; x < cols; x++) {
+        cells[y][x] = (int) (in[index] >>> (4 * slot) & 15) - 1;
+        if (++slot == CELLS_PER_LONG) {
+          index++;
+          slot = 0;
+        }
       }
     }
+    hash = in[offset + getSnapshotLongs() - 1];
+    recomputeHeights();
+  }
+
+  private void recomputeHeights() {
+    for (int x = 0; x < cols; x++) {
+      int y = 0;
+      while (y < rows && cells[y][x] == -1) y++;
+      heights[x] = rows - y;
+    }
+  }
+
+  private static boolean isFull(int[] row) {
+    for (int x = 0; x < row.length; x++) {
+      if (row[x] == -1) return false;
+    }
+    return true;
+  }
+
+  // Kept rows are swapped down, so the removed row arrays collect at the
+  // top where they are reused as the new empty rows.
+  private void swapRows(int from, int to) {
+    if (from == to) return;
+    hash ^= rowHash(cells[from], from) ^ rowHash(cells[from], to);
+    int[] tmp = cells[to];
+    cells[to] = cells[from];
+    cells[from] = tmp;
+  }
+
+  private static long rowHash(int[] row, int y) {
+    long h = 0L;
+    for (int x = 0; x < row.length; x++) {
+      if (row[x] != -1) h ^= Zobrist.cell(x, y);
+    }
+    return h;
+  }
+
+  private void emptyTopRows(int count) {
+    for (int y = 0; y < count; y++) {
+      Arrays.fill(cells[y], -1);
+    }
   }
 }
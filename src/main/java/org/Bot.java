@@ -0,0 +1,252 @@
+package org;
+
+// Placement search: tries every rotation and column the current piece can
+// reach from its position (same kicks and moves as a player, turning
+// either way), drops it,
+// and scores the result with a Heuristic, optionally looking ahead over
+// the preview pieces. All boards and pieces used by the search are
+// allocated up front, so evaluating a placement allocates nothing. An
+// optional EvalCache keyed by board hash skips subtrees and leaves that
+// were already scored (different moves often produce the same board).
+public class Bot implements Policy {
+
+  private static final double GAME_OVER = -1e9;
+
+  public static final long DEFAULT_CACHE_BYTES = 1L << 20;
+  private static final Tetromino.Type[] TYPES = Tetromino.Type.values();
+
+  // SAME_CELLS[type][rotation]: the first rotation with the same cells
+  private static final int[][] SAME_CELLS = buildSameCells();
+
+  private final Heuristic heuristic;
+  private final int depths; // current piece plus lookahead pieces
+  private final EvalCache cache; // null = no caching
+
+  private BitBoard root = new BitBoard(false);
+  private final BitBoard[] scratch; // resized with the engine's board
+  private final Tetromino.Type[] sequence;
+  private RotationSystem rotationSystem = RotationSystem.SRS; // the engine's
+  private final long[] suffixKeys; // [depth]: mixed into cache keys
+
+  private int bestRotation;
+  private boolean bestCounterclockwise; // how bestRotation is reached
+  private int bestX;
+  private long evaluated;
+
+  public Bot(Heuristic heuristic, int lookahead) {
+    this(heuristic, lookahead, null);
+  }
+
+  public Bot(Heuristic heuristic, int lookahead, EvalCache cache) {
+    if (lookahead < 0 || lookahead >= PieceFactory.PREVIEW) {
+      throw new IllegalArgumentException("Lookahead " + lookahead);
+    }
+    this.heuristic = heuristic;
+    this.depths = lookahead + 1;
+    this.cache = cache;
+    scratch = new BitBoard[depths];
+    sequence = new Tetromino.Type[depths];
+    suffixKeys = new long[depths + 1];
+    for (int d = 0; d < depths; d++) scratch[d] = new BitBoard(false);
+  }
+
+  public static Policy.Factory factory(final int lookahead) {
+    return factory(lookahead, 0L);
+  }
+
+  // cacheBytes caps each bot's EvalCache; 0 disables caching
+  public static Policy.Factory factory(
+    final int lookahead,
+    final long cacheBytes
+  ) {
+    return new Policy.Factory() {
+      public Policy create(long seed) {
+        EvalCache cache = cacheBytes > 0 ? new EvalCache(cacheBytes) : null;
+        return new Bot(Heuristic.DEFAULT, lookahead, cache);
+      }
+    };
+  }
+
+  public void playPiece(GameEngine engine) {
+    if (choose(engine)) {
+      PlacementDriver.drive(
+        engine,
+        bestRotation,
+        bestCounterclockwise,
+        bestX
+      );
+    } else {
+      engine.step(GameInput.HARD_DROP, 0); // every option loses
+    }
+  }
+
+  // Searches the engine's current piece; false if no placement survives
+  public boolean choose(GameEngine engine) {
+    Tetromino current = engine.getCurrent();
+    sequence[0] = current.getType();
+    rotationSystem = engine.getRotationSystem();
+    for (int d = 1; d < depths; d++) sequence[d] = engine.peekType(d - 1);
+    // A cached value at depth d depends on the board, the pieces still to
+    // be placed and the kicks that move them, so the key mixes all three
+    suffixKeys[depths] = Zobrist.mix(
+      depths * 31L + rotationSystem.getName().hashCode()
+    );
+    for (int d = depths - 1; d >= 0; d--) {
+      suffixKeys[d] = Zobrist.mix(
+        suffixKeys[d + 1] * 31 + sequence[d].ordinal() + 1
+      );
+    }
+    GameBoard board = engine.getBoard();
+    if (
+      board.getWidth() != root.getWidth() ||
+      board.getHeight() != root.getHeight()
+    ) {
+      resize(board.getWidth(), board.getHeight());
+    }
+    root.copyFrom(board);
+    double best = search(
+      root,
+      0,
+      current.getRotation(),
+      engine.getPieceX(),
+      engine.getPieceY()
+    );
+    return best > GAME_OVER / 2;
+  }
+
+  private double search(
+    BitBoard from,
+    int depth,
+    int startRotation,
+    int startX,
+    int startY
+  ) {
+    Tetromino start = Tetromino.of(sequence[depth], startRotation);
+    if (!from.canPlace(start, startX, startY)) return GAME_OVER;
+
+    double best = GAME_OVER;
+    int[] same = SAME_CELLS[start.getType().ordinal()];
+    int swept = 0; // bit per rotation, by its first rotation with its cells
+    // Clockwise turns first; a blocked turn ends that chain, but the
+    // counterclockwise chain can still reach the rotations after it
+    for (int ccw = 0; ccw < 2; ccw++) {
+      Tetromino piece = start;
+      int x = startX;
+      int y = startY;
+      for (int turn = 0; turn < 4; turn++) {
+        if (turn > 0) {
+          Tetromino rotated = ccw == 0
+            ? piece.rotatedCW()
+            : piece.rotatedCCW();
+          int kick = rotationSystem.findKick(from, piece, rotated, x, y);
+          if (kick < 0) break; // later turns this way are unreachable
+          x += rotationSystem.kickX(piece, rotated, kick);
+          y += rotationSystem.kickY(piece, rotated, kick);
+          piece = rotated;
+        }
+        int rotation = piece.getRotation();
+        if ((swept & 1 << same[rotation]) != 0) continue;
+        swept |= 1 << same[rotation];
+
+        // Sweep left from the rotated position, then right
+        for (int dir = -1; dir <= 1; dir += 2) {
+          int cx = dir < 0 ? x : x + 1;
+          while (from.canPlace(piece, cx, y)) {
+            double value = place(from, piece, cx, y, depth);
+            if (value > best) {
+              best = value;
+              if (depth == 0) {
+                bestRotation = rotation;
+                bestCounterclockwise = ccw == 1;
+                bestX = cx;
+              }
+            }
+            cx += dir;
+          }
+        }
+      }
+    }
+    return best;
+  }
+
+  private double place(
+    BitBoard from,
+    Tetromino piece,
+    int px,
+    int py,
+    int depth
+  ) {
+    evaluated++;
+    int landY = py + from.dropDistance(piece, px, py);
+    if (landY + piece.getMinY() < 0) return GAME_OVER; // locks above the top
+
+    BitBoard work = scratch[depth];
+    work.copyFrom(from);
+    work.lockPiece(piece, px, landY);
+    double gained = heuristic.scoreLines(LineClear.count(work.clearLines()));
+
+    long key = work.getHash() ^ suffixKeys[depth + 1];
+    if (cache != null) {
+      double cached = cache.get(key, Double.NaN);
+      if (!Double.isNaN(cached)) return gained + cached;
+    }
+    double value;
+    if (depth + 1 < depths) {
+      value = search(
+        work,
+        depth + 1,
+        0,
+        GameEngine.spawnX(work.getWidth()),
+        GameEngine.SPAWN_Y
+      );
+    } else {
+      value = heuristic.evaluateBoard(work);
+    }
+    if (cache != null) cache.put(key, value);
+    return gained + value;
+  }
+
+  private void resize(int width, int height) {
+    root = new BitBoard(width, height, false);
+    for (int d = 0; d < depths; d++) {
+      scratch[d] = new BitBoard(width, height, false);
+    }
+    if (cache != null) cache.clear(); // hashes of another board size
+  }
+
+  public int getBestRotation() {
+    return bestRotation;
+  }
+
+  public int getBestX() {
+    return bestX;
+  }
+
+  public EvalCache getCache() {
+    return cache;
+  }
+
+  // Placements evaluated since this bot was created
+  public long getEvaluatedCount() {
+    return evaluated;
+  }
+
+  private static int[][] buildSameCells() {
+    int[][] first = new int[TYPES.length][4];
+    for (int t = 0; t < TYPES.length; t++) {
+      for (int r = 0; r < 4; r++) {
+        Tetromino a = Tetromino.of(TYPES[t], r);
+        first[t][r] = r;
+        for (int earlier = r - 1; earlier >= 0; earlier--) {
+          Tetromino b = Tetromino.of(TYPES[t], earlier);
+          boolean same = true;
+          for (int row = 0; row < Tetromino.SIZE; row++) {
+            if (a.rowMask(row) != b.rowMask(row)) same = false;
+          }
+          if (same) first[t][r] = earlier;
+        }
+      }
+    }
+    return first;
+  }
+}
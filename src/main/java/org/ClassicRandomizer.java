@@ -0,0 +1,18 @@
+package org;
+
+import java.util.SplittableRandom;
+
+public class ClassicRandomizer implements Randomizer {
+
+  private static final int TYPES = Tetromino.Type.values().length;
+
+  private final SplittableRandom random;
+
+  public ClassicRandomizer(SplittableRandom random) {
+    this.random = random;
+  }
+
+  public int next() {
+    return random.nextInt(TYPES);
+  }
+}
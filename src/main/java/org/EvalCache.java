@@ -0,0 +1,148 @@
+package org;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+// Bounded cache from 64-bit keys (board hashes) to double scores, stored in
+// flat primitive arrays sized from a memory cap. Lookups use open
+// addressing over a short probe window; when the window is full the clock
+// hand evicts the first entry that has not been hit since it last passed.
+// Not thread safe: each search owns its cache.
+public class EvalCache {
+
+  public static final int BYTES_PER_ENTRY = 8 + 8 + 1; // key, value, state
+
+  private static final int PROBES = 8;
+
+  private static final byte EMPTY = 0;
+  private static final byte PRESENT = 1;
+  private static final byte REFERENCED = 2;
+
+  private final long[] keys;
+  private final double[] values;
+  private final byte[] states;
+  private final int mask;
+  private int hand; // clock position within a probe window
+
+  private long hits;
+  private long misses;
+  private long evictions;
+  private int size;
+
+  public EvalCache(long maxBytes) {
+    long entries = Math.max(PROBES, maxBytes / BYTES_PER_ENTRY);
+    // Largest power of two that fits the cap
+    int capacity = Integer.highestOneBit((int) Math.min(entries, 1 << 30));
+    keys = new long[capacity];
+    values = new double[capacity];
+    states = new byte[capacity];
+    mask = capacity - 1;
+  }
+
+  // Returns the cached value, or missing if the key is absent
+  public double get(long key, double missing) {
+    int start = index(key);
+    for (int i = 0; i < PROBES; i++) {
+      int slot = (start + i) & mask;
+      byte state = states[slot];
+      if (state == EMPTY) break;
+      if (keys[slot] == key) {
+        states[slot] = REFERENCED;
+        hits++;
+        return values[slot];
+      }
+    }
+    misses++;
+    return missing;
+  }
+
+  public void put(long key, double value) {
+    int start = index(key);
+    for (int i = 0; i < PROBES; i++) {
+      int slot = (start + i) & mask;
+      if (states[slot] == EMPTY) {
+        store(slot, key, value);
+        size++;
+        return;
+      }
+      if (keys[slot] == key) {
+        values[slot] = value;
+        return;
+      }
+    }
+    // Window full: sweep from the hand, giving referenced entries a second
+    // chance. Two passes always find a victim.
+    for (int i = 0; i < 2 * PROBES; i++) {
+      int slot = (start + (hand++ & (PROBES - 1))) & mask;
+      if (states[slot] == REFERENCED) {
+        states[slot] = PRESENT;
+        continue;
+      }
+      evictions++;
+      store(slot, key, value);
+      return;
+    }
+  }
+
+  public void clear() {
+    Arrays.fill(states, EMPTY);
+    size = 0;
+  }
+
+  public int getCapacity() {
+    return keys.length;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public long getHits() {
+    return hits;
+  }
+
+  public long getMisses() {
+    return misses;
+  }
+
+  public long getEvictions() {
+    return evictions;
+  }
+
+  public double getHitRate() {
+    long lookups = hits + misses;
+    return lookups == 0 ? 0.0 : (double) hits / lookups;
+  }
+
+  public void resetCounters() {
+    hits = 0;
+    misses = 0;
+    evictions = 0;
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+      Locale.ROOT,
+      "EvalCache[capacity=%d, size=%d, hits=%d, misses=%d, " +
+      "hitRate=%.3f, evictions=%d]",
+      keys.length,
+      size,
+      hits,
+      misses,
+      getHitRate(),
+      evictions
+    );
+  }
+
+  private void store(int slot, long key, double value) {
+    keys[slot] = key;
+    values[slot] = value;
+    states[slot] = PRESENT;
+  }
+
+  private int index(long key) {
+    // Keys are already well mixed, fold the high bits in anyway
+    return (int) (key ^ (key >>> 32)) & mask;
+  }
+}
@@ -0,0 +1,433 @@
+package org;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import javax.imageio.ImageIO;
+
+// Renders a replay to video frames without a display. The replay runs on
+// a headless engine; at every frame time the game is drawn by the same
+// GameRenderer the window uses into one of a small pool of offscreen
+// images, which a background thread hands to a Sink (PNG files, raw RGB
+// for a video encoder). When the encoder falls behind, rendering waits for
+// a free image, so memory stays at the pool size however long the replay.
+// A time range renders only part of a game, e.g. for highlights.
+//
+// Usage: FrameExporter <replay.trpl> (--png DIR | --raw FILE|- |
+//                      --ffmpeg OUT.mp4) [--fps N] [--from S] [--to S]
+//                      [--pool N]
+public class FrameExporter {
+
+  // Receives frames in order on the encoder thread. The image goes back to
+  // the pool when write returns, so it must not be kept.
+  public interface Sink {
+    void write(BufferedImage frame, long index) throws IOException;
+
+    void close() throws IOException;
+  }
+
+  public static final int DEFAULT_FPS = 60;
+  public static final int DEFAULT_POOL = 4;
+
+  // Tells the encoder thread that no more frames are coming
+  private static final BufferedImage END = new BufferedImage(
+    1,
+    1,
+    BufferedImage.TYPE_INT_RGB
+  );
+
+  private final int fps;
+  private final int poolSize;
+  private long fromNanos;
+  private long toNanos = Long.MAX_VALUE;
+
+  // Per export
+  private GameRenderer renderer;
+  private BlockingQueue<BufferedImage> free;
+  private BlockingQueue<BufferedImage> filled;
+  private Encoder encoder;
+  private GameEngine engine;
+  private long frameTick; // frames due so far, drawn or outside the range
+  private long gameNanos; // engine time of the next frame
+  private long untilFrame; // engine time left until then
+  private long frames;
+  private long renderNanos;
+  private long waitNanos;
+
+  public FrameExporter() {
+    this(DEFAULT_FPS, DEFAULT_POOL);
+  }
+
+  public FrameExporter(int fps, int poolSize) {
+    if (fps < 1 || poolSize < 1) {
+      throw new IllegalArgumentException("Fps " + fps + ", pool " + poolSize);
+    }
+    this.fps = fps;
+    this.poolSize = poolSize;
+  }
+
+  // Only frames at game times from fromNanos to toNanos are written
+  public void setRange(long fromNanos, long toNanos) {
+    this.fromNanos = fromNanos;
+    this.toNanos = toNanos;
+  }
+
+  // Writes a frame for every 1/fps of the replay and closes the sink;
+  // returns the number of frames written
+  public long export(Replay replay, Sink sink)
+    throws IOException, InterruptedException {
+    int width = replay.getWidth();
+    int height = replay.getHeight();
+    renderer = new GameRenderer(width, height);
+    free = new ArrayBlockingQueue<BufferedImage>(poolSize);
+    filled = new ArrayBlockingQueue<BufferedImage>(poolSize + 1);
+    for (int i = 0; i < poolSize; i++) {
+      free.add(
+        new BufferedImage(
+          renderer.getWidth(),
+          renderer.getHeight(),
+          BufferedImage.TYPE_INT_RGB
+        )
+      );
+    }
+    encoder = new Encoder(sink, free, filled);
+    Thread thread = new Thread(encoder, "tetris-encoder");
+    thread.setDaemon(true);
+    thread.start();
+
+    frames = 0;
+    renderNanos = 0;
+    waitNanos = 0;
+    try {
+      engine = ReplayPlayer.newEngine(replay);
+      frameTick = 0;
+      gameNanos = 0;
+      frame();
+      for (int i = 0; i < replay.getEventCount() && !isDone(); i++) {
+        advance(replay.getDeltaNanos(i));
+        engine.step(replay.getInput(i), 0);
+      }
+      if (!isDone()) advance(replay.getTrailingNanos());
+    } finally {
+      filled.put(END);
+      thread.join();
+      engine = null;
+    }
+    if (encoder.failure != null) throw encoder.failure;
+    return frames;
+  }
+
+  private boolean isDone() {
+    return gameNanos > toNanos || encoder.failure != null;
+  }
+
+  // Runs the engine for nanos, drawing every frame that falls inside
+  private void advance(long nanos) throws InterruptedException {
+    while (nanos >= untilFrame) {
+      engine.step(GameInput.NONE, untilFrame);
+      nanos -= untilFrame;
+      frame();
+      if (isDone()) return;
+    }
+    engine.step(GameInput.NONE, nanos);
+    untilFrame -= nanos;
+  }
+
+  // Draws the game as it is now, if it is inside the range, and schedules
+  // the next frame
+  private void frame() throws InterruptedException {
+    if (gameNanos >= fromNanos && gameNanos <= toNanos) {
+      long start = System.nanoTime();
+      BufferedImage image = free.take();
+      long took = System.nanoTime();
+      waitNanos += took - start;
+      Graphics2D g = image.createGraphics();
+      try {
+        g.setColor(GameRenderer.BACKGROUND);
+        g.fillRect(0, 0, image.getWidth(), image.getHeight());
+        renderer.paint(g, engine);
+      } finally {
+        g.dispose();
+      }
+      renderNanos += System.nanoTime() - took;
+      filled.put(image);
+      frames++;
+    }
+    // Exact frame times, so rounding never drifts over a long game
+    long next = ++frameTick * 1_000_000_000L / fps;
+    untilFrame = next - gameNanos;
+    gameNanos = next;
+  }
+
+  public int getFps() {
+    return fps;
+  }
+
+  // Statistics of the last export
+  public long getFrames() {
+    return frames;
+  }
+
+  public long getRenderNanos() {
+    return renderNanos;
+  }
+
+  // Time rendering waited for the encoder to free an image
+  public long getWaitNanos() {
+    return waitNanos;
+  }
+
+  public long getEncodeNanos() {
+    return encoder == null ? 0 : encoder.encodeNanos;
+  }
+
+  // Writes filled images to the sink and returns them to the pool. After a
+  // failure it keeps recycling images, so rendering never blocks on it.
+  private static final class Encoder implements Runnable {
+
+    final Sink sink;
+    final BlockingQueue<BufferedImage> free;
+    final BlockingQueue<BufferedImage> filled;
+    volatile IOException failure;
+    long encodeNanos;
+
+    Encoder(
+      Sink sink,
+      BlockingQueue<BufferedImage> free,
+      BlockingQueue<BufferedImage> filled
+    ) {
+      this.sink = sink;
+      this.free = free;
+      this.filled = filled;
+    }
+
+    public void run() {
+      long index = 0;
+      try {
+        while (true) {
+          BufferedImage image = filled.take();
+          if (image == END) break;
+          if (failure == null) {
+            long start = System.nanoTime();
+            try {
+              sink.write(image, index++);
+            } catch (IOException e) {
+              failure = e;
+            } catch (RuntimeException e) {
+              failure = new IOException(e);
+            }
+            encodeNanos += System.nanoTime() - start;
+          }
+          free.put(image);
+        }
+      } catch (InterruptedException e) {
+        failure = new IOException("Encoder interrupted");
+      } finally {
+        try {
+          sink.close();
+        } catch (IOException e) {
+          if (failure == null) failure = e;
+        }
+      }
+    }
+  }
+
+  // One PNG file per frame: frame-000000.png, frame-000001.png, ...
+  public static final class PngSequence implements Sink {
+
+    private final Path dir;
+
+    public PngSequence(Path dir) throws IOException {
+      this.dir = Files.createDirectories(dir);
+    }
+
+    public void write(BufferedImage frame, long index) throws IOException {
+      String name = String.format("frame-%06d.png", index);
+      if (!ImageIO.write(frame, "png", dir.resolve(name).toFile())) {
+        throw new IOException("No PNG writer");
+      }
+    }
+
+    public void close() {}
+  }
+
+  // Packed 24-bit RGB, top row first, frame after frame: what video
+  // encoders read as rawvideo / rgb24
+  public static final class RawVideo implements Sink {
+
+    private final OutputStream out;
+    private final Process process; // ffmpeg, or null
+    private byte[] row = new byte[0];
+
+    public RawVideo(OutputStream out) {
+      this(out, null);
+    }
+
+    private RawVideo(OutputStream out, Process process) {
+      this.out = out;
+      this.process = process;
+    }
+
+    // Pipes the frames into a local ffmpeg that writes output
+    public static RawVideo ffmpeg(String output, int width, int height, int fps)
+      throws IOException {
+      Process process = new ProcessBuilder(
+        "ffmpeg",
+        "-loglevel",
+        "error",
+        "-y",
+        "-f",
+        "rawvideo",
+        "-pix_fmt",
+        "rgb24",
+        "-s",
+        width + "x" + height,
+        "-r",
+        String.valueOf(fps),
+        "-i",
+        "-",
+        "-pix_fmt",
+        "yuv420p",
+        output
+      )
+        .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+        .redirectError(ProcessBuilder.Redirect.INHERIT)
+        .start();
+      return new RawVideo(
+        new BufferedOutputStream(process.getOutputStream(), 1 << 16),
+        process
+      );
+    }
+
+    public void write(BufferedImage frame, long index) throws IOException {
+      int width = frame.getWidth();
+      if (row.length != width * 3) row = new byte[width * 3];
+      int[] pixels = ((DataBufferInt) frame.getRaster().getDataBuffer())
+        .getData();
+      for (int y = 0; y < frame.getHeight(); y++) {
+        int offset = y * width;
+        for (int x = 0; x < width; x++) {
+          int rgb = pixels[offset + x];
+          row[3 * x] = (byte) (rgb >> 16);
+          row[3 * x + 1] = (byte) (rgb >> 8);
+          row[3 * x + 2] = (byte) rgb;
+        }
+        out.write(row);
+      }
+    }
+
+    public void close() throws IOException {
+      out.close();
+      if (process == null) return;
+      try {
+        int code = process.waitFor();
+        if (code != 0) throw new IOException("ffmpeg exited with " + code);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted waiting for ffmpeg");
+      }
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+    if (args.length < 1) {
+      System.err.println(
+        "Usage: FrameExporter <replay.trpl> (--png DIR | --raw FILE|- | " +
+        "--ffmpeg OUT.mp4) [--fps N] [--from S] [--to S] [--pool N]"
+      );
+      System.exit(2);
+    }
+    String png = null;
+    String raw = null;
+    String video = null;
+    int fps = DEFAULT_FPS;
+    int pool = DEFAULT_POOL;
+    double from = 0;
+    double to = Double.MAX_VALUE;
+    for (int i = 1; i < args.length; i++) {
+      if (i + 1 >= args.length) {
+        throw new IllegalArgumentException("Missing value for " + args[i]);
+      }
+      String value = args[++i];
+      switch (args[i - 1]) {
+        case "--png":
+          png = value;
+          break;
+        case "--raw":
+          raw = value;
+          break;
+        case "--ffmpeg":
+          video = value;
+          break;
+        case "--fps":
+          fps = Integer.parseInt(value);
+          break;
+        case "--from":
+          from = Double.parseDouble(value);
+          break;
+        case "--to":
+          to = Double.parseDouble(value);
+          break;
+        case "--pool":
+          pool = Integer.parseInt(value);
+          break;
+        default:
+          throw new IllegalArgumentException("Unknown option " + args[i - 1]);
+      }
+    }
+
+    Replay replay;
+    InputStream in = new BufferedInputStream(new FileInputStream(args[0]));
+    try {
+      replay = Replay.read(in);
+    } finally {
+      in.close();
+    }
+    FrameExporter exporter = new FrameExporter(fps, pool);
+    exporter.setRange((long) (from * 1e9), (long) Math.min(to * 1e9, 9e18));
+    GameRenderer size = new GameRenderer(replay.getWidth(), replay.getHeight());
+    Sink sink;
+    if (png != null) {
+      sink = new PngSequence(Paths.get(png));
+    } else if (video != null) {
+      sink = RawVideo.ffmpeg(video, size.getWidth(), size.getHeight(), fps);
+    } else if (raw != null) {
+      OutputStream out = raw.equals("-")
+        ? System.out
+        : new FileOutputStream(raw);
+      sink = new RawVideo(new BufferedOutputStream(out, 1 << 16));
+    } else {
+      throw new IllegalArgumentException("Pick --png, --raw or --ffmpeg");
+    }
+
+    long start = System.nanoTime();
+    long frames = exporter.export(replay, sink);
+    double wall = (System.nanoTime() - start) / 1e9;
+    double shown = frames / (double) fps;
+    System.err.printf(
+      "%d frames (%dx%d, %.1f s of game) in %.2f s, %.1fx real time; " +
+      "render %.2f ms/frame, encode %.2f ms/frame, waited %.2f s%n",
+      frames,
+      size.getWidth(),
+      size.getHeight(),
+      shown,
+      wall,
+      shown / wall,
+      exporter.getRenderNanos() / 1e6 / Math.max(1, frames),
+      exporter.getEncodeNanos() / 1e6 / Math.max(1, frames),
+      exporter.getWaitNanos() / 1e9
+    );
+  }
+}
@@ -0,0 +1,168 @@
+package org;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.swing.JFrame;
+import javax.swing.SwingUtilities;
+
+// Opens the game window with a bot placing a piece every 250 ms and reports
+// frame rate, frame intervals, paint times and process CPU, to compare the
+// Swing and active rendering paths on a given machine. Needs a display; on
+// a headless box run it under Xvfb:
+//
+//   xvfb-run -s "-screen 0 1280x1024x24" java -cp target/classes \
+//     org.FrameTimeHarness --render active --seconds 20
+//
+// Usage: FrameTimeHarness [--render swing|active] [--fps F] [--seconds S]
+public class FrameTimeHarness {
+
+  private static final long WARMUP_NANOS = 2_000_000_000L;
+  private static final long PIECE_NANOS = 250_000_000L;
+
+  public static void main(String[] args) throws Exception {
+    String render = "swing";
+    int seconds = 10;
+    for (int i = 0; i < args.length; i++) {
+      if (i + 1 >= args.length) {
+        throw new IllegalArgumentException("Missing value for " + args[i]);
+      }
+      String value = args[++i];
+      switch (args[i - 1]) {
+        case "--render":
+          render = value;
+          break;
+        case "--fps":
+          System.setProperty("tetris.fps", value);
+          break;
+        case "--seconds":
+          seconds = Integer.parseInt(value);
+          break;
+        default:
+          throw new IllegalArgumentException("Unknown option " + args[i - 1]);
+      }
+    }
+    System.setProperty("tetris.render", render);
+    Result result = run(seconds * 1_000_000_000L);
+    System.out.println(render + ": " + result);
+    System.exit(0);
+  }
+
+  // Frame statistics for one run of durationNanos after a short warm-up
+  public static Result run(long durationNanos) throws Exception {
+    final AtomicReference<TetrisPanel> panelRef =
+      new AtomicReference<TetrisPanel>();
+    final AtomicReference<JFrame> frameRef = new AtomicReference<JFrame>();
+    SwingUtilities.invokeAndWait(
+      new Runnable() {
+        public void run() {
+          JFrame frame = new JFrame("Tetris frame times");
+          TetrisPanel panel = new TetrisPanel();
+          frame.setContentPane(panel);
+          frame.pack();
+          frame.setVisible(true);
+          panelRef.set(panel);
+          frameRef.set(frame);
+        }
+      }
+    );
+    TetrisPanel panel = panelRef.get();
+    GameEngine engine = panel.getEngine();
+    Bot bot = new Bot(Heuristic.DEFAULT, 0);
+
+    long start = System.nanoTime();
+    long measureFrom = start + WARMUP_NANOS;
+    long end = measureFrom + durationNanos;
+    boolean measuring = false;
+    long cpuStart = 0;
+    while (System.nanoTime() < end) {
+      Thread.sleep(PIECE_NANOS / 1_000_000L);
+      synchronized (engine) {
+        if (engine.isGameOver()) {
+          engine.step(GameInput.RESTART, 0);
+        } else {
+          bot.playPiece(engine);
+        }
+      }
+      if (!measuring && System.nanoTime() >= measureFrom) {
+        measuring = true;
+        cpuStart = cpuNanos();
+        panel.getMetrics().reset();
+        frameStats(panel).reset();
+        measureFrom = System.nanoTime();
+      }
+    }
+    long wall = System.nanoTime() - measureFrom;
+    Result result = new Result(
+      panel.getCanvas() != null,
+      panel.getMetrics().getPaints() * 1e9 / wall,
+      frameStats(panel).toString(),
+      panel.getMetrics().getPaintMeanMicros(),
+      panel.getMetrics().getPaintP99Micros(),
+      (cpuNanos() - cpuStart) * 100.0 / wall
+    );
+    final JFrame frame = frameRef.get();
+    SwingUtilities.invokeAndWait(
+      new Runnable() {
+        public void run() {
+          frame.dispose();
+        }
+      }
+    );
+    return result;
+  }
+
+  // Shown frames for the canvas, render requests for the Swing path
+  private static TimingStats frameStats(TetrisPanel panel) {
+    GameCanvas canvas = panel.getCanvas();
+    return canvas != null
+      ? canvas.getFrameStats()
+      : panel.getLoop().getFrameStats();
+  }
+
+  private static long cpuNanos() {
+    return ProcessHandle.current()
+      .info()
+      .totalCpuDuration()
+      .orElse(Duration.ZERO)
+      .toNanos();
+  }
+
+  public static final class Result {
+
+    public final boolean active;
+    public final double fps;
+    public final String frames;
+    public final double paintMeanMicros;
+    public final double paintP99Micros;
+    public final double cpuPercent;
+
+    Result(
+      boolean active,
+      double fps,
+      String frames,
+      double paintMeanMicros,
+      double paintP99Micros,
+      double cpuPercent
+    ) {
+      this.active = active;
+      this.fps = fps;
+      this.frames = frames;
+      this.paintMeanMicros = paintMeanMicros;
+      this.paintP99Micros = paintP99Micros;
+      this.cpuPercent = cpuPercent;
+    }
+
+    @Override
+    public String toString() {
+      return String.format(
+        "%s %.1f fps, frames %s, paint mean %.0fus p99 %.0fus, cpu %.1f%%",
+        active ? "canvas" : "swing",
+        fps,
+        frames,
+        paintMeanMicros,
+        paintP99Micros,
+        cpuPercent
+      );
+    }
+  }
+}
@@ -0,0 +1,64 @@
+package org;
+
+import java.util.List;
+
+public interface GameBoard {
+  // Cell value of garbage rows, after the ordinals of Tetromino.Type
+  int GARBAGE = 7;
+
+  void reset();
+
+  int getWidth(); // columns
+
+  int getHeight(); // rows
+
+  int getCell(int x, int y); // -1 = empty, GARBAGE or ordinal of Tetromino.Type
+
+  boolean canPlace(Tetromino piece, int px, int py);
+
+  // Filled height of column x measured from the bottom, 0 if empty
+  int getColumnHeight(int x);
+
+  // Rows a piece at a valid position can fall before it lands
+  int dropDistance(Tetromino piece, int px, int py);
+
+  void lockPiece(Tetromino piece, int px, int py);
+
+  List<Integer> getCompletedLines();
+
+  int clearCompletedLines();
+
+  // Removes every full row in one pass; result is packed, see LineClear
+  long clearLines();
+
+  void removeLines(List<Integer> lines);
+
+  // Height of the tallest column; a push of more than getHeight() minus
+  // this many rows tops out
+  int getStackHeight();
+
+  // Pushes the stack up count rows, leaving the bottom count rows empty.
+  // False if that pushed filled cells off the top (a top-out).
+  boolean shiftUp(int count);
+
+  // Pushes the stack up count rows and fills the bottom count rows with
+  // garbage except for column hole, which must be on the board. False if
+  // that pushed filled cells off the top (a top-out).
+  boolean addGarbage(int count, int hole);
+
+  // Like count calls of addGarbage(1, hole) with holes[offset] first (it
+  // ends up highest), but the stack moves once
+  boolean addGarbage(int[] holes, int offset, int count);
+
+  // Zobrist hash of the occupied cells, kept up to date incrementally
+  long getHash();
+
+  // Longs used by a snapshot: four bits per cell (0 = empty, otherwise
+  // cell value + 1), then the hash
+  int getSnapshotLongs();
+
+  // Packs the cells into getSnapshotLongs() longs of out from offset
+  void saveTo(long[] out, int offset);
+
+  void restoreFrom(long[] in, int offset);
+}
@@ -0,0 +1,172 @@
+package org;
+
+import java.awt.Canvas;
+import java.awt.Dimension;
+import java.awt.DisplayMode;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Toolkit;
+import java.awt.image.BufferStrategy;
+import java.util.concurrent.locks.LockSupport;
+
+// Active rendering: a heavyweight Canvas drawn through a BufferStrategy
+// (accelerated VolatileImage back buffers where the pipeline has them) by a
+// dedicated thread, instead of Swing's repaint queue and double buffer.
+// Once per display refresh the thread runs a GameLoop frame, which calls
+// render() from the same thread, then sleeps until the next refresh. The
+// canvas never takes focus, so key bindings stay on the enclosing panel.
+public class GameCanvas extends Canvas {
+
+  private static final long serialVersionUID = 1L;
+
+  private static final int DEFAULT_REFRESH = 60;
+
+  private final GameEngine engine;
+  private final GameRenderer renderer;
+  private final GameLoop loop;
+  private Metrics metrics;
+  private volatile boolean showMetrics;
+
+  private final TimingStats frameStats = new TimingStats();
+  private final TimingStats renderStats = new TimingStats();
+  private BufferStrategy strategy;
+  private volatile Thread thread;
+  private long periodNanos;
+  private long lastShownNanos;
+
+  public GameCanvas(GameEngine engine, GameRenderer renderer, GameLoop loop) {
+    this.engine = engine;
+    this.renderer = renderer;
+    this.loop = loop;
+    setIgnoreRepaint(true);
+    setFocusable(false);
+    setBackground(GameRenderer.BACKGROUND);
+    setPreferredSize(
+      new Dimension(renderer.getWidth(), renderer.getHeight())
+    );
+  }
+
+  public void setMetrics(Metrics metrics) {
+    this.metrics = metrics;
+  }
+
+  public void setShowMetrics(boolean show) {
+    showMetrics = show;
+  }
+
+  // Creates the buffers and starts the render thread at fps frames per
+  // second, or the display's refresh rate if fps is 0. Must be called on
+  // the event thread once the canvas is displayable; false if no buffer
+  // strategy could be made, so the caller can keep painting through Swing.
+  public boolean start(int fps) {
+    if (thread != null) return true;
+    try {
+      createBufferStrategy(2);
+      strategy = getBufferStrategy();
+    } catch (RuntimeException e) {
+      System.err.println("No buffer strategy: " + e.getMessage());
+      return false;
+    }
+    if (strategy == null) return false;
+    int rate = fps > 0 ? fps : refreshRate(getGraphicsConfiguration());
+    periodNanos = 1_000_000_000L / rate;
+    frameStats.reset();
+    renderStats.reset();
+    loop.startExternal();
+    Thread t = new Thread(
+      new Runnable() {
+        public void run() {
+          runFrames();
+        }
+      },
+      "tetris-render"
+    );
+    t.setDaemon(true);
+    thread = t;
+    t.start();
+    return true;
+  }
+
+  public void stop() {
+    Thread t = thread;
+    thread = null;
+    if (t == null) return;
+    t.interrupt();
+    try {
+      t.join(1000);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  @Override
+  public void removeNotify() {
+    stop(); // the buffers go away with the peer
+    super.removeNotify();
+  }
+
+  // Draws and shows one frame; called by the loop from the render thread
+  public void render() {
+    long start = System.nanoTime();
+    do {
+      do {
+        Graphics2D g = (Graphics2D) strategy.getDrawGraphics();
+        try {
+          synchronized (engine) {
+            renderer.paint(g, engine);
+          }
+          if (showMetrics && metrics != null) {
+            renderer.paintMetrics(g, metrics);
+          }
+        } finally {
+          g.dispose();
+        }
+      } while (strategy.contentsRestored());
+      strategy.show();
+    } while (strategy.contentsLost());
+    // Flushes the X11 command queue so the frame appears now
+    Toolkit.getDefaultToolkit().sync();
+
+    long end = System.nanoTime();
+    renderStats.record(end - start);
+    if (lastShownNanos != 0) frameStats.record(end - lastShownNanos);
+    lastShownNanos = end;
+    if (metrics != null) {
+      metrics.recordPaint(end - start);
+      metrics.markRendered(end);
+    }
+  }
+
+  private void runFrames() {
+    long next = System.nanoTime();
+    while (thread == Thread.currentThread()) {
+      loop.runFrame();
+      next += periodNanos;
+      long wait = next - System.nanoTime();
+      if (wait < -periodNanos) {
+        // Missed more than a frame: start counting again from now
+        next = System.nanoTime();
+      } else if (wait > 0) {
+        LockSupport.parkNanos(wait);
+      }
+      if (Thread.interrupted()) break;
+    }
+  }
+
+  static int refreshRate(GraphicsConfiguration config) {
+    if (config == null) return DEFAULT_REFRESH;
+    DisplayMode mode = config.getDevice().getDisplayMode();
+    int rate = mode.getRefreshRate();
+    return rate == DisplayMode.REFRESH_RATE_UNKNOWN ? DEFAULT_REFRESH : rate;
+  }
+
+  // Intervals between shown frames
+  public TimingStats getFrameStats() {
+    return frameStats;
+  }
+
+  // Time to draw and show each frame
+  public TimingStats getRenderStats() {
+    return renderStats;
+  }
+}
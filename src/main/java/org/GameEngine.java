@@ -0,0 +1,544 @@
+package org;
+
+import java.util.List;
+import java.util.SplittableRandom;
+
+// All game rules with no dependency on Swing: the caller supplies inputs and
+// elapsed time, so the same engine runs in the UI or headless at any speed.
+public class GameEngine {
+
+  private static final long NANOS_PER_MS = 1_000_000L;
+  private static final int SOFT_DROP_DELAY_MS = 50;
+
+  static final int SPAWN_Y = -2; // spawn slightly above
+
+  // Held left/right: first repeat after DAS_NANOS, then every ARR_NANOS
+  static final long DAS_NANOS = 167_000_000L;
+  static final long ARR_NANOS = 33_000_000L;
+
+  // Battle modes: garbage lines sent for clearing 0 to 4 lines at once
+  static final int[] ATTACK = { 0, 0, 1, 2, 4 };
+  private static final int GARBAGE_QUEUE = 16;
+
+  // Longs saveTo writes after the board: score, queue position, piece and
+  // input state, gravity and auto-shift time
+  private static final int STATE_LONGS = 6;
+
+  private static final Tetromino.Type[] TYPES = Tetromino.Type.values();
+
+  private final long seed;
+  private final GameBoard board;
+  private final PieceFactory factory;
+  private final Scoreboard score = new Scoreboard();
+
+  private RotationSystem rotation = RotationSystem.SRS;
+  private Tetromino current;
+  private int pieceX;
+  private int pieceY; // can be negative during spawn
+
+  private boolean gameOver = false;
+  private boolean softDropping = false;
+  private long fallAccumulatorNanos = 0;
+  private boolean leftHeld;
+  private boolean rightHeld;
+  private int shiftDirection; // -1 left, 1 right, 0 none; last pressed wins
+  private long shiftHeldNanos; // time the current direction has been held
+  private long shiftDueNanos; // held time of the next auto-shift move
+  private long lastLineClear = LineClear.NONE; // for scoring and animations
+  private int boardVersion = 0; // bumped whenever locked cells change
+  private long moveCount; // successful moves and rotations
+  private long playNanos; // engine time this game has run, not in snapshots
+
+  // Garbage received but not yet raised, oldest first
+  private final int[] garbageLines = new int[GARBAGE_QUEUE];
+  private final int[] garbageHole = new int[GARBAGE_QUEUE];
+  private int garbageEntries;
+  private int pendingGarbage; // lines in the queue
+  private final int[] garbageHoles; // one per row raised, sized to the board
+  private int outgoingAttack; // lines sent but not yet collected
+
+  // Cached ghost drop distance and the state it was computed for
+  private Tetromino ghostPiece; // shared per type and rotation
+  private int ghostX;
+  private int ghostY;
+  private int ghostVersion;
+  private int ghostDrop;
+
+  private ReplayRecorder recorder;
+  private UndoHistory history;
+  private Metrics metrics;
+
+  public GameEngine() {
+    this(new SplittableRandom().nextLong());
+  }
+
+  public GameEngine(long seed) {
+    this(new BitBoard(), new PieceFactory(seed), seed);
+  }
+
+  public GameEngine(long seed, int width, int height) {
+    this(new BitBoard(width, height), new PieceFactory(seed), seed);
+  }
+
+  public GameEngine(GameBoard board, PieceFactory factory, long seed) {
+    this.seed = seed;
+    this.board = board;
+    this.factory = factory;
+    garbageHoles = new int[board.getHeight()];
+    startGame();
+  }
+
+  public void startGame() {
+    board.reset();
+    factory.reset();
+    score.reset();
+    gameOver = false;
+    softDropping = false;
+    fallAccumulatorNanos = 0;
+    lastLineClear = LineClear.NONE;
+    garbageEntries = 0;
+    pendingGarbage = 0;
+    outgoingAttack = 0;
+    playNanos = 0;
+    boardVersion++;
+    if (history != null) history.clear();
+    spawnNext();
+  }
+
+  // Applies the input flags (see GameInput) and then advances gravity
+  public void step(int input, long elapsedNanos) {
+    // Without history undo and redo do nothing, so they are not recorded
+    if (history == null) input &= ~(GameInput.UNDO | GameInput.REDO);
+    if (recorder != null) recorder.record(input, elapsedNanos);
+    if ((input & GameInput.RESTART) != 0) startGame();
+    if ((input & GameInput.UNDO) != 0) undo();
+    if ((input & GameInput.REDO) != 0) redo();
+    if ((input & GameInput.SOFT_DROP_PRESS) != 0) setSoftDropping(true);
+    if ((input & GameInput.SOFT_DROP_RELEASE) != 0) setSoftDropping(false);
+    if ((input & GameInput.MOVE_LEFT) != 0) moveLeft();
+    if ((input & GameInput.MOVE_RIGHT) != 0) moveRight();
+    if ((input & GameInput.LEFT_PRESS) != 0) pressShift(-1);
+    if ((input & GameInput.LEFT_RELEASE) != 0) releaseShift(-1);
+    if ((input & GameInput.RIGHT_PRESS) != 0) pressShift(1);
+    if ((input & GameInput.RIGHT_RELEASE) != 0) releaseShift(1);
+    if ((input & GameInput.ROTATE_CW) != 0) rotateCW();
+    if ((input & GameInput.ROTATE_CCW) != 0) rotateCCW();
+    if ((input & GameInput.HARD_DROP) != 0) hardDrop();
+    advance(elapsedNanos);
+  }
+
+  // Runs every gravity step and auto-shift move that is due, in time order,
+  // carrying leftover time forward so long or uneven frames never drop,
+  // delay or reorder them.
+  private void advance(long elapsedNanos) {
+    if (!gameOver) playNanos += elapsedNanos;
+    long remaining = elapsedNanos;
+    while (!gameOver) {
+      long toFall = getFallDelayNanos() - fallAccumulatorNanos;
+      long toShift = shiftDirection != 0
+        ? shiftDueNanos - shiftHeldNanos
+        : Long.MAX_VALUE;
+      long next = Math.max(0L, Math.min(toFall, toShift));
+      if (next > remaining) {
+        passTime(remaining);
+        return;
+      }
+      passTime(next);
+      remaining -= next;
+      if (toShift <= toFall) {
+        tryMove(shiftDirection, 0);
+        shiftDueNanos += ARR_NANOS;
+        continue;
+      }
+      fallAccumulatorNanos -= getFallDelayNanos();
+      // Attempt to step down
+      boolean moved = tryMove(0, 1);
+      if (!moved) {
+        lockCurrent();
+      } else if (softDropping) {
+        score.addSoftDrop(1);
+      }
+    }
+  }
+
+  private void passTime(long nanos) {
+    fallAccumulatorNanos += nanos;
+    if (shiftDirection != 0) shiftHeldNanos += nanos;
+  }
+
+  private void pressShift(int direction) {
+    if (direction < 0) leftHeld = true;
+    else rightHeld = true;
+    shiftDirection = direction;
+    shiftHeldNanos = 0;
+    shiftDueNanos = DAS_NANOS;
+    if (!gameOver) tryMove(direction, 0);
+  }
+
+  private void releaseShift(int direction) {
+    if (direction < 0) leftHeld = false;
+    else rightHeld = false;
+    if (shiftDirection != direction) return;
+    // The other key may still be down: it takes over with a fresh delay
+    shiftDirection = (direction < 0 ? rightHeld : leftHeld) ? -direction : 0;
+    shiftHeldNanos = 0;
+    shiftDueNanos = DAS_NANOS;
+  }
+
+  private long getFallDelayNanos() {
+    int delayMs = softDropping ? SOFT_DROP_DELAY_MS : score.getFallDelayMs();
+    return delayMs * NANOS_PER_MS;
+  }
+
+  public void moveLeft() {
+    if (gameOver) return;
+    tryMove(-1, 0);
+  }
+
+  public void moveRight() {
+    if (gameOver) return;
+    tryMove(1, 0);
+  }
+
+  public void rotateCW() {
+    if (gameOver) return;
+    tryRotate(true);
+  }
+
+  public void rotateCCW() {
+    if (gameOver) return;
+    tryRotate(false);
+  }
+
+  public void setSoftDropping(boolean val) {
+    if (gameOver) return;
+    softDropping = val;
+    // Time saved up at normal speed must not turn into a burst of soft drops
+    long delay = getFallDelayNanos();
+    if (fallAccumulatorNanos > delay) fallAccumulatorNanos = delay;
+  }
+
+  public void hardDrop() {
+    if (gameOver) return;
+    int dist = getDropDistance();
+    if (dist > 0) {
+      pieceY += dist;
+      score.addHardDrop(dist);
+    }
+    lockCurrent();
+  }
+
+  private void spawnNext() {
+    current = factory.nextPiece();
+    pieceX = spawnX(board.getWidth());
+    pieceY = SPAWN_Y;
+    if (!board.canPlace(current, pieceX, pieceY)) {
+      gameOver = true;
+    }
+    if (history != null) history.record(this);
+  }
+
+  // Locks the current piece, clears lines and spawns the next one
+  private void lockCurrent() {
+    board.lockPiece(current, pieceX, pieceY);
+    boardVersion++;
+    boolean toppedOut = pieceY + current.getMinY() < 0;
+    lastLineClear = board.clearLines();
+    int cleared = LineClear.count(lastLineClear);
+    if (cleared > 0) {
+      score.addLines(cleared);
+      // Clears first cancel incoming garbage, the rest is sent on
+      outgoingAttack += cancelGarbage(ATTACK[Math.min(cleared, 4)]);
+    } else if (garbageEntries > 0 && !raiseGarbage()) {
+      toppedOut = true;
+    }
+    if (metrics != null) metrics.recordLock(cleared);
+    if (toppedOut) {
+      gameOver = true;
+    } else {
+      spawnNext();
+    }
+  }
+
+  // Battle modes: queues garbage that rises after the next lock which
+  // clears no lines
+  public void receiveGarbage(int lines, int hole) {
+    if (hole < 0 || hole >= board.getWidth()) {
+      throw new IllegalArgumentException("Garbage hole " + hole);
+    }
+    // Anything past the board height tops out anyway, so the total only
+    // has to stay countable
+    lines = Math.min(lines, Integer.MAX_VALUE - pendingGarbage);
+    if (lines <= 0) return;
+    if (garbageEntries == GARBAGE_QUEUE) {
+      // Full: the newest entry absorbs the lines
+      garbageLines[GARBAGE_QUEUE - 1] += lines;
+    } else {
+      garbageLines[garbageEntries] = lines;
+      garbageHole[garbageEntries++] = hole;
+    }
+    pendingGarbage += lines;
+  }
+
+  // Lines this engine has sent since the last call
+  public int takeAttack() {
+    int lines = outgoingAttack;
+    outgoingAttack = 0;
+    return lines;
+  }
+
+  public int getPendingGarbage() {
+    return pendingGarbage;
+  }
+
+  // Removes up to lines queued garbage lines, oldest first; returns the
+  // lines that were not needed
+  private int cancelGarbage(int lines) {
+    int drop = 0;
+    while (drop < garbageEntries && lines > 0) {
+      int queued = garbageLines[drop];
+      int used = Math.min(queued, lines);
+      lines -= used;
+      pendingGarbage -= used;
+      if (used < queued) {
+        garbageLines[drop] -= used;
+      } else {
+        drop++;
+      }
+    }
+    int left = garbageEntries - drop;
+    System.arraycopy(garbageLines, drop, garbageLines, 0, left);
+    System.arraycopy(garbageHole, drop, garbageHole, 0, left);
+    garbageEntries -= drop;
+    return lines;
+  }
+
+  // Raises every queued line in one push of the stack; false if the
+  // garbage pushed blocks off the top
+  private boolean raiseGarbage() {
+    // Lines beyond the board height would go straight off the top
+    int skip = Math.max(0, pendingGarbage - garbageHoles.length);
+    int n = 0;
+    for (int i = 0; i < garbageEntries; i++) {
+      int skipped = Math.min(skip, garbageLines[i]);
+      skip -= skipped;
+      for (int lines = garbageLines[i] - skipped; lines > 0; lines--) {
+        garbageHoles[n++] = garbageHole[i];
+      }
+    }
+    boolean fits =
+      board.addGarbage(garbageHoles, 0, n) &&
+      pendingGarbage <= garbageHoles.length;
+    garbageEntries = 0;
+    pendingGarbage = 0;
+    return fits;
+  }
+
+  private boolean tryMove(int dx, int dy) {
+    if (current == null) return false;
+    int nx = pieceX + dx;
+    int ny = pieceY + dy;
+    if (board.canPlace(current, nx, ny)) {
+      pieceX = nx;
+      pieceY = ny;
+      moveCount++;
+      return true;
+    }
+    return false;
+  }
+
+  private void tryRotate(boolean cw) {
+    if (current == null) return;
+    // Rotate and try the rotation system's kicks; nothing changes if none fit
+    Tetromino rotated = cw ? current.rotatedCW() : current.rotatedCCW();
+    int kick = rotation.findKick(board, current, rotated, pieceX, pieceY);
+    if (kick >= 0) {
+      pieceX += rotation.kickX(current, rotated, kick);
+      pieceY += rotation.kickY(current, rotated, kick);
+      current = rotated;
+      moveCount++;
+    }
+  }
+
+  // Spawn column of the piece's 4x4 box, centered on a board this wide
+  static int spawnX(int width) {
+    return width / 2 - 2;
+  }
+
+  public int getSnapshotLongs() {
+    return board.getSnapshotLongs() + STATE_LONGS;
+  }
+
+  // Writes the game state (not the recorder, history or queued garbage)
+  // into getSnapshotLongs() longs of out starting at offset
+  public void saveTo(long[] out, int offset) {
+    board.saveTo(out, offset);
+    int i = offset + board.getSnapshotLongs();
+    out[i] = score.snapshot();
+    out[i + 1] = factory.mark();
+    out[i + 2] =
+      current.getType().ordinal() |
+      (long) current.getRotation() << 3 |
+      (gameOver ? 1L << 5 : 0L) |
+      (softDropping ? 1L << 6 : 0L) |
+      (leftHeld ? 1L << 7 : 0L) |
+      (rightHeld ? 1L << 8 : 0L) |
+      (long) (shiftDirection + 1) << 9 |
+      (long) (pieceX & 0xffff) << 16 |
+      (long) (pieceY & 0xffff) << 32;
+    out[i + 3] = fallAccumulatorNanos;
+    out[i + 4] = shiftHeldNanos;
+    out[i + 5] = shiftDueNanos;
+  }
+
+  // Restores a state written by saveTo. The piece queue must not have
+  // moved more than PieceFactory.HISTORY pieces past it; a state further
+  // ahead in the same piece sequence is fine.
+  public void restoreFrom(long[] in, int offset) {
+    board.restoreFrom(in, offset);
+    int i = offset + board.getSnapshotLongs();
+    score.restore(in[i]);
+    factory.seek(in[i + 1]);
+    long piece = in[i + 2];
+    current = Tetromino.of(TYPES[(int) (piece & 7)], (int) (piece >>> 3 & 3));
+    gameOver = (piece & 1L << 5) != 0;
+    softDropping = (piece & 1L << 6) != 0;
+    leftHeld = (piece & 1L << 7) != 0;
+    rightHeld = (piece & 1L << 8) != 0;
+    shiftDirection = (int) (piece >>> 9 & 3) - 1;
+    pieceX = (short) (piece >>> 16);
+    pieceY = (short) (piece >>> 32);
+    fallAccumulatorNanos = in[i + 3];
+    shiftHeldNanos = in[i + 4];
+    shiftDueNanos = in[i + 5];
+    lastLineClear = LineClear.NONE;
+    boardVersion++;
+  }
+
+  // Practice mode: snapshots every spawn so undo/redo can step between
+  // pieces. Starts from the current piece.
+  public void setUndoHistory(UndoHistory history) {
+    this.history = history;
+    if (history != null) {
+      history.clear();
+      history.record(this);
+    }
+  }
+
+  public UndoHistory getUndoHistory() {
+    return history;
+  }
+
+  // Back to the start of the previous piece; false without history
+  public boolean undo() {
+    return history != null && history.undo(this);
+  }
+
+  public boolean redo() {
+    return history != null && history.redo(this);
+  }
+
+  // Rows the current piece can fall before it lands (ghost position). Cached
+  // until the piece moves, rotates or the board changes.
+  public int getDropDistance() {
+    if (
+      ghostPiece != current ||
+      ghostX != pieceX ||
+      ghostY != pieceY ||
+      ghostVersion != boardVersion
+    ) {
+      ghostPiece = current;
+      ghostX = pieceX;
+      ghostY = pieceY;
+      ghostVersion = boardVersion;
+      ghostDrop = board.dropDistance(current, pieceX, pieceY);
+    }
+    return ghostDrop;
+  }
+
+  // Kicks used by later rotations, SRS unless set. Bots search with the
+  // same system, so they reach exactly the positions a player can.
+  public void setRotationSystem(RotationSystem rotation) {
+    this.rotation = rotation;
+  }
+
+  public RotationSystem getRotationSystem() {
+    return rotation;
+  }
+
+  // Records every later step; only inputs given through step() are captured
+  public void setRecorder(ReplayRecorder recorder) {
+    this.recorder = recorder;
+  }
+
+  public ReplayRecorder getRecorder() {
+    return recorder;
+  }
+
+  // Counts locked pieces and line clears
+  public void setMetrics(Metrics metrics) {
+    this.metrics = metrics;
+  }
+
+  // Seed the piece sequence was created from
+  public long getSeed() {
+    return seed;
+  }
+
+  public int getBoardVersion() {
+    return boardVersion;
+  }
+
+  // Changes whenever the piece moves or the board changes, so callers can
+  // tell whether an input had any visible effect
+  public long getChangeCount() {
+    return moveCount + boardVersion;
+  }
+
+  public GameBoard getBoard() {
+    return board;
+  }
+
+  public Scoreboard getScoreboard() {
+    return score;
+  }
+
+  public Tetromino getCurrent() {
+    return current;
+  }
+
+  public int getPieceX() {
+    return pieceX;
+  }
+
+  public int getPieceY() {
+    return pieceY;
+  }
+
+  // Engine time from the start of the game until now or its end
+  public long getPlayNanos() {
+    return playNanos;
+  }
+
+  public boolean isGameOver() {
+    return gameOver;
+  }
+
+  // Packed result of the most recent lock, see LineClear
+  public long getLastLineClear() {
+    return lastLineClear;
+  }
+
+  public boolean isSoftDropping() {
+    return softDropping;
+  }
+
+  public List<Tetromino.Type> peekNextTypes(int count) {
+    return factory.peekNextTypes(count);
+  }
+
+  // Allocation-free preview; index 0 is the next piece
+  public Tetromino.Type peekType(int index) {
+    return factory.peekType(index);
+  }
+}
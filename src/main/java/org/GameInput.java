@@ -0,0 +1,27 @@
+package org;
+
+// Input flags for GameEngine.step; several may be combined in one mask and
+// are applied in the order they are declared here, except UNDO and REDO
+// which come right after RESTART and the held-move flags which come right
+// after MOVE_RIGHT.
+public final class GameInput {
+
+  public static final int NONE = 0;
+  public static final int RESTART = 1;
+  public static final int SOFT_DROP_PRESS = 1 << 1;
+  public static final int SOFT_DROP_RELEASE = 1 << 2;
+  public static final int MOVE_LEFT = 1 << 3;
+  public static final int MOVE_RIGHT = 1 << 4;
+  public static final int ROTATE_CW = 1 << 5;
+  public static final int ROTATE_CCW = 1 << 6;
+  public static final int HARD_DROP = 1 << 7;
+  public static final int UNDO = 1 << 8; // needs an UndoHistory
+  public static final int REDO = 1 << 9;
+  // Held keys: one move on press, then auto-repeat (DAS/ARR) until release
+  public static final int LEFT_PRESS = 1 << 10;
+  public static final int LEFT_RELEASE = 1 << 11;
+  public static final int RIGHT_PRESS = 1 << 12;
+  public static final int RIGHT_RELEASE = 1 << 13;
+
+  private GameInput() {}
+}
@@ -0,0 +1,203 @@
+package org;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import javax.swing.Timer;
+
+// Fixed-timestep driver for a GameEngine. Wall-clock time is accumulated in
+// nanoseconds and spent in LOGIC_STEP_NANOS slices, so the simulation runs
+// the same no matter how frames are scheduled; rendering happens at most
+// once per RENDER_PERIOD_NANOS. The engine is used as the lock that input
+// handlers and painting must hold while touching it.
+//
+// Key events are timestamped into an InputQueue by submit() and applied in
+// order at the start of the next logic step; a frame that applied input
+// is rendered right away instead of waiting for the render period, and
+// isInputFrame() tells onRender to paint it immediately too.
+public class GameLoop {
+
+  public static final long LOGIC_STEP_NANOS = 1_000_000_000L / 240;
+  public static final long RENDER_PERIOD_NANOS = 1_000_000_000L / 60;
+
+  // After a stall (debugger, sleep) drop the backlog instead of fast-forwarding
+  private static final long MAX_FRAME_NANOS = 250_000_000L;
+
+  private final GameEngine engine;
+  private final Runnable onRender;
+
+  private final TimingStats frameStats = new TimingStats();
+  private final TimingStats stepStats = new TimingStats();
+  private final InputQueue inputs = new InputQueue(64);
+  private Metrics metrics;
+
+  private long lastNanos;
+  private long lastRenderNanos;
+  private long accumulatorNanos;
+
+  private Timer timer;
+  private ScheduledExecutorService scheduler;
+  private boolean renderEveryFrame; // Swing timer already ticks at render rate
+  private boolean inputFrame;
+
+  public GameLoop(GameEngine engine, Runnable onRender) {
+    this.engine = engine;
+    this.onRender = onRender;
+  }
+
+  // Runs logic and rendering on the Swing event thread
+  public void startSwing() {
+    stop();
+    reset();
+    renderEveryFrame = true;
+    timer = new Timer(
+      (int) (RENDER_PERIOD_NANOS / 1_000_000L),
+      new ActionListener() {
+        public void actionPerformed(ActionEvent e) {
+          runFrame();
+        }
+      }
+    );
+    timer.setCoalesce(true);
+    timer.start();
+  }
+
+  // Runs logic on a dedicated thread at the logic rate; onRender is then
+  // called from that thread and must hand painting over to Swing itself.
+  public void startScheduler() {
+    stop();
+    reset();
+    renderEveryFrame = false;
+    scheduler = Executors.newSingleThreadScheduledExecutor(
+      new ThreadFactory() {
+        public Thread newThread(Runnable r) {
+          Thread t = new Thread(r, "tetris-loop");
+          t.setDaemon(true);
+          return t;
+        }
+      }
+    );
+    scheduler.scheduleAtFixedRate(
+      new Runnable() {
+        public void run() {
+          runFrame();
+        }
+      },
+      0,
+      LOGIC_STEP_NANOS,
+      TimeUnit.NANOSECONDS
+    );
+  }
+
+  // Leaves the scheduling to the caller, which runs a frame (logic and
+  // rendering) every time it is ready to show one, e.g. GameCanvas
+  public void startExternal() {
+    stop();
+    reset();
+    renderEveryFrame = true;
+  }
+
+  public void stop() {
+    if (timer != null) {
+      timer.stop();
+      timer = null;
+    }
+    if (scheduler != null) {
+      scheduler.shutdownNow();
+      scheduler = null;
+    }
+  }
+
+  private void reset() {
+    lastNanos = System.nanoTime();
+    lastRenderNanos = lastNanos - RENDER_PERIOD_NANOS;
+    accumulatorNanos = 0;
+    frameStats.reset();
+    stepStats.reset();
+  }
+
+  // Queues an input pressed at the given System.nanoTime(). With the Swing
+  // loop (caller on the event thread) the frame runs immediately; the
+  // scheduler thread picks it up within one logic step.
+  public void submit(int input, long nanos) {
+    inputs.offer(input, nanos);
+    if (timer != null) runFrame();
+  }
+
+  public InputQueue getInputQueue() {
+    return inputs;
+  }
+
+  public void runFrame() {
+    long now = System.nanoTime();
+    long delta = now - lastNanos;
+    lastNanos = now;
+    accumulatorNanos += Math.min(delta, MAX_FRAME_NANOS);
+
+    boolean applied;
+    synchronized (engine) {
+      applied = applyInputs();
+      while (accumulatorNanos >= LOGIC_STEP_NANOS) {
+        if (applyInputs()) applied = true;
+        long start = System.nanoTime();
+        engine.step(GameInput.NONE, LOGIC_STEP_NANOS);
+        long took = System.nanoTime() - start;
+        stepStats.record(took);
+        if (metrics != null) metrics.recordTick(took);
+        accumulatorNanos -= LOGIC_STEP_NANOS;
+      }
+    }
+
+    if (
+      applied ||
+      renderEveryFrame ||
+      now - lastRenderNanos >= RENDER_PERIOD_NANOS
+    ) {
+      frameStats.record(now - lastRenderNanos);
+      lastRenderNanos = now;
+      inputFrame = applied;
+      onRender.run();
+    }
+  }
+
+  // Applies every queued input; must hold the engine lock. The oldest
+  // press of a batch that changed the game starts a press-to-pixel sample.
+  private boolean applyInputs() {
+    long event = inputs.poll();
+    if (event == InputQueue.EMPTY) return false;
+    long oldest = inputs.nanosOf(event);
+    long before = engine.getChangeCount();
+    do {
+      engine.step(inputs.inputOf(event), 0);
+      event = inputs.poll();
+    } while (event != InputQueue.EMPTY);
+    if (metrics != null && engine.getChangeCount() != before) {
+      metrics.markInput(oldest);
+    }
+    return true;
+  }
+
+  // Whether the frame onRender is running for applied input, so it can be
+  // painted right away instead of waiting for the next repaint pass
+  public boolean isInputFrame() {
+    return inputFrame;
+  }
+
+  // Also records every logic step's duration
+  public void setMetrics(Metrics metrics) {
+    this.metrics = metrics;
+  }
+
+  // Intervals between rendered frames
+  public TimingStats getFrameStats() {
+    return frameStats;
+  }
+
+  // Time spent inside each logic step
+  public TimingStats getStepStats() {
+    return stepStats;
+  }
+}
@@ -0,0 +1,476 @@
+package org;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+
+// Draws a GameEngine onto any Graphics2D. Cell sprites, the grid and the
+// locked stack are pre-rendered into images and only rebuilt when the
+// board or the side panel values change. Cells shrink on large boards, and
+// painting only touches the rows inside the clip, so a scrolled viewport
+// over a tall board costs what it shows.
+public class GameRenderer {
+
+  // Visual constants
+  public static final int CELL = 30; // pixels, largest cell size
+  public static final int MIN_CELL = 6;
+  public static final int MAX_BOARD_W = 1200; // cells shrink to fit these
+  public static final int MAX_BOARD_H = 900;
+  public static final int SIDE_W = 180;
+  private static final int SIDE_MIN_H = 340;
+
+  public static final Color BACKGROUND = new Color(20, 20, 30);
+  private static final Color BOARD_BG = new Color(10, 10, 18);
+  private static final Color GRID = new Color(255, 255, 255, 20);
+  private static final Color SIDE_BG = new Color(30, 30, 45);
+  private static final Color INSET = new Color(255, 255, 255, 30);
+  private static final Color GHOST_EDGE = new Color(255, 255, 255, 60);
+  private static final Color PREVIEW_BOX = new Color(255, 255, 255, 20);
+  private static final Color OVERLAY = new Color(0, 0, 0, 150);
+  private static final Color METRICS_BG = new Color(0, 0, 0, 180);
+
+  private static final Font LABEL_FONT = new Font("SansSerif", Font.BOLD, 16);
+  private static final Font VALUE_FONT = new Font("SansSerif", Font.PLAIN, 18);
+  private static final Font TITLE_FONT = new Font("SansSerif", Font.BOLD, 28);
+  private static final Font HINT_FONT = new Font("SansSerif", Font.PLAIN, 16);
+  private static final Font METRICS_FONT = new Font(
+    "Monospaced",
+    Font.PLAIN,
+    11
+  );
+
+  private static final Tetromino.Type[] TYPES = Tetromino.Type.values();
+
+  private final int cols;
+  private final int rows;
+  private final int cell;
+  private final int boardW;
+  private final int boardH;
+  private final int height;
+  private final Rectangle metricsBox;
+
+  // Piece types plus garbage
+  private final BufferedImage[] cellSprites = new BufferedImage[
+    GameBoard.GARBAGE + 1
+  ];
+  private final BufferedImage[] ghostSprites = new BufferedImage[TYPES.length];
+  private final BufferedImage[] previewSprites;
+  private final BufferedImage stackLayer;
+  private final BufferedImage sideLayer;
+
+  // Values the cached layers were last drawn with
+  private int stackVersion = -1;
+  private GameBoard stackBoard;
+  private int stackTop; // first row that may hold a block
+  private int sideScore = -1;
+  private int sideLevel = -1;
+  private int sideLines = -1;
+  private Tetromino.Type sideNext;
+
+  public GameRenderer() {
+    this(Board.COLS, Board.ROWS);
+  }
+
+  public GameRenderer(int cols, int rows) {
+    Board.checkSize(cols, rows);
+    this.cols = cols;
+    this.rows = rows;
+    cell = cellSizeFor(cols, rows);
+    boardW = cols * cell;
+    boardH = rows * cell;
+    height = Math.max(boardH, SIDE_MIN_H);
+    metricsBox = new Rectangle(6, 6, Math.max(boardW, 240) - 12, 86);
+    for (int i = 0; i < TYPES.length; i++) {
+      Color color = Tetromino.colorFor(TYPES[i]);
+      cellSprites[i] = createCellSprite(color, cell);
+      ghostSprites[i] = createGhostSprite(color, cell);
+    }
+    cellSprites[GameBoard.GARBAGE] = createCellSprite(
+      Tetromino.colorForOrdinal(GameBoard.GARBAGE),
+      cell
+    );
+    // The preview keeps full-size cells on boards with small ones
+    previewSprites = new BufferedImage[TYPES.length];
+    for (int i = 0; i < TYPES.length; i++) {
+      previewSprites[i] = cell == CELL
+        ? cellSprites[i]
+        : createCellSprite(Tetromino.colorFor(TYPES[i]), CELL);
+    }
+    stackLayer = new BufferedImage(
+      boardW,
+      boardH,
+      BufferedImage.TYPE_INT_RGB
+    );
+    sideLayer = new BufferedImage(SIDE_W, height, BufferedImage.TYPE_INT_RGB);
+  }
+
+  // Largest cell (up to CELL) that fits the board in MAX_BOARD_W x
+  // MAX_BOARD_H, but never below MIN_CELL; taller boards scroll
+  public static int cellSizeFor(int cols, int rows) {
+    int fit = Math.min(MAX_BOARD_W / cols, MAX_BOARD_H / rows);
+    return Math.max(MIN_CELL, Math.min(CELL, fit));
+  }
+
+  public int getWidth() {
+    return boardW + SIDE_W;
+  }
+
+  public int getHeight() {
+    return height;
+  }
+
+  public int getCellSize() {
+    return cell;
+  }
+
+  public void paint(Graphics2D g, GameEngine engine) {
+    updateStackLayer(engine);
+    updateSideLayer(engine);
+
+    // Only the rows inside the clip are copied or drawn
+    Rectangle clip = g.getClipBounds();
+    int top = 0;
+    int bottom = rows;
+    if (clip != null) {
+      top = Math.max(0, clip.y / cell);
+      bottom = Math.min(rows, (clip.y + clip.height + cell - 1) / cell);
+    }
+    if (top < bottom) {
+      g.drawImage(
+        stackLayer,
+        0,
+        top * cell,
+        boardW,
+        bottom * cell,
+        0,
+        top * cell,
+        boardW,
+        bottom * cell,
+        null
+      );
+    }
+    if (clip == null || clip.x + clip.width > boardW) {
+      g.drawImage(sideLayer, boardW, 0, null);
+    }
+
+    Tetromino current = engine.getCurrent();
+    if (!engine.isGameOver() && current != null) {
+      int drop = engine.getDropDistance();
+      drawPiece(
+        g,
+        current,
+        engine.getPieceX(),
+        engine.getPieceY() + drop,
+        top,
+        bottom,
+        true
+      );
+      drawPiece(
+        g,
+        current,
+        engine.getPieceX(),
+        engine.getPieceY(),
+        top,
+        bottom,
+        false
+      );
+    }
+
+    // Game Over overlay
+    if (engine.isGameOver()) {
+      g.setColor(OVERLAY);
+      g.fillRect(0, 0, boardW, boardH);
+      g.setRenderingHint(
+        RenderingHints.KEY_TEXT_ANTIALIASING,
+        RenderingHints.VALUE_TEXT_ANTIALIAS_ON
+      );
+      g.setColor(Color.WHITE);
+      g.setFont(TITLE_FONT);
+      g.drawString("Game Over", 40, boardH / 2 - 10);
+      g.setFont(HINT_FONT);
+      g.drawString("Press R to Restart", 40, boardH / 2 + 18);
+    }
+  }
+
+  // Screen area covered by the piece's 4x4 box at grid position (gx, gy)
+  public Rectangle pieceBounds(Tetromino piece, int gx, int gy, Rectangle out) {
+    out.setBounds(
+      (gx + piece.getMinX()) * cell,
+      (gy + piece.getMinY()) * cell,
+      piece.getWidth() * cell,
+      piece.getHeight() * cell
+    );
+    return out;
+  }
+
+  public Rectangle sidePanelBounds() {
+    return new Rectangle(boardW, 0, SIDE_W, height);
+  }
+
+  public Rectangle metricsBounds() {
+    return new Rectangle(metricsBox);
+  }
+
+  // Debug overlay; formats strings, so only drawn when switched on
+  public void paintMetrics(Graphics2D g, Metrics metrics) {
+    g.setColor(METRICS_BG);
+    g.fillRect(
+      metricsBox.x,
+      metricsBox.y,
+      metricsBox.width,
+      metricsBox.height
+    );
+    g.setColor(Color.WHITE);
+    g.setFont(METRICS_FONT);
+    int x = metricsBox.x + 6;
+    int y = metricsBox.y + 14;
+    g.drawString(
+      String.format(
+        "tick  mean %6.1fus p99 %6.1fus",
+        metrics.getTickMeanMicros(),
+        metrics.getTickP99Micros()
+      ),
+      x,
+      y
+    );
+    g.drawString(
+      String.format(
+        "paint mean %6.1fus p99 %6.1fus",
+        metrics.getPaintMeanMicros(),
+        metrics.getPaintP99Micros()
+      ),
+      x,
+      y + 15
+    );
+    g.drawString(
+      String.format(
+        "input p50 %5.1fms p99 %5.1fms",
+        metrics.getInputToRenderP50Micros() / 1e3,
+        metrics.getInputToRenderP99Micros() / 1e3
+      ),
+      x,
+      y + 30
+    );
+    g.drawString(
+      String.format(
+        "pieces %d (%.2f/s)",
+        metrics.getPieces(),
+        metrics.getPiecesPerSecond()
+      ),
+      x,
+      y + 45
+    );
+    g.drawString(
+      String.format(
+        "lines %d in %d clears",
+        metrics.getLinesCleared(),
+        metrics.getLineClears()
+      ),
+      x,
+      y + 60
+    );
+  }
+
+  private void updateStackLayer(GameEngine engine) {
+    GameBoard board = engine.getBoard();
+    if (board == stackBoard && engine.getBoardVersion() == stackVersion) {
+      return;
+    }
+    // Rows above both the old and the new stack top are empty before and
+    // after, so only the rows from the higher of the two down are redrawn
+    int top = rows;
+    for (int x = 0; x < cols; x++) {
+      top = Math.min(top, rows - board.getColumnHeight(x));
+    }
+    int from = board == stackBoard ? Math.min(top, stackTop) : 0;
+    stackBoard = board;
+    stackVersion = engine.getBoardVersion();
+    stackTop = top;
+
+    Graphics2D g = stackLayer.createGraphics();
+    try {
+      // Board background and subtle grid lines
+      g.setColor(BOARD_BG);
+      g.fillRect(0, from * cell, boardW, boardH - from * cell);
+      g.setColor(GRID);
+      for (int x = 0; x <= cols; x++) {
+        g.drawLine(x * cell, from * cell, x * cell, boardH);
+      }
+      for (int y = from; y <= rows; y++) {
+        g.drawLine(0, y * cell, boardW, y * cell);
+      }
+
+      // Locked cells
+      for (int y = from; y < rows; y++) {
+        for (int x = 0; x < cols; x++) {
+          int ord = board.getCell(x, y);
+          if (ord >= 0) drawCell(g, x * cell, y * cell, ord);
+        }
+      }
+    } finally {
+      g.dispose();
+    }
+  }
+
+  private void updateSideLayer(GameEngine engine) {
+    Scoreboard score = engine.getScoreboard();
+    Tetromino.Type next = engine.peekType(0);
+    if (
+      score.getScore() == sideScore &&
+      score.getLevel() == sideLevel &&
+      score.getTotalLines() == sideLines &&
+      next == sideNext
+    ) {
+      return;
+    }
+    sideScore = score.getScore();
+    sideLevel = score.getLevel();
+    sideLines = score.getTotalLines();
+    sideNext = next;
+
+    Graphics2D g = sideLayer.createGraphics();
+    try {
+      g.setRenderingHint(
+        RenderingHints.KEY_ANTIALIASING,
+        RenderingHints.VALUE_ANTIALIAS_ON
+      );
+      g.setColor(BACKGROUND);
+      g.fillRect(0, 0, SIDE_W, height);
+      g.setColor(SIDE_BG);
+      g.fillRoundRect(0, 0, SIDE_W, height, 16, 16);
+
+      int sx = 10;
+      int sy = 10;
+      g.setColor(Color.WHITE);
+      g.setFont(LABEL_FONT);
+      g.drawString("Score", sx, sy + 20);
+      g.setFont(VALUE_FONT);
+      g.drawString(String.valueOf(sideScore), sx, sy + 40);
+
+      g.setFont(LABEL_FONT);
+      g.drawString("Level", sx, sy + 70);
+      g.setFont(VALUE_FONT);
+      g.drawString(String.valueOf(sideLevel), sx, sy + 90);
+
+      g.setFont(LABEL_FONT);
+      g.drawString("Lines", sx, sy + 120);
+      g.setFont(VALUE_FONT);
+      g.drawString(String.valueOf(sideLines), sx, sy + 140);
+
+      // Next preview
+      g.setFont(LABEL_FONT);
+      g.drawString("Next", sx, sy + 180);
+      if (next != null) drawPreview(g, next, sx, sy + 200);
+    } finally {
+      g.dispose();
+    }
+  }
+
+  private void drawCell(Graphics2D g, int px, int py, int ordinal) {
+    g.drawImage(cellSprites[ordinal], px, py, null);
+  }
+
+  private void drawPiece(
+    Graphics2D g,
+    Tetromino piece,
+    int gx,
+    int gy,
+    int top,
+    int bottom,
+    boolean ghost
+  ) {
+    int ord = piece.getType().ordinal();
+    BufferedImage sprite = ghost ? ghostSprites[ord] : cellSprites[ord];
+    for (int i = 0; i < Tetromino.CELL_COUNT; i++) {
+      int x = gx + piece.cellX(i);
+      int y = gy + piece.cellY(i);
+      if (y < top || y >= bottom) continue; // outside the painted rows
+      g.drawImage(sprite, x * cell, y * cell, null);
+    }
+  }
+
+  private void drawPreview(Graphics2D g, Tetromino.Type type, int sx, int sy) {
+    Tetromino tmp = Tetromino.of(type);
+    // Center preview in a 4x4 area
+    int box = CELL * 4;
+    int ox = sx + 10;
+    int oy = sy + 20;
+    // Draw a subtle box
+    g.setColor(PREVIEW_BOX);
+    g.drawRoundRect(ox - 6, oy - 16, box, box, 10, 10);
+
+    for (int i = 0; i < Tetromino.CELL_COUNT; i++) {
+      int px = ox + tmp.cellX(i) * CELL;
+      int py = oy + tmp.cellY(i) * CELL;
+      if (type == Tetromino.Type.I) {
+        // Better centering for I piece
+        px -= CELL / 2;
+        py -= CELL / 2;
+      }
+      g.drawImage(previewSprites[type.ordinal()], px, py, null);
+    }
+  }
+
+  private static BufferedImage createCellSprite(Color base, int size) {
+    BufferedImage img = new BufferedImage(
+      size,
+      size,
+      BufferedImage.TYPE_INT_ARGB
+    );
+    Graphics2D g = img.createGraphics();
+    try {
+      g.setRenderingHint(
+        RenderingHints.KEY_ANTIALIASING,
+        RenderingHints.VALUE_ANTIALIAS_ON
+      );
+      // Block with simple shading for a polished look
+      int s = size - 2;
+      int px = 1;
+      int py = 1; // padding
+      g.setColor(base);
+      g.fillRoundRect(px, py, s, s, 6, 6);
+
+      // Highlights and shadows
+      g.setColor(base.brighter());
+      g.drawLine(px + 2, py + 2, px + s - 3, py + 2);
+      g.drawLine(px + 2, py + 2, px + 2, py + s - 3);
+      g.setColor(base.darker());
+      g.drawLine(px + 2, py + s - 2, px + s - 2, py + s - 2);
+      g.drawLine(px + s - 2, py + 2, px + s - 2, py + s - 2);
+
+      // Inner inset
+      g.setColor(INSET);
+      g.fillRoundRect(px + 3, py + 3, s - 6, (s - 6) / 2, 6, 6);
+    } finally {
+      g.dispose();
+    }
+    return img;
+  }
+
+  private static BufferedImage createGhostSprite(Color base, int size) {
+    BufferedImage img = new BufferedImage(
+      size,
+      size,
+      BufferedImage.TYPE_INT_ARGB
+    );
+    Graphics2D g = img.createGraphics();
+    try {
+      g.setRenderingHint(
+        RenderingHints.KEY_ANTIALIASING,
+        RenderingHints.VALUE_ANTIALIAS_ON
+      );
+      // ghost as translucent filled rectangle
+      int s = size - 2;
+      g.setColor(new Color(base.getRed(), base.getGreen(), base.getBlue(), 70));
+      g.fillRoundRect(1, 1, s, s, 6, 6);
+      g.setColor(GHOST_EDGE);
+      g.drawRoundRect(1, 1, s, s, 6, 6);
+    } finally {
+      g.dispose();
+    }
+    return img;
+  }
+}
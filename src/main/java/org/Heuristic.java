@@ -0,0 +1,73 @@
+package org;
+
+// Linear board evaluation: weights for aggregate height, cleared lines,
+// holes and bumpiness. Defaults are the well-known genetically tuned set
+// for a 10-wide board; higher scores are better.
+public class Heuristic {
+
+  public static final Heuristic DEFAULT = new Heuristic(
+    -0.510066,
+    0.760666,
+    -0.35663,
+    -0.184483
+  );
+
+  private final double heightWeight;
+  private final double linesWeight;
+  private final double holesWeight;
+  private final double bumpinessWeight;
+
+  public Heuristic(
+    double heightWeight,
+    double linesWeight,
+    double holesWeight,
+    double bumpinessWeight
+  ) {
+    this.heightWeight = heightWeight;
+    this.linesWeight = linesWeight;
+    this.holesWeight = holesWeight;
+    this.bumpinessWeight = bumpinessWeight;
+  }
+
+  public double evaluate(BitBoard board, int lines) {
+    return evaluateBoard(board) + scoreLines(lines);
+  }
+
+  public double scoreLines(int lines) {
+    return linesWeight * lines;
+  }
+
+  // Score of the board shape alone; depends only on occupancy, so it can be
+  // cached by board hash
+  public double evaluateBoard(BitBoard board) {
+    int aggregate = 0;
+    int bumpiness = 0;
+    int previous = board.getColumnHeight(0);
+    aggregate += previous;
+    for (int x = 1; x < board.getWidth(); x++) {
+      int h = board.getColumnHeight(x);
+      aggregate += h;
+      bumpiness += Math.abs(h - previous);
+      previous = h;
+    }
+    return (
+      heightWeight * aggregate +
+      holesWeight * countHoles(board) +
+      bumpinessWeight * bumpiness
+    );
+  }
+
+  // Empty cells with a filled cell somewhere above them in the same column
+  static int countHoles(BitBoard board) {
+    int holes = 0;
+    for (int w = 0; w < board.getWordsPerRow(); w++) {
+      long covered = 0;
+      for (int y = 0; y < board.getHeight(); y++) {
+        long row = board.getRowWord(y, w);
+        holes += Long.bitCount(covered & ~row);
+        covered |= row;
+      }
+    }
+    return holes;
+  }
+}
@@ -0,0 +1,41 @@
+package org;
+
+import java.util.SplittableRandom;
+
+// TGM-style: up to ROLLS picks to find a type not among the last four
+public class HistoryRandomizer implements Randomizer {
+
+  private static final int TYPES = Tetromino.Type.values().length;
+  private static final int HISTORY = 4;
+  private static final int ROLLS = 6;
+
+  private final SplittableRandom random;
+  private final int[] history = new int[HISTORY];
+  private int oldest;
+
+  public HistoryRandomizer(SplittableRandom random) {
+    this.random = random;
+    // Start as if S and Z were dealt, so the game never opens with them
+    history[0] = Tetromino.Type.Z.ordinal();
+    history[1] = Tetromino.Type.S.ordinal();
+    history[2] = Tetromino.Type.Z.ordinal();
+    history[3] = Tetromino.Type.S.ordinal();
+  }
+
+  public int next() {
+    int pick = random.nextInt(TYPES);
+    for (int roll = 1; roll < ROLLS && inHistory(pick); roll++) {
+      pick = random.nextInt(TYPES);
+    }
+    history[oldest] = pick;
+    oldest = (oldest + 1) % HISTORY;
+    return pick;
+  }
+
+  private boolean inHistory(int type) {
+    for (int i = 0; i < HISTORY; i++) {
+      if (history[i] == type) return true;
+    }
+    return false;
+  }
+}
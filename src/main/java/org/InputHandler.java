@@ -1,6 +1,7 @@
 package org;
 
 import java.awt.event.ActionEvent;
+import java.awt.event.InputEvent;
 import java.awt.event.KeyEvent;
 import javax.swing.AbstractAction;
 import javax.swing.JComponent;
@@ -17,25 +18,48 @@ public class InputHandler {
     );
     javax.swing.ActionMap am = comp.getActionMap();
 
+    // Left/Right: held keys auto-repeat in the engine
     bind(
       im,
       am,
-      "moveLeft",
+      "leftPressed",
       KeyStroke.getKeyStroke(KeyEvent.VK_LEFT, 0, false),
       new Runnable() {
         public void run() {
-          game.moveLeft();
+          game.setLeftHeld(true);
         }
       }
     );
     bind(
       im,
       am,
-      "moveRight",
+      "leftReleased",
+      KeyStroke.getKeyStroke(KeyEvent.VK_LEFT, 0, true),
+      new Runnable() {
+        public void run() {
+          game.setLeftHeld(false);
+        }
+      }
+    );
+    bind(
+      im,
+      am,
+      "rightPressed",
       KeyStroke.getKeyStroke(KeyEvent.VK_RIGHT, 0, false),
       new Runnable() {
         public void run() {
-          game.moveRight();
+          game.setRightHeld(true);
+        }
+      }
+    );
+    bind(
+      im,
+      am,
+      "rightReleased",
+      KeyStroke.getKeyStroke(KeyEvent.VK_RIGHT, 0, true),
+      new Runnable() {
+        public void run() {
+          game.setRightHeld(false);
         }
       }
     );
@@ -126,6 +150,44 @@ public class InputHandler {
         }
       }
     );
+
+    // Metrics overlay: F3
+    bind(
+      im,
+      am,
+      "toggleMetrics",
+      KeyStroke.getKeyStroke(KeyEvent.VK_F3, 0, false),
+      new Runnable() {
+        public void run() {
+          game.toggleMetrics();
+        }
+      }
+    );
+
+    // Undo/redo, only bound in practice mode
+    if (!game.isPracticeMode()) return;
+    bind(
+      im,
+      am,
+      "undo",
+      KeyStroke.getKeyStroke(KeyEvent.VK_Z, InputEvent.CTRL_DOWN_MASK, false),
+      new Runnable() {
+        public void run() {
+          game.undo();
+        }
+      }
+    );
+    bind(
+      im,
+      am,
+      "redo",
+      KeyStroke.getKeyStroke(KeyEvent.VK_Y, InputEvent.CTRL_DOWN_MASK, false),
+      new Runnable() {
+        public void run() {
+          game.redo();
+        }
+      }
+    );
   }
 
   private void bind(
@@ -0,0 +1,66 @@
+package org;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Single-producer single-consumer queue of timestamped inputs. The Swing
+// thread offers key events, the game loop polls them at the start of a
+// logic step. Each event is packed into one long (timestamp relative to
+// the queue's creation in the high 48 bits, GameInput flags in the low 16)
+// so neither side locks or allocates.
+public class InputQueue {
+
+  public static final long EMPTY = -1L;
+
+  private static final int INPUT_BITS = 16;
+  private static final long INPUT_MASK = (1L << INPUT_BITS) - 1;
+
+  private final long[] slots;
+  private final int mask;
+  private final long baseNanos = System.nanoTime();
+  private final AtomicLong head = new AtomicLong(); // next to poll
+  private final AtomicLong tail = new AtomicLong(); // next to offer
+  private final AtomicLong dropped = new AtomicLong();
+
+  public InputQueue(int capacity) {
+    if (Integer.bitCount(capacity) != 1) {
+      throw new IllegalArgumentException("Capacity must be a power of two");
+    }
+    slots = new long[capacity];
+    mask = capacity - 1;
+  }
+
+  // Producer side; false (and counted) if the queue is full
+  public boolean offer(int input, long nanos) {
+    long t = tail.get();
+    if (t - head.get() > mask) {
+      dropped.incrementAndGet();
+      return false;
+    }
+    long relative = Math.max(0L, nanos - baseNanos);
+    slots[(int) (t & mask)] = relative << INPUT_BITS | (input & INPUT_MASK);
+    tail.lazySet(t + 1); // publishes the slot write
+    return true;
+  }
+
+  // Consumer side; the packed event or EMPTY
+  public long poll() {
+    long h = head.get();
+    if (h == tail.get()) return EMPTY;
+    long event = slots[(int) (h & mask)];
+    head.lazySet(h + 1);
+    return event;
+  }
+
+  public int inputOf(long event) {
+    return (int) (event & INPUT_MASK);
+  }
+
+  // System.nanoTime() the event was offered with
+  public long nanosOf(long event) {
+    return baseNanos + (event >>> INPUT_BITS);
+  }
+
+  public long getDropped() {
+    return dropped.get();
+  }
+}
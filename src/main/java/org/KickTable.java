@@ -0,0 +1,180 @@
+package org;
+
+// A RotationSystem as flat tables of kick offsets, one row per piece type,
+// start rotation and direction, built once when the class loads.
+final class KickTable implements RotationSystem {
+
+  private static final Tetromino.Type[] TYPES = Tetromino.Type.values();
+  private static final int TRANSITIONS = TYPES.length * 4 * 2;
+
+  // Guideline SRS kicks as x, y pairs with y pointing up, for each start
+  // state (0, R, 2, L) turning clockwise, then counterclockwise
+  private static final int[][] JLSTZ_KICKS = {
+    { 0, 0, -1, 0, -1, 1, 0, -2, -1, -2 }, // 0->R
+    { 0, 0, 1, 0, 1, 1, 0, -2, 1, -2 }, // 0->L
+    { 0, 0, 1, 0, 1, -1, 0, 2, 1, 2 }, // R->2
+    { 0, 0, 1, 0, 1, -1, 0, 2, 1, 2 }, // R->0
+    { 0, 0, 1, 0, 1, 1, 0, -2, 1, -2 }, // 2->L
+    { 0, 0, -1, 0, -1, 1, 0, -2, -1, -2 }, // 2->R
+    { 0, 0, -1, 0, -1, -1, 0, 2, -1, 2 }, // L->0
+    { 0, 0, -1, 0, -1, -1, 0, 2, -1, 2 }, // L->2
+  };
+
+  private static final int[][] I_KICKS = {
+    { 0, 0, -2, 0, 1, 0, -2, -1, 1, 2 }, // 0->R
+    { 0, 0, -1, 0, 2, 0, -1, 2, 2, -1 }, // 0->L
+    { 0, 0, -1, 0, 2, 0, -1, 2, 2, -1 }, // R->2
+    { 0, 0, 2, 0, -1, 0, 2, 1, -1, -2 }, // R->0
+    { 0, 0, 2, 0, -1, 0, 2, 1, -1, -2 }, // 2->L
+    { 0, 0, 1, 0, -2, 0, 1, -2, -2, 1 }, // 2->R
+    { 0, 0, 1, 0, -2, 0, 1, -2, -2, 1 }, // L->0
+    { 0, 0, -2, 0, 1, 0, -2, -1, 1, 2 }, // L->2
+  };
+
+  private static final int[] O_KICKS = { 0, 0 }; // O turns in place
+
+  // Offsets of the original engine, y pointing down; the first is no kick
+  private static final int[] LEGACY_X = { 0, -1, 1, -2, 2, 0 };
+  private static final int[] LEGACY_Y = { 0, 0, 0, 0, 0, -1 };
+
+  private final String name;
+  private final int stride; // most kicks for any turn
+  private final int[] counts = new int[TRANSITIONS];
+  private final int[] kickX;
+  private final int[] kickY;
+
+  private KickTable(String name, int stride) {
+    this.name = name;
+    this.stride = stride;
+    kickX = new int[TRANSITIONS * stride];
+    kickY = new int[TRANSITIONS * stride];
+  }
+
+  static KickTable legacy() {
+    KickTable table = new KickTable("legacy", LEGACY_X.length);
+    for (int t = 0; t < TRANSITIONS; t++) {
+      for (int k = 0; k < LEGACY_X.length; k++) {
+        table.kickX[t * table.stride + k] = LEGACY_X[k];
+        table.kickY[t * table.stride + k] = LEGACY_Y[k];
+      }
+      table.counts[t] = LEGACY_X.length;
+    }
+    return table;
+  }
+
+  // The guideline tables assume the guideline's piece states. Ours match
+  // them at spawn but some later states sit a row higher or a column
+  // further right in the 4x4 box, so each kick absorbs that difference:
+  // kick + shift[from] - shift[to], with y flipped to point down.
+  static KickTable srs() {
+    KickTable table = new KickTable("srs", 5);
+    int[] shiftX = new int[4];
+    int[] shiftY = new int[4];
+    for (Tetromino.Type type : TYPES) {
+      srsShifts(type, shiftX, shiftY);
+      for (int from = 0; from < 4; from++) {
+        for (int dir = 0; dir < 2; dir++) {
+          int to = (from + (dir == 0 ? 1 : 3)) & 3;
+          int t = (type.ordinal() * 4 + from) * 2 + dir;
+          int[][] rows = type == Tetromino.Type.I ? I_KICKS : JLSTZ_KICKS;
+          int[] kicks = type == Tetromino.Type.O
+            ? O_KICKS
+            : rows[from * 2 + dir];
+          for (int k = 0; k < kicks.length / 2; k++) {
+            int i = t * table.stride + k;
+            table.kickX[i] = kicks[2 * k] + shiftX[from] - shiftX[to];
+            table.kickY[i] = -kicks[2 * k + 1] + shiftY[from] - shiftY[to];
+          }
+          table.counts[t] = kicks.length / 2;
+        }
+      }
+    }
+    return table;
+  }
+
+  // Where each of our rotations sits relative to the guideline state,
+  // found by turning the spawn shape about the guideline center (the
+  // middle of the 3x3 box, or of the 4x4 box for I, or of the O itself)
+  private static void srsShifts(
+    Tetromino.Type type,
+    int[] shiftX,
+    int[] shiftY
+  ) {
+    // Doubled coordinates keep the half-cell centers whole
+    int cx = type == Tetromino.Type.I || type == Tetromino.Type.O ? 3 : 2;
+    int cy = type == Tetromino.Type.O ? 1 : cx;
+    Tetromino spawn = Tetromino.of(type);
+    int[] xs = new int[Tetromino.CELL_COUNT];
+    int[] ys = new int[Tetromino.CELL_COUNT];
+    for (int i = 0; i < Tetromino.CELL_COUNT; i++) {
+      xs[i] = 2 * spawn.cellX(i);
+      ys[i] = 2 * spawn.cellY(i);
+    }
+    for (int r = 0; r < 4; r++) {
+      Tetromino ours = Tetromino.of(type, r);
+      int minX = Integer.MAX_VALUE;
+      int minY = Integer.MAX_VALUE;
+      for (int i = 0; i < Tetromino.CELL_COUNT; i++) {
+        minX = Math.min(minX, xs[i] / 2);
+        minY = Math.min(minY, ys[i] / 2);
+      }
+      shiftX[r] = ours.getMinX() - minX;
+      shiftY[r] = ours.getMinY() - minY;
+      for (int i = 0; i < Tetromino.CELL_COUNT; i++) {
+        int x = xs[i] / 2 + shiftX[r];
+        int y = ys[i] / 2 + shiftY[r];
+        if ((ours.rowMask(y) & 1 << x) == 0) {
+          throw new IllegalStateException(type + " rotation " + r);
+        }
+      }
+      // A quarter turn clockwise (y points down)
+      for (int i = 0; i < Tetromino.CELL_COUNT; i++) {
+        int x = xs[i];
+        xs[i] = cx - (ys[i] - cy);
+        ys[i] = cy + (x - cx);
+      }
+    }
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public int findKick(
+    GameBoard board,
+    Tetromino piece,
+    Tetromino rotated,
+    int x,
+    int y
+  ) {
+    int t = transition(piece, rotated);
+    int base = t * stride;
+    for (int k = 0; k < counts[t]; k++) {
+      if (board.canPlace(rotated, x + kickX[base + k], y + kickY[base + k])) {
+        return k;
+      }
+    }
+    return -1;
+  }
+
+  public int kickX(Tetromino piece, Tetromino rotated, int kick) {
+    return kickX[transition(piece, rotated) * stride + kick];
+  }
+
+  public int kickY(Tetromino piece, Tetromino rotated, int kick) {
+    return kickY[transition(piece, rotated) * stride + kick];
+  }
+
+  // Row of the tables for this turn; anything but clockwise counts as
+  // counterclockwise
+  private static int transition(Tetromino piece, Tetromino rotated) {
+    int from = piece.getRotation();
+    int dir = rotated.getRotation() == ((from + 1) & 3) ? 0 : 1;
+    return (piece.getType().ordinal() * 4 + from) * 2 + dir;
+  }
+
+  @Override
+  public String toString() {
+    return name;
+  }
+}
@@ -0,0 +1,88 @@
+package org;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Log-linear histogram of durations in nanoseconds, in the style of
+// HdrHistogram: values below 64 get exact buckets, above that every power
+// of two is split into 32 sub-buckets, so any value is reported within
+// about 3%. Recording is a few atomic adds with no locks or allocation
+// and may happen from any thread while others read.
+public class LatencyHistogram {
+
+  private static final int SUB_BITS = 5;
+  private static final int SUB_BUCKETS = 1 << SUB_BITS;
+  private static final int BUCKETS = 64 * SUB_BUCKETS;
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+  private final AtomicLong count = new AtomicLong();
+  private final AtomicLong total = new AtomicLong();
+  private final AtomicLong max = new AtomicLong();
+
+  public void record(long nanos) {
+    if (nanos < 0) nanos = 0;
+    counts.incrementAndGet(bucketOf(nanos));
+    count.incrementAndGet();
+    total.addAndGet(nanos);
+    long seen = max.get();
+    while (nanos > seen && !max.compareAndSet(seen, nanos)) seen = max.get();
+  }
+
+  public long getCount() {
+    return count.get();
+  }
+
+  public double getMeanNanos() {
+    long n = count.get();
+    return n == 0 ? 0.0 : (double) total.get() / n;
+  }
+
+  public long getMaxNanos() {
+    return max.get();
+  }
+
+  // Upper bound of the bucket holding the given percentile (0-100)
+  public long getPercentileNanos(double percentile) {
+    long n = count.get();
+    if (n == 0) return 0;
+    long rank = (long) Math.ceil(n * Math.min(100.0, percentile) / 100.0);
+    if (rank < 1) rank = 1;
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += counts.get(i);
+      if (seen >= rank) return Math.min(bucketHigh(i), max.get());
+    }
+    return max.get();
+  }
+
+  // Not atomic with concurrent recording; fine for a stats reset
+  public void reset() {
+    for (int i = 0; i < BUCKETS; i++) counts.set(i, 0);
+    count.set(0);
+    total.set(0);
+    max.set(0);
+  }
+
+  static int bucketOf(long value) {
+    int shift = Math.max(0, 63 - Long.numberOfLeadingZeros(value) - SUB_BITS);
+    return shift * SUB_BUCKETS + (int) (value >>> shift);
+  }
+
+  static long bucketHigh(int index) {
+    int shift = index < 2 * SUB_BUCKETS ? 0 : index / SUB_BUCKETS - 1;
+    long low = (long) (index - shift * SUB_BUCKETS) << shift;
+    return low + (1L << shift) - 1;
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+      "n=%d mean=%.1fus p50=%.1fus p99=%.1fus max=%.1fus",
+      getCount(),
+      getMeanNanos() / 1e3,
+      getPercentileNanos(50) / 1e3,
+      getPercentileNanos(99) / 1e3,
+      getMaxNanos() / 1e3
+    );
+  }
+}
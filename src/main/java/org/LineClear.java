@@ -0,0 +1,50 @@
+package org;
+
+// Packed result of a line clear, so the hot path returns a single long:
+// bits 0-12 hold the number of cleared rows, bits 13-31 the bottom-most
+// cleared row and bits 32-63 a mask where bit i means row (bottom - i) was
+// cleared. The count and row fields hold any board up to Board.MAX_SIZE
+// rows, every one of them cleared; only the first 32 rows from the bottom
+// clear are in the mask.
+public final class LineClear {
+
+  public static final long NONE = 0L;
+
+  private static final int ROW_SHIFT = 13;
+  private static final long COUNT_MASK = (1L << ROW_SHIFT) - 1;
+  private static final long ROW_MASK = (1L << (32 - ROW_SHIFT)) - 1;
+
+  private LineClear() {}
+
+  // Adds a cleared row; rows must be added bottom-up (descending y)
+  static long add(long result, int row) {
+    int count = count(result);
+    if (count == 0) {
+      return 1L | ((long) row << ROW_SHIFT) | (1L << 32);
+    }
+    int offset = bottomRow(result) - row;
+    long mask = offset < 32 ? 1L << (32 + offset) : 0L;
+    return (result | mask) + 1L;
+  }
+
+  public static int count(long result) {
+    return (int) (result & COUNT_MASK);
+  }
+
+  // Bottom-most cleared row, or -1 if nothing was cleared
+  public static int bottomRow(long result) {
+    if (count(result) == 0) return -1;
+    return (int) ((result >>> ROW_SHIFT) & ROW_MASK);
+  }
+
+  // Bit i set means row bottomRow - i was cleared
+  public static int rowMask(long result) {
+    return (int) (result >>> 32);
+  }
+
+  public static boolean isCleared(long result, int row) {
+    int offset = bottomRow(result) - row;
+    if (count(result) == 0 || offset < 0 || offset >= 32) return false;
+    return (rowMask(result) & (1 << offset)) != 0;
+  }
+}
@@ -1,6 +1,8 @@
 package org;
 
+import java.awt.Dimension;
 import javax.swing.JFrame;
+import javax.swing.JScrollPane;
 import javax.swing.SwingUtilities;
 
 public class Main {
@@ -14,7 +16,23 @@ public class Main {
           frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
 
           TetrisPanel panel = new TetrisPanel();
-          frame.setContentPane(panel);
+          Dimension size = panel.getPreferredSize();
+          int maxW = GameRenderer.MAX_BOARD_W + GameRenderer.SIDE_W;
+          int maxH = GameRenderer.MAX_BOARD_H;
+          if (size.width > maxW || size.height > maxH) {
+            // Boards too big even at the smallest cell size scroll; the
+            // renderer only paints the rows in view
+            JScrollPane scroll = new JScrollPane(panel);
+            scroll.setPreferredSize(
+              new Dimension(
+                Math.min(size.width, maxW) + 20,
+                Math.min(size.height, maxH) + 20
+              )
+            );
+            frame.setContentPane(scroll);
+          } else {
+            frame.setContentPane(panel);
+          }
           frame.pack();
           frame.setResizable(false);
           frame.setLocationRelativeTo(null);
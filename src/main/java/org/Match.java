@@ -0,0 +1,120 @@
+package org;
+
+import java.util.SplittableRandom;
+
+// One authoritative game per player, all dealt the same piece sequence.
+// Lines a player sends (see GameEngine.ATTACK) become garbage for an
+// opponent: the other player in head-to-head, the next player still alive
+// in larger matches. Each player's engine keeps its own clock, so an input
+// lands at the time it arrived rather than at the next tick. Not thread
+// safe; the server drives every match from its selector thread.
+public class Match {
+
+  public static final int MAX_PLAYERS = 99;
+
+  private static final int MATCH_CONTROLS =
+    GameInput.RESTART | GameInput.UNDO | GameInput.REDO;
+
+  private final long seed;
+  private final GameEngine[] engines;
+  private final long[] clocks; // time each engine has been advanced to
+  private final int[] places; // 0 while playing, then the finishing place
+  private final SplittableRandom holes;
+  private int alive;
+
+  public Match(long seed, int players, int cols, int rows, long startNanos) {
+    if (players < 2 || players > MAX_PLAYERS) {
+      throw new IllegalArgumentException("Players " + players);
+    }
+    this.seed = seed;
+    engines = new GameEngine[players];
+    clocks = new long[players];
+    places = new int[players];
+    for (int p = 0; p < players; p++) {
+      engines[p] = new GameEngine(seed, cols, rows);
+      clocks[p] = startNanos;
+    }
+    holes = new SplittableRandom(seed);
+    alive = players;
+  }
+
+  // Applies a player's input at time nanos; players cannot restart,
+  // undo or redo mid-match
+  public void input(int player, int input, long nanos) {
+    if (places[player] != 0) return;
+    advance(player, nanos);
+    engines[player].step(input & ~MATCH_CONTROLS, 0);
+    settle(player);
+  }
+
+  // Runs gravity and auto-shift for every player still in up to nanos
+  public void advanceTo(long nanos) {
+    for (int p = 0; p < engines.length; p++) {
+      if (places[p] != 0) continue;
+      advance(p, nanos);
+      settle(p);
+    }
+  }
+
+  // A player that leaves is out, as if it had topped out
+  public void forfeit(int player) {
+    if (places[player] == 0) finish(player);
+  }
+
+  // Queues lines of garbage on the opponent of a player, with one random
+  // hole column per attack
+  void sendAttack(int from, int lines) {
+    if (lines <= 0 || alive < 2) return;
+    int target = from;
+    do {
+      target = (target + 1) % engines.length;
+    } while (places[target] != 0);
+    int cols = engines[target].getBoard().getWidth();
+    engines[target].receiveGarbage(lines, holes.nextInt(cols));
+  }
+
+  private void advance(int player, long nanos) {
+    long elapsed = nanos - clocks[player];
+    if (elapsed <= 0) return;
+    engines[player].step(GameInput.NONE, elapsed);
+    clocks[player] = nanos;
+  }
+
+  private void settle(int player) {
+    GameEngine engine = engines[player];
+    sendAttack(player, engine.takeAttack());
+    if (engine.isGameOver()) finish(player);
+  }
+
+  private void finish(int player) {
+    places[player] = alive;
+    alive--;
+    if (alive == 1) {
+      for (int p = 0; p < places.length; p++) {
+        if (places[p] == 0) places[p] = 1;
+      }
+      alive = 0;
+    }
+  }
+
+  public long getSeed() {
+    return seed;
+  }
+
+  public int getPlayers() {
+    return engines.length;
+  }
+
+  public GameEngine getEngine(int player) {
+    return engines[player];
+  }
+
+  // 0 while the player is still in, otherwise 1 for the winner and so on
+  public int getPlace(int player) {
+    return places[player];
+  }
+
+  public boolean isFinished() {
+    return alive == 0;
+  }
+}
@@ -0,0 +1,98 @@
+package org;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+// Blocking client for MatchServer, used by the thin-client mode of
+// TetrisPanel and by tests. Frames are read on the caller's thread and
+// handed to a Listener; sends may come from any thread.
+public class MatchClient implements Closeable {
+
+  public interface Listener {
+    void started(long seed, int player, int players, int cols, int rows);
+
+    // snapshot is reused by the next call
+    void state(long[] snapshot, int count);
+
+    void result(int player, int place);
+  }
+
+  private final SocketChannel channel;
+  private final ByteBuffer in = ByteBuffer.allocate(
+    2 + MatchProtocol.MAX_PAYLOAD + 1
+  );
+  private final ByteBuffer out = ByteBuffer.allocate(16);
+  private long[] snapshot = new long[0];
+
+  public MatchClient(String host, int port) throws IOException {
+    channel = SocketChannel.open(new InetSocketAddress(host, port));
+    channel.socket().setTcpNoDelay(true);
+  }
+
+  public synchronized void join(int players) throws IOException {
+    MatchProtocol.putJoin(out, players);
+    send();
+  }
+
+  public synchronized void sendInput(int input) throws IOException {
+    MatchProtocol.putInput(out, input);
+    send();
+  }
+
+  // Reads frames until the server closes the connection
+  public void run(Listener listener) throws IOException {
+    while (readFrame(listener)) {
+      // dispatched
+    }
+  }
+
+  // Blocks for the next frame and dispatches it; false once the server has
+  // closed the connection
+  public boolean readFrame(Listener listener) throws IOException {
+    in.flip();
+    int length;
+    while ((length = MatchProtocol.frameLength(in)) < 0) {
+      in.compact();
+      if (channel.read(in) < 0) return false;
+      in.flip();
+    }
+    int end = in.position() + 2 + length;
+    in.getShort();
+    if (length < 1) throw new IOException("Empty frame");
+    int type = in.get() & 0xff;
+    if (type == MatchProtocol.START) {
+      long seed = in.getLong();
+      int player = in.get() & 0xff;
+      int players = in.get() & 0xff;
+      int cols = in.getShort() & 0xffff;
+      int rows = in.getShort() & 0xffff;
+      listener.started(seed, player, players, cols, rows);
+    } else if (type == MatchProtocol.STATE) {
+      int count = in.getShort() & 0xffff;
+      if (snapshot.length < count) snapshot = new long[count];
+      for (int i = 0; i < count; i++) snapshot[i] = in.getLong();
+      listener.state(snapshot, count);
+    } else if (type == MatchProtocol.RESULT) {
+      int player = in.get() & 0xff;
+      int place = in.get() & 0xff;
+      listener.result(player, place);
+    }
+    // Unknown types are skipped, so servers can add messages
+    in.position(end);
+    in.compact();
+    return true;
+  }
+
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  private void send() throws IOException {
+    out.flip();
+    while (out.hasRemaining()) channel.write(out);
+    out.clear();
+  }
+}
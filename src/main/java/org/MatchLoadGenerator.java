@@ -0,0 +1,276 @@
+package org;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.SplittableRandom;
+
+// Load harness for MatchServer: opens matches * players non-blocking
+// connections from one selector thread and joins them all. Every player
+// then sends random inputs (mostly moves and rotations, a hard drop now
+// and then) until its match ends, and joins again. Reports matches
+// finished, states received, bytes per second and the time from an input
+// to the next state. --local starts a server in the same process.
+//
+// Usage: MatchLoadGenerator [--host H] [--port P] [--local]
+//                           [--matches M] [--players N] [--seconds S]
+//                           [--inputs-per-second R]
+public class MatchLoadGenerator {
+
+  private static final int[] MOVES = {
+    GameInput.MOVE_LEFT,
+    GameInput.MOVE_RIGHT,
+    GameInput.ROTATE_CW,
+    GameInput.ROTATE_CCW,
+    GameInput.SOFT_DROP_PRESS,
+    GameInput.SOFT_DROP_RELEASE,
+  };
+
+  private final Selector selector;
+  private final Player[] players;
+  private final int matchSize;
+  private final long inputPeriodNanos;
+
+  private long states;
+  private long bytes;
+  private long matchesFinished; // counted by each match's winner
+  private final LatencyHistogram inputToState = new LatencyHistogram();
+
+  public MatchLoadGenerator(
+    String host,
+    int port,
+    int matches,
+    int matchSize,
+    int inputsPerSecond
+  ) throws IOException {
+    this.matchSize = matchSize;
+    inputPeriodNanos = 1_000_000_000L / Math.max(1, inputsPerSecond);
+    selector = Selector.open();
+    players = new Player[matches * matchSize];
+    SplittableRandom seeds = new SplittableRandom(1L);
+    for (int i = 0; i < players.length; i++) {
+      SocketChannel channel = SocketChannel.open(
+        new InetSocketAddress(host, port)
+      );
+      channel.socket().setTcpNoDelay(true);
+      channel.configureBlocking(false);
+      Player player = new Player(channel, seeds.split());
+      channel.register(selector, SelectionKey.OP_READ, player);
+      players[i] = player;
+      player.join(matchSize);
+    }
+  }
+
+  // Plays until durationNanos have passed
+  public void run(long durationNanos) throws IOException {
+    long start = System.nanoTime();
+    long end = start + durationNanos;
+    while (true) {
+      long now = System.nanoTime();
+      if (now - end >= 0) break;
+      selector.select(1L);
+      Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+      while (keys.hasNext()) {
+        SelectionKey key = keys.next();
+        keys.remove();
+        if (key.isValid() && key.isReadable()) {
+          read((Player) key.attachment());
+        }
+      }
+      now = System.nanoTime();
+      for (Player player : players) {
+        if (player.playing && now - player.nextInputNanos >= 0) {
+          player.sendRandomInput(now);
+          player.nextInputNanos = now + inputPeriodNanos;
+        }
+      }
+    }
+  }
+
+  private void read(Player player) throws IOException {
+    ByteBuffer in = player.in;
+    int read = player.channel.read(in);
+    if (read < 0) throw new IOException("Server closed a connection");
+    bytes += read;
+    in.flip();
+    boolean over = false;
+    int length;
+    while ((length = MatchProtocol.frameLength(in)) >= 0) {
+      int end = in.position() + 2 + length;
+      in.getShort();
+      int type = in.get() & 0xff;
+      if (type == MatchProtocol.START) {
+        in.getLong();
+        player.index = in.get() & 0xff;
+        player.playing = true;
+      } else if (type == MatchProtocol.STATE) {
+        states++;
+        if (player.inputSentNanos != 0) {
+          inputToState.record(System.nanoTime() - player.inputSentNanos);
+          player.inputSentNanos = 0;
+        }
+      } else if (type == MatchProtocol.RESULT) {
+        int who = in.get() & 0xff;
+        int place = in.get() & 0xff;
+        if (who == player.index) player.playing = false;
+        // The winner is announced last, when the match is over
+        if (place == 1) {
+          if (who == player.index) matchesFinished++;
+          over = true;
+        }
+      }
+      in.position(end);
+    }
+    in.compact();
+    if (over) player.join(matchSize);
+  }
+
+  public long getStates() {
+    return states;
+  }
+
+  public long getBytes() {
+    return bytes;
+  }
+
+  public long getMatchesFinished() {
+    return matchesFinished;
+  }
+
+  public LatencyHistogram getInputToState() {
+    return inputToState;
+  }
+
+  public void close() throws IOException {
+    for (Player player : players) player.channel.close();
+    selector.close();
+  }
+
+  private static final class Player {
+
+    final SocketChannel channel;
+    final SplittableRandom random;
+    final ByteBuffer in = ByteBuffer.allocate(64 * 1024);
+    final ByteBuffer out = ByteBuffer.allocate(64);
+    int index;
+    boolean playing;
+    long nextInputNanos;
+    long inputSentNanos;
+
+    Player(SocketChannel channel, SplittableRandom random) {
+      this.channel = channel;
+      this.random = random;
+    }
+
+    void join(int matchSize) throws IOException {
+      MatchProtocol.putJoin(out, matchSize);
+      send();
+    }
+
+    void sendRandomInput(long now) throws IOException {
+      int input = random.nextInt(8) == 0
+        ? GameInput.HARD_DROP
+        : MOVES[random.nextInt(MOVES.length)];
+      MatchProtocol.putInput(out, input);
+      send();
+      if (inputSentNanos == 0) inputSentNanos = now;
+    }
+
+    // Frames are a few bytes, so a partial write only delays them
+    private void send() throws IOException {
+      out.flip();
+      channel.write(out);
+      out.compact();
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+    String host = "127.0.0.1";
+    int port = MatchServer.DEFAULT_PORT;
+    boolean local = false;
+    int matches = 200;
+    int matchSize = 2;
+    int seconds = 10;
+    int inputsPerSecond = 10;
+    for (int i = 0; i < args.length; i++) {
+      if (args[i].equals("--local")) {
+        local = true;
+        continue;
+      }
+      if (i + 1 >= args.length) {
+        throw new IllegalArgumentException("Missing value for " + args[i]);
+      }
+      String value = args[++i];
+      switch (args[i - 1]) {
+        case "--host":
+          host = value;
+          break;
+        case "--port":
+          port = Integer.parseInt(value);
+          break;
+        case "--matches":
+          matches = Integer.parseInt(value);
+          break;
+        case "--players":
+          matchSize = Integer.parseInt(value);
+          break;
+        case "--seconds":
+          seconds = Integer.parseInt(value);
+          break;
+        case "--inputs-per-second":
+          inputsPerSecond = Integer.parseInt(value);
+          break;
+        default:
+          throw new IllegalArgumentException("Unknown option " + args[i - 1]);
+      }
+    }
+
+    MatchServer server = null;
+    if (local) {
+      server = new MatchServer(
+        new InetSocketAddress("127.0.0.1", 0),
+        Board.COLS,
+        Board.ROWS
+      );
+      server.start();
+      port = server.getPort();
+    }
+    MatchLoadGenerator load = new MatchLoadGenerator(
+      host,
+      port,
+      matches,
+      matchSize,
+      inputsPerSecond
+    );
+    long start = System.nanoTime();
+    load.run(seconds * 1_000_000_000L);
+    double wall = (System.nanoTime() - start) / 1e9;
+    load.close();
+
+    System.err.printf(
+      "%d connections, %d matches finished (%.1f/s), %.0f states/s, %.2f MB/s%n",
+      matches * matchSize,
+      load.getMatchesFinished(),
+      load.getMatchesFinished() / wall,
+      load.getStates() / wall,
+      load.getBytes() / wall / 1e6
+    );
+    System.err.printf(
+      "input to state p50 %.2fms p99 %.2fms%n",
+      load.getInputToState().getPercentileNanos(50) / 1e6,
+      load.getInputToState().getPercentileNanos(99) / 1e6
+    );
+    if (server != null) {
+      System.err.printf(
+        "server tick mean %.0fus p99 %.0fus%n",
+        server.getTickTimes().getMeanNanos() / 1e3,
+        server.getTickTimes().getPercentileNanos(99) / 1e3
+      );
+      server.close();
+    }
+  }
+}
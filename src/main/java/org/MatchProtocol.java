@@ -0,0 +1,83 @@
+package org;
+
+import java.nio.ByteBuffer;
+
+// Binary framing shared by MatchServer and its clients. Every frame is a
+// big-endian u16 length (of what follows), a u8 type and the payload:
+//
+//   client to server
+//     JOIN    u8 players (2 = head-to-head, more = battle royale)
+//     INPUT   u16 GameInput flags
+//   server to client
+//     START   i64 seed, u8 player, u8 players, u16 cols, u16 rows
+//     STATE   u16 count, count x i64 GameEngine snapshot of the player
+//     RESULT  u8 player, u8 place (1 = winner)
+public final class MatchProtocol {
+
+  public static final int JOIN = 1;
+  public static final int INPUT = 2;
+  public static final int START = 16;
+  public static final int STATE = 17;
+  public static final int RESULT = 18;
+
+  static final int HEADER = 3; // length and type
+  static final int MAX_PAYLOAD = 0xffff - 1;
+
+  private MatchProtocol() {}
+
+  static void putJoin(ByteBuffer out, int players) {
+    header(out, JOIN, 1);
+    out.put((byte) players);
+  }
+
+  static void putInput(ByteBuffer out, int input) {
+    header(out, INPUT, 2);
+    out.putShort((short) input);
+  }
+
+  static void putStart(
+    ByteBuffer out,
+    long seed,
+    int player,
+    int players,
+    int cols,
+    int rows
+  ) {
+    header(out, START, 14);
+    out.putLong(seed);
+    out.put((byte) player);
+    out.put((byte) players);
+    out.putShort((short) cols);
+    out.putShort((short) rows);
+  }
+
+  static int stateSize(int count) {
+    return HEADER + 2 + 8 * count;
+  }
+
+  static void putState(ByteBuffer out, long[] snapshot, int count) {
+    header(out, STATE, 2 + 8 * count);
+    out.putShort((short) count);
+    for (int i = 0; i < count; i++) out.putLong(snapshot[i]);
+  }
+
+  static void putResult(ByteBuffer out, int player, int place) {
+    header(out, RESULT, 2);
+    out.put((byte) player);
+    out.put((byte) place);
+  }
+
+  // Length field (type plus payload) of the frame at the buffer's position,
+  // which is left unchanged, or -1 if the frame has not fully arrived
+  static int frameLength(ByteBuffer in) {
+    if (in.remaining() < 2) return -1;
+    int length = in.getShort(in.position()) & 0xffff;
+    if (in.remaining() < 2 + length) return -1;
+    return length;
+  }
+
+  private static void header(ByteBuffer out, int type, int payload) {
+    out.putShort((short) (payload + 1));
+    out.put((byte) type);
+  }
+}
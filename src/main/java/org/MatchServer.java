@@ -0,0 +1,440 @@
+package org;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Hosts matches over TCP on a single thread: one NIO selector accepts
+// connections and reads JOIN and INPUT frames, and in between steps every
+// running match each TICK_NANOS. A player is sent the snapshot of its own
+// game whenever it changed (see MatchProtocol). States replace each other,
+// so one that does not fit a slow client's buffer is simply sent later.
+//
+// Usage: MatchServer [--port P] [--cols C] [--rows R]
+public class MatchServer implements Closeable {
+
+  public static final int DEFAULT_PORT = 7420;
+  public static final long TICK_NANOS = 1_000_000_000L / 60;
+
+  private static final int READ_BUFFER = 1024;
+  private static final int WRITE_BUFFER = 16 * 1024;
+  private static final int RESERVE = 1024; // kept free for RESULT frames
+  private static final long NANOS_PER_MS = 1_000_000L;
+
+  private final Selector selector;
+  private final ServerSocketChannel server;
+  private final int cols;
+  private final int rows;
+  private final int stateLongs;
+  private final int writeBuffer;
+  private final SplittableRandom seeds = new SplittableRandom();
+
+  // Players waiting for a match, by match size
+  private final Map<Integer, List<Session>> lobby = new HashMap<
+    Integer,
+    List<Session>
+  >();
+  private final List<Game> games = new ArrayList<Game>();
+  private final long[] snapshot;
+
+  private Thread thread;
+  private volatile boolean running;
+
+  private final AtomicLong connections = new AtomicLong();
+  private final AtomicLong runningMatches = new AtomicLong();
+  private final AtomicLong matchesStarted = new AtomicLong();
+  private final AtomicLong bytesSent = new AtomicLong();
+  private final LatencyHistogram tickTimes = new LatencyHistogram();
+
+  public MatchServer(int port) throws IOException {
+    this(new InetSocketAddress(port), Board.COLS, Board.ROWS);
+  }
+
+  public MatchServer(InetSocketAddress address, int cols, int rows)
+    throws IOException {
+    Board.checkSize(cols, rows);
+    this.cols = cols;
+    this.rows = rows;
+    stateLongs = new GameEngine(0L, cols, rows).getSnapshotLongs();
+    if (MatchProtocol.stateSize(stateLongs) > MatchProtocol.MAX_PAYLOAD) {
+      throw new IllegalArgumentException("Board too large for match states");
+    }
+    snapshot = new long[stateLongs];
+    writeBuffer = Math.max(
+      WRITE_BUFFER,
+      4 * MatchProtocol.stateSize(stateLongs) + RESERVE
+    );
+    selector = Selector.open();
+    server = ServerSocketChannel.open();
+    server.configureBlocking(false);
+    server.bind(address);
+    server.register(selector, SelectionKey.OP_ACCEPT);
+  }
+
+  public int getPort() {
+    return server.socket().getLocalPort();
+  }
+
+  public void start() {
+    running = true;
+    thread = new Thread(
+      new Runnable() {
+        public void run() {
+          serve();
+        }
+      },
+      "match-server"
+    );
+    thread.start();
+  }
+
+  public void close() throws IOException {
+    running = false;
+    selector.wakeup();
+    if (thread != null && thread != Thread.currentThread()) {
+      try {
+        thread.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  public long getConnectionCount() {
+    return connections.get();
+  }
+
+  public long getRunningMatches() {
+    return runningMatches.get();
+  }
+
+  public long getMatchesStarted() {
+    return matchesStarted.get();
+  }
+
+  public long getBytesSent() {
+    return bytesSent.get();
+  }
+
+  // Time spent stepping all matches and sending their states, per tick
+  public LatencyHistogram getTickTimes() {
+    return tickTimes;
+  }
+
+  private void serve() {
+    long nextTick = System.nanoTime();
+    try {
+      while (running) {
+        long wait = nextTick - System.nanoTime();
+        if (wait > 0) {
+          selector.select(Math.max(1L, wait / NANOS_PER_MS));
+        } else {
+          selector.selectNow();
+        }
+        Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+        while (keys.hasNext()) {
+          SelectionKey key = keys.next();
+          keys.remove();
+          if (!key.isValid()) continue;
+          if (key.isAcceptable()) {
+            accept();
+            continue;
+          }
+          Session session = (Session) key.attachment();
+          if (key.isReadable()) read(session);
+          if (key.isValid() && key.isWritable()) flush(session);
+        }
+        long now = System.nanoTime();
+        if (now - nextTick >= 0) {
+          tick(now);
+          tickTimes.record(System.nanoTime() - now);
+          nextTick += TICK_NANOS;
+          // After a stall, carry on from now rather than catching up
+          if (now - nextTick > TICK_NANOS) nextTick = now + TICK_NANOS;
+        }
+      }
+    } catch (IOException e) {
+      System.err.println("Match server stopped: " + e.getMessage());
+    } finally {
+      for (SelectionKey key : selector.keys()) closeQuietly(key);
+      try {
+        selector.close();
+      } catch (IOException e) {
+        // already stopping
+      }
+    }
+  }
+
+  private void accept() throws IOException {
+    SocketChannel channel = server.accept();
+    if (channel == null) return;
+    channel.configureBlocking(false);
+    channel.socket().setTcpNoDelay(true);
+    SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+    key.attach(new Session(channel, key, writeBuffer));
+    connections.incrementAndGet();
+  }
+
+  private void read(Session session) {
+    ByteBuffer in = session.in;
+    int read;
+    try {
+      read = session.channel.read(in);
+    } catch (IOException e) {
+      read = -1;
+    }
+    if (read < 0) {
+      disconnect(session);
+      return;
+    }
+    in.flip();
+    int length;
+    while (
+      session.key.isValid() && (length = MatchProtocol.frameLength(in)) >= 0
+    ) {
+      int end = in.position() + 2 + length;
+      in.getShort();
+      if (length < 1 || !handle(session, in.get() & 0xff, length - 1)) {
+        disconnect(session);
+        return;
+      }
+      in.position(end);
+    }
+    if (!session.key.isValid()) return;
+    in.compact();
+    // No client frame comes near the buffer size
+    if (!in.hasRemaining()) disconnect(session);
+  }
+
+  // False for a frame the server does not accept
+  private boolean handle(Session session, int type, int payload) {
+    if (type == MatchProtocol.JOIN && payload >= 1) {
+      int players = session.in.get() & 0xff;
+      if (session.game != null || session.waitingFor != 0) return false;
+      if (players < 2 || players > Match.MAX_PLAYERS) return false;
+      join(session, players);
+      return true;
+    }
+    if (type == MatchProtocol.INPUT && payload >= 2) {
+      int input = session.in.getShort() & 0xffff;
+      Game game = session.game;
+      if (game == null) return true; // late input after a match ended
+      game.match.input(session.player, input, System.nanoTime());
+      sendState(session);
+      flush(session);
+      return true;
+    }
+    return false;
+  }
+
+  private void join(Session session, int players) {
+    Integer size = Integer.valueOf(players);
+    List<Session> waiting = lobby.get(size);
+    if (waiting == null) {
+      waiting = new ArrayList<Session>();
+      lobby.put(size, waiting);
+    }
+    waiting.add(session);
+    session.waitingFor = players;
+    if (waiting.size() < players) return;
+    lobby.remove(size);
+
+    long seed = seeds.nextLong();
+    Match match = new Match(seed, players, cols, rows, System.nanoTime());
+    Game game = new Game(match, waiting.toArray(new Session[players]));
+    for (int p = 0; p < players; p++) {
+      Session s = game.sessions[p];
+      s.game = game;
+      s.player = p;
+      s.waitingFor = 0;
+      s.sentChange = -1;
+      MatchProtocol.putStart(s.out, seed, p, players, cols, rows);
+      sendState(s);
+      flush(s);
+    }
+    games.add(game);
+    runningMatches.incrementAndGet();
+    matchesStarted.incrementAndGet();
+  }
+
+  private void tick(long now) {
+    Iterator<Game> it = games.iterator();
+    while (it.hasNext()) {
+      Game game = it.next();
+      game.match.advanceTo(now);
+      for (Session s : game.sessions) {
+        if (s != null) sendState(s);
+      }
+      sendResults(game);
+      for (Session s : game.sessions) {
+        if (s != null) flush(s);
+      }
+      if (game.match.isFinished()) {
+        for (Session s : game.sessions) {
+          if (s != null) s.game = null; // free to join again
+        }
+        it.remove();
+        runningMatches.decrementAndGet();
+      }
+    }
+  }
+
+  private void sendState(Session session) {
+    GameEngine engine = session.game.match.getEngine(session.player);
+    long change = engine.getChangeCount();
+    if (change == session.sentChange) return;
+    int size = MatchProtocol.stateSize(stateLongs);
+    if (session.out.remaining() < size + RESERVE) return; // try next tick
+    engine.saveTo(snapshot, 0);
+    MatchProtocol.putState(session.out, snapshot, stateLongs);
+    session.sentChange = change;
+  }
+
+  // Tells everyone in the match about players that just finished
+  private void sendResults(Game game) {
+    for (int p = 0; p < game.reported.length; p++) {
+      int place = game.match.getPlace(p);
+      if (place == 0 || game.reported[p]) continue;
+      game.reported[p] = true;
+      for (Session s : game.sessions) {
+        if (s == null) continue;
+        if (s.out.remaining() < MatchProtocol.HEADER + 2) {
+          disconnect(s); // not reading at all
+          continue;
+        }
+        MatchProtocol.putResult(s.out, p, place);
+      }
+    }
+  }
+
+  private void flush(Session session) {
+    if (session.out.position() == 0 || !session.key.isValid()) return;
+    ByteBuffer out = session.out;
+    out.flip();
+    try {
+      bytesSent.addAndGet(session.channel.write(out));
+    } catch (IOException e) {
+      out.clear();
+      disconnect(session);
+      return;
+    }
+    boolean pending = out.hasRemaining();
+    out.compact();
+    session.key.interestOps(
+      pending
+        ? SelectionKey.OP_READ | SelectionKey.OP_WRITE
+        : SelectionKey.OP_READ
+    );
+  }
+
+  private void disconnect(Session session) {
+    if (!session.key.isValid()) return;
+    if (session.waitingFor != 0) {
+      List<Session> waiting = lobby.get(Integer.valueOf(session.waitingFor));
+      if (waiting != null) waiting.remove(session);
+    }
+    Game game = session.game;
+    if (game != null) {
+      game.sessions[session.player] = null;
+      game.match.forfeit(session.player); // reported on the next tick
+    }
+    closeQuietly(session.key);
+    connections.decrementAndGet();
+  }
+
+  private static void closeQuietly(SelectionKey key) {
+    key.cancel();
+    try {
+      key.channel().close();
+    } catch (IOException e) {
+      // nothing left to do with it
+    }
+  }
+
+  private static final class Session {
+
+    final SocketChannel channel;
+    final SelectionKey key;
+    final ByteBuffer in = ByteBuffer.allocate(READ_BUFFER);
+    final ByteBuffer out; // in write mode between flushes
+    int waitingFor; // match size joined, 0 when not in the lobby
+    Game game;
+    int player;
+    long sentChange; // engine change count of the last state sent
+
+    Session(SocketChannel channel, SelectionKey key, int writeBuffer) {
+      this.channel = channel;
+      this.key = key;
+      out = ByteBuffer.allocate(writeBuffer);
+    }
+  }
+
+  private static final class Game {
+
+    final Match match;
+    final Session[] sessions; // null once a player has left
+    final boolean[] reported; // RESULT sent for this player
+
+    Game(Match match, Session[] sessions) {
+      this.match = match;
+      this.sessions = sessions;
+      reported = new boolean[sessions.length];
+    }
+  }
+
+  public static void main(String[] args) throws IOException {
+    int port = DEFAULT_PORT;
+    int cols = Board.COLS;
+    int rows = Board.ROWS;
+    for (int i = 0; i + 1 < args.length; i += 2) {
+      String value = args[i + 1];
+      switch (args[i]) {
+        case "--port":
+          port = Integer.parseInt(value);
+          break;
+        case "--cols":
+          cols = Integer.parseInt(value);
+          break;
+        case "--rows":
+          rows = Integer.parseInt(value);
+          break;
+        default:
+          throw new IllegalArgumentException("Unknown option " + args[i]);
+      }
+    }
+    MatchServer server = new MatchServer(
+      new InetSocketAddress(port),
+      cols,
+      rows
+    );
+    server.start();
+    System.err.println("Match server listening on port " + server.getPort());
+    while (true) {
+      try {
+        Thread.sleep(10_000L);
+      } catch (InterruptedException e) {
+        break;
+      }
+      System.err.printf(
+        "%d connections, %d matches running, %d started, tick p99 %.0fus%n",
+        server.getConnectionCount(),
+        server.getRunningMatches(),
+        server.getMatchesStarted(),
+        server.getTickTimes().getPercentileNanos(99) / 1e3
+      );
+    }
+    server.close();
+  }
+}
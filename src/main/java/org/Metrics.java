@@ -0,0 +1,165 @@
+package org;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+// Counters and latency histograms for the running game: logic tick and
+// paint durations, input-to-render latency, pieces and line clears. All
+// recording is lock-free and allocation-free, so it stays on in normal
+// play; values are read through JMX or the debug overlay.
+public class Metrics implements MetricsMXBean {
+
+  public static final String OBJECT_NAME = "org.tetris:type=Metrics";
+
+  private final LatencyHistogram tickNanos = new LatencyHistogram();
+  private final LatencyHistogram paintNanos = new LatencyHistogram();
+  private final LatencyHistogram inputToRenderNanos = new LatencyHistogram();
+  private final AtomicLong pieces = new AtomicLong();
+  private final AtomicLong linesCleared = new AtomicLong();
+  private final AtomicLong lineClears = new AtomicLong();
+  // Time of the oldest input not yet on screen, 0 if none
+  private final AtomicLong pendingInputNanos = new AtomicLong();
+  private volatile long startNanos = System.nanoTime();
+
+  public void recordTick(long nanos) {
+    tickNanos.record(nanos);
+  }
+
+  public void recordPaint(long nanos) {
+    paintNanos.record(nanos);
+  }
+
+  // Called by the engine for every locked piece
+  public void recordLock(int lines) {
+    pieces.incrementAndGet();
+    if (lines > 0) {
+      linesCleared.addAndGet(lines);
+      lineClears.incrementAndGet();
+    }
+  }
+
+  // An input changed what is on screen; the next paint completes it
+  public void markInput(long nanos) {
+    pendingInputNanos.compareAndSet(0, nanos);
+  }
+
+  public void markRendered(long nanos) {
+    long input = pendingInputNanos.getAndSet(0);
+    if (input != 0) inputToRenderNanos.record(nanos - input);
+  }
+
+  public LatencyHistogram getTickHistogram() {
+    return tickNanos;
+  }
+
+  public LatencyHistogram getPaintHistogram() {
+    return paintNanos;
+  }
+
+  public LatencyHistogram getInputToRenderHistogram() {
+    return inputToRenderNanos;
+  }
+
+  public long getTicks() {
+    return tickNanos.getCount();
+  }
+
+  public double getTickMeanMicros() {
+    return tickNanos.getMeanNanos() / 1e3;
+  }
+
+  public double getTickP99Micros() {
+    return tickNanos.getPercentileNanos(99) / 1e3;
+  }
+
+  public double getTickMaxMicros() {
+    return tickNanos.getMaxNanos() / 1e3;
+  }
+
+  public long getPaints() {
+    return paintNanos.getCount();
+  }
+
+  public double getPaintMeanMicros() {
+    return paintNanos.getMeanNanos() / 1e3;
+  }
+
+  public double getPaintP99Micros() {
+    return paintNanos.getPercentileNanos(99) / 1e3;
+  }
+
+  public double getPaintMaxMicros() {
+    return paintNanos.getMaxNanos() / 1e3;
+  }
+
+  public long getInputsRendered() {
+    return inputToRenderNanos.getCount();
+  }
+
+  public double getInputToRenderP50Micros() {
+    return inputToRenderNanos.getPercentileNanos(50) / 1e3;
+  }
+
+  public double getInputToRenderP99Micros() {
+    return inputToRenderNanos.getPercentileNanos(99) / 1e3;
+  }
+
+  public double getInputToRenderMaxMicros() {
+    return inputToRenderNanos.getMaxNanos() / 1e3;
+  }
+
+  public long getPieces() {
+    return pieces.get();
+  }
+
+  // Average since start or the last reset
+  public double getPiecesPerSecond() {
+    double seconds = (System.nanoTime() - startNanos) / 1e9;
+    return seconds > 0 ? pieces.get() / seconds : 0.0;
+  }
+
+  public long getLinesCleared() {
+    return linesCleared.get();
+  }
+
+  public long getLineClears() {
+    return lineClears.get();
+  }
+
+  public void reset() {
+    tickNanos.reset();
+    paintNanos.reset();
+    inputToRenderNanos.reset();
+    pieces.set(0);
+    linesCleared.set(0);
+    lineClears.set(0);
+    pendingInputNanos.set(0);
+    startNanos = System.nanoTime();
+  }
+
+  // Publishes this instance on the platform MBean server; false if that is
+  // unavailable or another instance is already registered
+  public boolean register() {
+    try {
+      ManagementFactory.getPlatformMBeanServer().registerMBean(
+        this,
+        new ObjectName(OBJECT_NAME)
+      );
+      return true;
+    } catch (JMException e) {
+      return false;
+    }
+  }
+
+  public void unregister() {
+    try {
+      ManagementFactory.getPlatformMBeanServer().unregisterMBean(
+        new ObjectName(OBJECT_NAME)
+      );
+    } catch (JMException e) {
+      // not registered
+    }
+  }
+}
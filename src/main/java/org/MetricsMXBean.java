@@ -0,0 +1,38 @@
+package org;
+
+// JMX view of Metrics; durations are in microseconds
+public interface MetricsMXBean {
+  long getTicks();
+
+  double getTickMeanMicros();
+
+  double getTickP99Micros();
+
+  double getTickMaxMicros();
+
+  long getPaints();
+
+  double getPaintMeanMicros();
+
+  double getPaintP99Micros();
+
+  double getPaintMaxMicros();
+
+  long getInputsRendered();
+
+  double getInputToRenderP50Micros();
+
+  double getInputToRenderP99Micros();
+
+  double getInputToRenderMaxMicros();
+
+  long getPieces();
+
+  double getPiecesPerSecond();
+
+  long getLinesCleared();
+
+  long getLineClears(); // locks that cleared at least one line
+
+  void reset();
+}
@@ -1,46 +1,99 @@
 package org;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
-import java.util.Random;
+import java.util.SplittableRandom;
 
 public class PieceFactory {
 
-  private final Random random = new Random();
-  private final List<Tetromino.Type> queue = new ArrayList<Tetromino.Type>();
+  public static final int PREVIEW = 7; // types that can be peeked ahead
+
+  private static final Tetromino.Type[] TYPES = Tetromino.Type.values();
+  private static final int RING_SIZE = 128; // power of two, > PREVIEW
+
+  // Pieces that can be rewound over, see mark/rewind
+  public static final int HISTORY = RING_SIZE - PREVIEW;
+
+  private final Randomizer randomizer;
+  // Upcoming type ordinals; head is the next to draw, tail the next to fill
+  private final int[] ring = new int[RING_SIZE];
+  private long head;
+  private long tail;
 
   public PieceFactory() {
+    this(new SplittableRandom().nextLong());
+  }
+
+  // Same seed gives the same piece sequence, for headless runs and replays
+  public PieceFactory(long seed) {
+    this(Randomizer.Kind.BAG.create(seed));
+  }
+
+  public PieceFactory(Randomizer randomizer) {
+    this.randomizer = randomizer;
     refillIfNeeded();
   }
 
   private void refillIfNeeded() {
-    while (queue.size() < 7) {
-      List<Tetromino.Type> bag = new ArrayList<Tetromino.Type>();
-      for (Tetromino.Type t : Tetromino.Type.values()) {
-        bag.add(t);
-      }
-      Collections.shuffle(bag, random);
-      queue.addAll(bag);
+    while (tail - head < PREVIEW) {
+      ring[(int) (tail & (RING_SIZE - 1))] = randomizer.next();
+      tail++;
     }
   }
 
   public Tetromino nextPiece() {
+    return Tetromino.of(nextType());
+  }
+
+  public Tetromino.Type nextType() {
+    int ord = ring[(int) (head & (RING_SIZE - 1))];
+    head++;
     refillIfNeeded();
-    Tetromino.Type t = queue.remove(0);
-    return new Tetromino(t);
+    return TYPES[ord];
+  }
+
+  // Allocation-free peek; index 0 is the next piece, up to PREVIEW - 1
+  public Tetromino.Type peekType(int index) {
+    if (index < 0 || index >= PREVIEW) {
+      throw new IndexOutOfBoundsException("Preview index " + index);
+    }
+    return TYPES[ring[(int) ((head + index) & (RING_SIZE - 1))]];
   }
 
   public List<Tetromino.Type> peekNextTypes(int count) {
-    refillIfNeeded();
-    int n = Math.min(count, queue.size());
+    int n = Math.min(count, PREVIEW);
     List<Tetromino.Type> list = new ArrayList<Tetromino.Type>(n);
-    for (int i = 0; i < n; i++) list.add(queue.get(i));
+    for (int i = 0; i < n; i++) list.add(peekType(i));
     return list;
   }
 
+  // Position in the sequence; rewind(mark) returns to it, as long as no
+  // more than HISTORY pieces were drawn since. Drawn types stay in the
+  // ring, so a rewound factory replays exactly the same pieces.
+  public long mark() {
+    return head;
+  }
+
+  public void rewind(long mark) {
+    if (mark > tail || tail - mark > RING_SIZE) {
+      throw new IllegalStateException("Mark " + mark + " is out of history");
+    }
+    head = mark;
+    refillIfNeeded();
+  }
+
+  // Like rewind, but a mark ahead of the queue is reached by drawing
+  // forward, so a mirror with the same seed can follow another factory
+  public void seek(long mark) {
+    while (tail < mark + PREVIEW) {
+      ring[(int) (tail & (RING_SIZE - 1))] = randomizer.next();
+      tail++;
+    }
+    rewind(mark);
+  }
+
   public void reset() {
-    queue.clear();
+    head = tail;
     refillIfNeeded();
   }
 }
@@ -0,0 +1,37 @@
+package org;
+
+// Moves the current piece to a target rotation and column using the normal
+// engine inputs (so kicks and collisions apply), then hard drops it.
+public final class PlacementDriver {
+
+  private PlacementDriver() {}
+
+  public static void drive(GameEngine engine, int rotation, int targetX) {
+    drive(engine, rotation, false, targetX);
+  }
+
+  // Turns only counterclockwise if asked, for rotations the clockwise
+  // turns cannot reach
+  public static void drive(
+    GameEngine engine,
+    int rotation,
+    boolean counterclockwise,
+    int targetX
+  ) {
+    int turn = counterclockwise ? GameInput.ROTATE_CCW : GameInput.ROTATE_CW;
+    // Pieces are immutable, so read the engine's piece after each turn
+    int turns = 0;
+    while (engine.getCurrent().getRotation() != rotation && turns++ < 4) {
+      engine.step(turn, 0);
+    }
+    int input = targetX < engine.getPieceX()
+      ? GameInput.MOVE_LEFT
+      : GameInput.MOVE_RIGHT;
+    while (engine.getPieceX() != targetX) {
+      int before = engine.getPieceX();
+      engine.step(input, 0);
+      if (engine.getPieceX() == before) break; // blocked
+    }
+    engine.step(GameInput.HARD_DROP, 0);
+  }
+}
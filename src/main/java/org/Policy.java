@@ -0,0 +1,12 @@
+package org;
+
+// Decides how to play the current piece of a GameEngine. Implementations
+// keep per-game state, so every simulated game gets its own instance.
+public interface Policy {
+  // Plays the engine's current piece until it locks (or the game ends)
+  void playPiece(GameEngine engine);
+
+  interface Factory {
+    Policy create(long seed);
+  }
+}
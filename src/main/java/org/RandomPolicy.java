@@ -0,0 +1,27 @@
+package org;
+
+import java.util.SplittableRandom;
+
+// Baseline policy: random rotation and column for every piece
+public class RandomPolicy implements Policy {
+
+  private final SplittableRandom random;
+
+  public RandomPolicy(long seed) {
+    random = new SplittableRandom(seed);
+  }
+
+  public void playPiece(GameEngine engine) {
+    PlacementDriver.drive(
+      engine,
+      random.nextInt(4),
+      random.nextInt(engine.getBoard().getWidth()) - 1
+    );
+  }
+
+  public static final Policy.Factory FACTORY = new Policy.Factory() {
+    public Policy create(long seed) {
+      return new RandomPolicy(seed);
+    }
+  };
+}
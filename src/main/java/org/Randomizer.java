@@ -0,0 +1,31 @@
+package org;
+
+import java.util.SplittableRandom;
+
+// Source of piece types for PieceFactory. Implementations draw from their
+// own SplittableRandom, so a split per game gives independent streams.
+public interface Randomizer {
+  // Ordinal of the next Tetromino.Type
+  int next();
+
+  enum Kind {
+    BAG, // 7-bag: every type once per shuffled bag
+    CLASSIC, // memoryless uniform pick
+    HISTORY; // re-rolls types seen in the last four pieces
+
+    public Randomizer create(SplittableRandom random) {
+      switch (this) {
+        case CLASSIC:
+          return new ClassicRandomizer(random);
+        case HISTORY:
+          return new HistoryRandomizer(random);
+        default:
+          return new BagRandomizer(random);
+      }
+    }
+
+    public Randomizer create(long seed) {
+      return create(new SplittableRandom(seed));
+    }
+  }
+}
@@ -0,0 +1,212 @@
+package org;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+// A recorded session: the piece seed plus every non-empty input given to
+// GameEngine.step, each stamped with the engine time elapsed since the
+// previous input. Replaying the inputs at those times on an engine with the
+// same seed reproduces the session exactly.
+//
+// Binary layout (varints are unsigned LEB128, see VarInt):
+//   "TRPL" magic, version byte, seed as 8 bytes
+//   varint board width, varint board height
+//   rotation system name as modified UTF-8
+//   flags byte, bit 0 set for a practice session
+//   per event: varint delta nanos, varint input mask (never 0)
+//   end marker: varint trailing nanos, varint 0
+//   outcome: varint score, varint total lines, game-over byte
+public class Replay {
+
+  private static final int MAGIC = 0x5452504C; // "TRPL"
+  private static final int VERSION = 1;
+  private static final int PRACTICE = 1;
+
+  private final long seed;
+  private final int width;
+  private final int height;
+  private final RotationSystem rotation;
+  private final boolean practice; // recorded with an UndoHistory
+  private final long[] deltaNanos;
+  private final int[] inputs;
+  private final int eventCount;
+  private final long trailingNanos;
+
+  // Outcome recorded with the session, used to detect engine regressions
+  private final int finalScore;
+  private final int finalLines;
+  private final boolean finalGameOver;
+
+  Replay(
+    long seed,
+    int width,
+    int height,
+    RotationSystem rotation,
+    boolean practice,
+    long[] deltaNanos,
+    int[] inputs,
+    int eventCount,
+    long trailingNanos,
+    int finalScore,
+    int finalLines,
+    boolean finalGameOver
+  ) {
+    this.seed = seed;
+    this.width = width;
+    this.height = height;
+    this.rotation = rotation;
+    this.practice = practice;
+    this.deltaNanos = deltaNanos;
+    this.inputs = inputs;
+    this.eventCount = eventCount;
+    this.trailingNanos = trailingNanos;
+    this.finalScore = finalScore;
+    this.finalLines = finalLines;
+    this.finalGameOver = finalGameOver;
+  }
+
+  public long getSeed() {
+    return seed;
+  }
+
+  public int getWidth() {
+    return width;
+  }
+
+  public int getHeight() {
+    return height;
+  }
+
+  public RotationSystem getRotationSystem() {
+    return rotation;
+  }
+
+  // Practice sessions can undo and redo, so they replay with history
+  public boolean isPractice() {
+    return practice;
+  }
+
+  public int getEventCount() {
+    return eventCount;
+  }
+
+  public long getDeltaNanos(int event) {
+    return deltaNanos[event];
+  }
+
+  public int getInput(int event) {
+    return inputs[event];
+  }
+
+  public long getTrailingNanos() {
+    return trailingNanos;
+  }
+
+  public int getFinalScore() {
+    return finalScore;
+  }
+
+  public int getFinalLines() {
+    return finalLines;
+  }
+
+  public boolean isFinalGameOver() {
+    return finalGameOver;
+  }
+
+  // Total engine time covered by the session
+  public long getDurationNanos() {
+    long total = trailingNanos;
+    for (int i = 0; i < eventCount; i++) total += deltaNanos[i];
+    return total;
+  }
+
+  public void write(OutputStream out) throws IOException {
+    DataOutputStream data = new DataOutputStream(out);
+    data.writeInt(MAGIC);
+    data.writeByte(VERSION);
+    data.writeLong(seed);
+    VarInt.writeInt(data, width);
+    VarInt.writeInt(data, height);
+    data.writeUTF(rotation.getName());
+    data.writeByte(practice ? PRACTICE : 0);
+    for (int i = 0; i < eventCount; i++) {
+      VarInt.writeLong(data, deltaNanos[i]);
+      VarInt.writeInt(data, inputs[i]);
+    }
+    VarInt.writeLong(data, trailingNanos);
+    VarInt.writeInt(data, GameInput.NONE);
+    VarInt.writeInt(data, finalScore);
+    VarInt.writeInt(data, finalLines);
+    data.writeByte(finalGameOver ? 1 : 0);
+    data.flush();
+  }
+
+  public byte[] toByteArray() {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try {
+      write(bytes);
+    } catch (IOException e) {
+      throw new IllegalStateException(e); // not thrown by in-memory streams
+    }
+    return bytes.toByteArray();
+  }
+
+  public static Replay read(InputStream in) throws IOException {
+    DataInputStream data = new DataInputStream(in);
+    if (data.readInt() != MAGIC) throw new IOException("Not a replay file");
+    int version = data.readUnsignedByte();
+    if (version != VERSION) {
+      throw new IOException("Unsupported replay version " + version);
+    }
+    long seed = data.readLong();
+    int width = VarInt.readInt(data);
+    int height = VarInt.readInt(data);
+    String name = data.readUTF();
+    RotationSystem rotation;
+    try {
+      rotation = RotationSystem.forName(name);
+    } catch (IllegalArgumentException e) {
+      throw new IOException("Unknown rotation system " + name);
+    }
+    boolean practice = (data.readUnsignedByte() & PRACTICE) != 0;
+    long[] deltas = new long[64];
+    int[] inputs = new int[64];
+    int count = 0;
+    while (true) {
+      long delta = VarInt.readLong(data);
+      int input = VarInt.readInt(data);
+      if (input == GameInput.NONE) {
+        int score = VarInt.readInt(data);
+        int lines = VarInt.readInt(data);
+        boolean gameOver = data.readUnsignedByte() != 0;
+        return new Replay(
+          seed,
+          width,
+          height,
+          rotation,
+          practice,
+          deltas,
+          inputs,
+          count,
+          delta,
+          score,
+          lines,
+          gameOver
+        );
+      }
+      if (count == deltas.length) {
+        deltas = Arrays.copyOf(deltas, count * 2);
+        inputs = Arrays.copyOf(inputs, count * 2);
+      }
+      deltas[count] = delta;
+      inputs[count] = input;
+      count++;
+    }
+  }
+}
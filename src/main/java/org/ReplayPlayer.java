@@ -0,0 +1,97 @@
+package org;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Re-runs replays on a headless engine as fast as the CPU allows.
+// As a program it checks a corpus of replay files against their recorded
+// outcomes: ReplayPlayer <file-or-directory>...
+public class ReplayPlayer {
+
+  // An engine set up like the one the replay was recorded on, before its
+  // first input. Everything that plays a replay starts from this.
+  public static GameEngine newEngine(Replay replay) {
+    GameEngine engine = new GameEngine(
+      replay.getSeed(),
+      replay.getWidth(),
+      replay.getHeight()
+    );
+    engine.setRotationSystem(replay.getRotationSystem());
+    // Only practice sessions record UNDO/REDO
+    if (replay.isPractice()) {
+      engine.setUndoHistory(new UndoHistory(UndoHistory.DEFAULT_CAPACITY));
+    }
+    return engine;
+  }
+
+  public static GameEngine play(Replay replay) {
+    GameEngine engine = newEngine(replay);
+    for (int i = 0; i < replay.getEventCount(); i++) {
+      engine.step(GameInput.NONE, replay.getDeltaNanos(i));
+      engine.step(replay.getInput(i), 0);
+    }
+    engine.step(GameInput.NONE, replay.getTrailingNanos());
+    return engine;
+  }
+
+  // True if replaying ends with the score, lines and state that were recorded
+  public static boolean matchesRecordedOutcome(Replay replay) {
+    GameEngine engine = play(replay);
+    return (
+      engine.getScoreboard().getScore() == replay.getFinalScore() &&
+      engine.getScoreboard().getTotalLines() == replay.getFinalLines() &&
+      engine.isGameOver() == replay.isFinalGameOver()
+    );
+  }
+
+  public static Replay load(File file) throws IOException {
+    InputStream in = new BufferedInputStream(new FileInputStream(file));
+    try {
+      return Replay.read(in);
+    } finally {
+      in.close();
+    }
+  }
+
+  public static void main(String[] args) throws IOException {
+    List<File> files = new ArrayList<File>();
+    for (String arg : args) collect(new File(arg), files);
+
+    int failures = 0;
+    long start = System.nanoTime();
+    long gameNanos = 0;
+    for (File file : files) {
+      Replay replay = load(file);
+      gameNanos += replay.getDurationNanos();
+      boolean ok = matchesRecordedOutcome(replay);
+      if (!ok) failures++;
+      System.out.println((ok ? "OK   " : "FAIL ") + file.getPath());
+    }
+    long wall = System.nanoTime() - start;
+    System.out.printf(
+      "%d replays, %d failed, %.1fs of play in %.3fs%n",
+      files.size(),
+      failures,
+      gameNanos / 1e9,
+      wall / 1e9
+    );
+    if (failures > 0) System.exit(1);
+  }
+
+  private static void collect(File file, List<File> out) {
+    if (file.isDirectory()) {
+      File[] children = file.listFiles();
+      if (children == null) return;
+      Arrays.sort(children);
+      for (File child : children) collect(child, out);
+    } else if (file.getName().endsWith(".trpl")) {
+      out.add(file);
+    }
+  }
+}
@@ -0,0 +1,55 @@
+package org;
+
+import java.util.Arrays;
+
+// Collects the inputs and elapsed time an engine sees; attach it with
+// GameEngine.setRecorder before the first step.
+public class ReplayRecorder {
+
+  private final long seed;
+  private long[] deltaNanos = new long[256];
+  private int[] inputs = new int[256];
+  private int eventCount;
+  private long pendingNanos; // engine time since the last recorded input
+
+  public ReplayRecorder(long seed) {
+    this.seed = seed;
+  }
+
+  // Mirrors GameEngine.step: input is applied first, then time advances
+  public void record(int input, long elapsedNanos) {
+    if (input != GameInput.NONE) {
+      if (eventCount == inputs.length) {
+        deltaNanos = Arrays.copyOf(deltaNanos, eventCount * 2);
+        inputs = Arrays.copyOf(inputs, eventCount * 2);
+      }
+      deltaNanos[eventCount] = pendingNanos;
+      inputs[eventCount] = input;
+      eventCount++;
+      pendingNanos = 0;
+    }
+    pendingNanos += elapsedNanos;
+  }
+
+  public int getEventCount() {
+    return eventCount;
+  }
+
+  // Snapshot of the session so far, with the engine's current outcome
+  public Replay toReplay(GameEngine engine) {
+    return new Replay(
+      seed,
+      engine.getBoard().getWidth(),
+      engine.getBoard().getHeight(),
+      engine.getRotationSystem(),
+      engine.getUndoHistory() != null,
+      Arrays.copyOf(deltaNanos, eventCount),
+      Arrays.copyOf(inputs, eventCount),
+      eventCount,
+      pendingNanos,
+      engine.getScoreboard().getScore(),
+      engine.getScoreboard().getTotalLines(),
+      engine.isGameOver()
+    );
+  }
+}
@@ -0,0 +1,36 @@
+package org;
+
+// How pieces turn: the offsets tried, in order, after a quarter turn until
+// the rotated piece fits. Implementations keep their kicks in precomputed
+// tables, so resolving a rotation allocates nothing.
+public interface RotationSystem {
+  // Guideline Super Rotation System, the default
+  RotationSystem SRS = KickTable.srs();
+
+  // The original kicks: the same six offsets for every piece and turn
+  RotationSystem LEGACY = KickTable.legacy();
+
+  // Name used by -Dtetris.rotation and saved with replays
+  String getName();
+
+  // Index of the first kick that lets rotated, a quarter turn from piece,
+  // fit at (x, y) plus that kick, or -1 if none does
+  int findKick(
+    GameBoard board,
+    Tetromino piece,
+    Tetromino rotated,
+    int x,
+    int y
+  );
+
+  // Offset of a kick found by findKick for the same turn
+  int kickX(Tetromino piece, Tetromino rotated, int kick);
+
+  int kickY(Tetromino piece, Tetromino rotated, int kick);
+
+  static RotationSystem forName(String name) {
+    if (SRS.getName().equals(name)) return SRS;
+    if (LEGACY.getName().equals(name)) return LEGACY;
+    throw new IllegalArgumentException("Unknown rotation system " + name);
+  }
+}
@@ -0,0 +1,207 @@
+package org;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+// One finished game as kept by ScoreStore. Records have a fixed size, so
+// the n-th record of the log is found without reading the ones before it.
+//
+// Layout (64 bytes, big-endian):
+//   0  finished at, epoch millis     8  seed
+//   16 play time, nanos              24 replay pointer (-1 for none)
+//   32 score    36 lines    40 level
+//   44 player name, UTF-8, zero padded to 16 bytes
+//   60 CRC-32 of bytes 0-59
+public final class ScoreRecord {
+
+  public static final int BYTES = 64;
+  public static final int MAX_PLAYER_BYTES = 16;
+
+  private static final int CRC_OFFSET = BYTES - 4;
+
+  private final String player;
+  private final int score;
+  private final int lines;
+  private final int level;
+  private final long playNanos;
+  private final long seed;
+  private final long finishedMillis;
+  private final long replay;
+
+  // Player names longer than MAX_PLAYER_BYTES are cut to fit. The replay
+  // pointer is up to the caller, e.g. the position of the game in a replay
+  // archive.
+  public ScoreRecord(
+    String player,
+    int score,
+    int lines,
+    int level,
+    long playNanos,
+    long seed,
+    long finishedMillis,
+    long replay
+  ) {
+    if (score < 0 || lines < 0 || level < 0) {
+      throw new IllegalArgumentException(
+        "Score " + score + ", lines " + lines + ", level " + level
+      );
+    }
+    this.player = fitPlayer(player);
+    this.score = score;
+    this.lines = lines;
+    this.level = level;
+    this.playNanos = playNanos;
+    this.seed = seed;
+    this.finishedMillis = finishedMillis;
+    this.replay = replay;
+  }
+
+  public static ScoreRecord of(
+    GameEngine engine,
+    String player,
+    long finishedMillis,
+    long replay
+  ) {
+    Scoreboard scoreboard = engine.getScoreboard();
+    return new ScoreRecord(
+      player,
+      scoreboard.getScore(),
+      scoreboard.getTotalLines(),
+      scoreboard.getLevel(),
+      engine.getPlayNanos(),
+      engine.getSeed(),
+      finishedMillis,
+      replay
+    );
+  }
+
+  // The longest prefix of name that fits in MAX_PLAYER_BYTES of UTF-8
+  static String fitPlayer(String name) {
+    int bytes = 0;
+    for (int i = 0; i < name.length(); i = name.offsetByCodePoints(i, 1)) {
+      int c = name.codePointAt(i);
+      bytes += c < 0x80 ? 1 : c < 0x800 ? 2 : c < 0x10000 ? 3 : 4;
+      if (bytes > MAX_PLAYER_BYTES) return name.substring(0, i);
+    }
+    return name;
+  }
+
+  // Writes the record, checksum included, at the buffer's position
+  void writeTo(ByteBuffer out, CRC32 crc) {
+    int start = out.position();
+    out.putLong(finishedMillis);
+    out.putLong(seed);
+    out.putLong(playNanos);
+    out.putLong(replay);
+    out.putInt(score);
+    out.putInt(lines);
+    out.putInt(level);
+    byte[] name = player.getBytes(StandardCharsets.UTF_8);
+    out.put(name);
+    for (int i = name.length; i < MAX_PLAYER_BYTES; i++) out.put((byte) 0);
+    out.putInt(checksum(out, start, crc));
+  }
+
+  // Reads a record written by writeTo, or returns null if its checksum
+  // does not match
+  static ScoreRecord readFrom(ByteBuffer in, CRC32 crc) {
+    int start = in.position();
+    if (in.getInt(start + CRC_OFFSET) != checksum(in, start, crc)) {
+      return null;
+    }
+    long finishedMillis = in.getLong();
+    long seed = in.getLong();
+    long playNanos = in.getLong();
+    long replay = in.getLong();
+    int score = in.getInt();
+    int lines = in.getInt();
+    int level = in.getInt();
+    byte[] name = new byte[MAX_PLAYER_BYTES];
+    in.get(name);
+    in.getInt();
+    int length = 0;
+    while (length < name.length && name[length] != 0) length++;
+    if (score < 0 || lines < 0 || level < 0) return null;
+    return new ScoreRecord(
+      new String(name, 0, length, StandardCharsets.UTF_8),
+      score,
+      lines,
+      level,
+      playNanos,
+      seed,
+      finishedMillis,
+      replay
+    );
+  }
+
+  private static int checksum(ByteBuffer buffer, int start, CRC32 crc) {
+    ByteBuffer body = buffer.duplicate();
+    body.limit(start + CRC_OFFSET).position(start);
+    crc.reset();
+    crc.update(body);
+    return (int) crc.getValue();
+  }
+
+  public String getPlayer() {
+    return player;
+  }
+
+  public int getScore() {
+    return score;
+  }
+
+  public int getLines() {
+    return lines;
+  }
+
+  public int getLevel() {
+    return level;
+  }
+
+  public long getPlayNanos() {
+    return playNanos;
+  }
+
+  public long getSeed() {
+    return seed;
+  }
+
+  public long getFinishedMillis() {
+    return finishedMillis;
+  }
+
+  public long getReplay() {
+    return replay;
+  }
+
+  // The same game with another replay pointer
+  public ScoreRecord withReplay(long replay) {
+    return new ScoreRecord(
+      player,
+      score,
+      lines,
+      level,
+      playNanos,
+      seed,
+      finishedMillis,
+      replay
+    );
+  }
+
+  @Override
+  public String toString() {
+    return (
+      player +
+      " " +
+      score +
+      " (" +
+      lines +
+      " lines, level " +
+      level +
+      ", " +
+      playNanos / 1_000_000_000L +
+      " s)"
+    );
+  }
+}
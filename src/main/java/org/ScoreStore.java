@@ -0,0 +1,621 @@
+package org;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+// Finished games on disk, in a directory holding two files:
+//
+// scores.log is append-only: a 16-byte header ("TSCL" magic, version) and
+// then fixed-size ScoreRecords, each with its own CRC-32. A record's
+// sequence number is its position in the log.
+//
+// scores.idx is a sorted index over the first indexed records of the log,
+// memory-mapped so queries read it without copying it onto the heap: a
+// 16-byte header ("TSCI" magic, version, record count), then one long per
+// record ordered best score first (ties oldest first), carrying the
+// sequence number in its low 32 bits, then two longs per record ordered by
+// player-name hash, then the same way: the hash and score, and the
+// sequence number. A player's best games are the start of their range.
+//
+// Records appended since the index was written are kept as the same keys
+// in small sorted arrays, merged with the index by every query. Once there
+// are tailLimit of them the index is rewritten by streaming the old one and
+// the tail into a new file, which replaces the old one by an atomic rename,
+// so the index on disk is always either the old or the new one.
+//
+// Opening recovers from a crash: the index is trusted (it only ever covers
+// records already forced to disk), every record after it is checked, and
+// the log is cut at the first torn or corrupt one. A missing or damaged
+// index is rebuilt from the log a tail at a time, so even millions of
+// records never sit on the heap at once. Not thread safe.
+//
+// openReadOnly opens a store for queries only: nothing is written, cut or
+// rebuilt, damaged records at the end are just left out, and records the
+// index does not cover are all kept in the tail.
+public class ScoreStore implements Closeable {
+
+  public static final String LOG_FILE = "scores.log";
+  public static final String INDEX_FILE = "scores.idx";
+  public static final int DEFAULT_TAIL_LIMIT = 1 << 16;
+
+  static final int HEADER = 16;
+  private static final int LOG_MAGIC = 0x5453434C; // "TSCL"
+  private static final int INDEX_MAGIC = 0x54534349; // "TSCI"
+  private static final int VERSION = 1;
+
+  // Sequence numbers fit in 32 bits, and both index sections in one mapping
+  private static final long MAX_RECORDS = 0xFFFFFFFFL;
+  private static final int ENTRY_BYTES = 8 + 16; // both sections, per record
+  private static final long MAX_INDEXED =
+    (Integer.MAX_VALUE - HEADER) / ENTRY_BYTES;
+
+  private final Path logPath;
+  private final Path indexPath;
+  private final FileChannel log;
+  private final int tailLimit;
+  private final boolean readOnly;
+  private boolean sync = true;
+
+  private long count; // records in the log
+  private long indexed; // records covered by the index
+  private MappedByteBuffer index; // null while nothing is indexed
+  private long recoveredBytes;
+
+  // Keys of the records after the index, in the same order as its sections
+  private long[] tailScores = new long[64];
+  private long[] tailPlayers = new long[128]; // key, sequence number pairs
+  private long[] sortScratch = new long[0];
+  private int tailSize;
+  private boolean tailSorted = true;
+
+  private final ByteBuffer record = ByteBuffer.allocate(ScoreRecord.BYTES);
+  private final CRC32 crc = new CRC32();
+
+  public ScoreStore(Path dir) throws IOException {
+    this(dir, DEFAULT_TAIL_LIMIT);
+  }
+
+  public ScoreStore(Path dir, int tailLimit) throws IOException {
+    this(dir, tailLimit, false);
+  }
+
+  private ScoreStore(Path dir, int tailLimit, boolean readOnly)
+    throws IOException {
+    if (tailLimit < 1) throw new IllegalArgumentException("Tail " + tailLimit);
+    this.tailLimit = tailLimit;
+    this.readOnly = readOnly;
+    logPath = dir.resolve(LOG_FILE);
+    indexPath = dir.resolve(INDEX_FILE);
+    if (readOnly) {
+      log = FileChannel.open(logPath, StandardOpenOption.READ);
+    } else {
+      Files.createDirectories(dir);
+      Files.deleteIfExists(tempIndexPath());
+      log = FileChannel.open(
+        logPath,
+        StandardOpenOption.CREATE,
+        StandardOpenOption.READ,
+        StandardOpenOption.WRITE
+      );
+    }
+    try {
+      recover();
+    } catch (IOException | RuntimeException e) {
+      log.close();
+      throw e;
+    }
+  }
+
+  // A store that only answers queries; the log must exist
+  public static ScoreStore openReadOnly(Path dir) throws IOException {
+    return new ScoreStore(dir, DEFAULT_TAIL_LIMIT, true);
+  }
+
+  public boolean isReadOnly() {
+    return readOnly;
+  }
+
+  // Whether every append waits until the record is on disk (the default);
+  // without it a crash can lose the last few games, but never the log
+  public void setSync(boolean sync) {
+    this.sync = sync;
+  }
+
+  // Appends a finished game and returns its sequence number
+  public long append(ScoreRecord score) throws IOException {
+    checkWritable();
+    if (count >= MAX_RECORDS) throw new IOException("Score log is full");
+    record.clear();
+    score.writeTo(record, crc);
+    record.flip();
+    long position = HEADER + count * ScoreRecord.BYTES;
+    while (record.hasRemaining()) position += log.write(record, position);
+    if (sync) log.force(false);
+    long seq = count++;
+    addToTail(score, seq);
+    if (tailSize >= tailLimit) compact();
+    return seq;
+  }
+
+  // The record with the given sequence number
+  public ScoreRecord get(long seq) throws IOException {
+    if (seq < 0 || seq >= count) {
+      throw new IndexOutOfBoundsException("Record " + seq + " of " + count);
+    }
+    ScoreRecord score = read(seq);
+    if (score == null) throw new IOException("Corrupt record " + seq);
+    return score;
+  }
+
+  // The n best games, best first; ties go to the earlier game
+  public List<ScoreRecord> top(int n) throws IOException {
+    sortTail();
+    List<ScoreRecord> result = new ArrayList<ScoreRecord>();
+    long i = 0;
+    int j = 0;
+    while (result.size() < n && (i < indexed || j < tailSize)) {
+      long key;
+      if (j == tailSize || (i < indexed && indexKey(0, i) < tailScores[j])) {
+        key = indexKey(0, i++);
+      } else {
+        key = tailScores[j++];
+      }
+      result.add(get(key & MAX_RECORDS));
+    }
+    return result;
+  }
+
+  // The n best games of one player, best first; ties go to the earlier game
+  public List<ScoreRecord> topForPlayer(String player, int n)
+    throws IOException {
+    sortTail();
+    String name = ScoreRecord.fitPlayer(player);
+    long first = playerKey(Integer.MAX_VALUE, name.hashCode());
+    long last = playerKey(0, name.hashCode());
+    List<ScoreRecord> result = new ArrayList<ScoreRecord>();
+    long i = lowerBoundPlayer(first);
+    int j = lowerBoundTailPlayer(first);
+    while (result.size() < n) {
+      boolean inIndex = i < indexed && indexPlayerKey(i) <= last;
+      boolean inTail = j < tailSize && tailPlayers[2 * j] <= last;
+      if (!inIndex && !inTail) break;
+      long seq;
+      // The index only holds games older than the tail's
+      if (inIndex && (!inTail || indexPlayerKey(i) <= tailPlayers[2 * j])) {
+        seq = indexPlayerSeq(i++);
+      } else {
+        seq = tailPlayers[2 * j++ + 1];
+      }
+      ScoreRecord score = get(seq);
+      // Skips other players whose names have the same hash
+      if (score.getPlayer().equals(name)) result.add(score);
+    }
+    return result;
+  }
+
+  // Where a game with this score would rank: 1 + the number of better ones
+  public long rank(int score) {
+    sortTail();
+    long key = scoreKey(score, 0);
+    return 1 + lowerBound(0, key) + lowerBound(tailScores, key);
+  }
+
+  // Rewrites the index to cover every record in the log
+  public void compact() throws IOException {
+    checkWritable();
+    if (tailSize == 0) return;
+    long total = indexed + tailSize;
+    if (total > MAX_INDEXED) throw new IOException("Index is full");
+    // The index must never cover records that are not on disk yet
+    log.force(false);
+    sortTail();
+    Path temp = tempIndexPath();
+    FileChannel out = FileChannel.open(
+      temp,
+      StandardOpenOption.CREATE,
+      StandardOpenOption.WRITE,
+      StandardOpenOption.TRUNCATE_EXISTING
+    );
+    try {
+      ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+      buffer.putInt(INDEX_MAGIC).putInt(VERSION).putLong(total);
+      merge(0, tailScores, out, buffer);
+      mergePlayers(out, buffer);
+      flush(out, buffer);
+      out.force(true);
+    } finally {
+      out.close();
+    }
+    Files.move(
+      temp,
+      indexPath,
+      StandardCopyOption.REPLACE_EXISTING,
+      StandardCopyOption.ATOMIC_MOVE
+    );
+    syncDirectory();
+    index = map(total);
+    indexed = total;
+    tailSize = 0;
+  }
+
+  // Records in the log
+  public long size() {
+    return count;
+  }
+
+  // Records covered by the index, the rest are in the in-memory tail
+  public long getIndexedCount() {
+    return indexed;
+  }
+
+  // Bytes cut from the end of the log when it was opened
+  public long getRecoveredBytes() {
+    return recoveredBytes;
+  }
+
+  // Folds the tail into the index, so the next open has nothing to check;
+  // a read-only store just lets go of its files
+  public void close() throws IOException {
+    try {
+      if (!readOnly) compact();
+    } finally {
+      log.close();
+      index = null;
+    }
+  }
+
+  private void checkWritable() throws IOException {
+    if (readOnly) throw new IOException("Score store is read-only");
+  }
+
+  private void recover() throws IOException {
+    long size = log.size();
+    ByteBuffer header = ByteBuffer.allocate(HEADER);
+    if (size < HEADER && readOnly) {
+      size = HEADER; // nothing complete to read
+    } else if (size < HEADER) {
+      // New, or the crash came before the header was complete
+      header.putInt(LOG_MAGIC).putInt(VERSION).flip();
+      log.truncate(0);
+      while (header.hasRemaining()) log.write(header, header.position());
+      log.force(true);
+      size = HEADER;
+    } else {
+      readFully(log, header, 0);
+      if (header.getInt(0) != LOG_MAGIC || header.getInt(4) != VERSION) {
+        throw new IOException(logPath + " is not a score log");
+      }
+    }
+    long whole = (size - HEADER) / ScoreRecord.BYTES;
+    openIndex(whole);
+    count = indexed;
+    ScoreRecord score;
+    while (count < whole && (score = read(count)) != null) {
+      addToTail(score, count);
+      count++;
+      if (tailSize >= tailLimit && !readOnly) compact();
+    }
+    long end = HEADER + count * ScoreRecord.BYTES;
+    if (size > end) {
+      recoveredBytes = size - end;
+      if (!readOnly) {
+        log.truncate(end);
+        log.force(true);
+      }
+    }
+  }
+
+  // Maps a valid index over at most records records, or starts without one
+  private void openIndex(long records) throws IOException {
+    indexed = 0;
+    index = null;
+    if (!Files.exists(indexPath)) return;
+    long total = -1;
+    FileChannel in = FileChannel.open(indexPath, StandardOpenOption.READ);
+    try {
+      ByteBuffer header = ByteBuffer.allocate(HEADER);
+      if (in.size() >= HEADER) {
+        readFully(in, header, 0);
+        long n = header.getLong(8);
+        if (
+          header.getInt(0) == INDEX_MAGIC &&
+          header.getInt(4) == VERSION &&
+          n >= 0 &&
+          n <= records &&
+          n <= MAX_INDEXED &&
+          in.size() == HEADER + (long) ENTRY_BYTES * n
+        ) {
+          total = n;
+        }
+      }
+    } finally {
+      in.close();
+    }
+    if (total < 0) {
+      // Rebuilt from the log below, or just read past when read-only
+      if (!readOnly) Files.delete(indexPath);
+      return;
+    }
+    index = map(total);
+    indexed = total;
+  }
+
+  private MappedByteBuffer map(long records) throws IOException {
+    FileChannel in = FileChannel.open(indexPath, StandardOpenOption.READ);
+    try {
+      long size = HEADER + (long) ENTRY_BYTES * records;
+      return in.map(FileChannel.MapMode.READ_ONLY, 0, size);
+    } finally {
+      in.close(); // the mapping stays valid
+    }
+  }
+
+  // Reads a record into the scratch buffer; null if its checksum is wrong
+  private ScoreRecord read(long seq) throws IOException {
+    record.clear();
+    readFully(log, record, HEADER + seq * ScoreRecord.BYTES);
+    record.flip();
+    return ScoreRecord.readFrom(record, crc);
+  }
+
+  private void addToTail(ScoreRecord score, long seq) {
+    addToTail(score.getScore(), score.getPlayer().hashCode(), seq);
+  }
+
+  private void addToTail(int score, int playerHash, long seq) {
+    if (tailSize == tailScores.length) {
+      tailScores = Arrays.copyOf(tailScores, tailSize * 2);
+      tailPlayers = Arrays.copyOf(tailPlayers, tailSize * 4);
+    }
+    tailScores[tailSize] = scoreKey(score, seq);
+    tailPlayers[2 * tailSize] = playerKey(score, playerHash);
+    tailPlayers[2 * tailSize + 1] = seq;
+    tailSize++;
+    tailSorted = false;
+  }
+
+  private void sortTail() {
+    if (tailSorted) return;
+    Arrays.sort(tailScores, 0, tailSize);
+    sortTailPlayers();
+    tailSorted = true;
+  }
+
+  // Merge sort of the tail's (key, sequence number) pairs by key; it is
+  // stable and games are added in order, so equal keys stay oldest first
+  private void sortTailPlayers() {
+    if (sortScratch.length < tailPlayers.length) {
+      sortScratch = new long[tailPlayers.length];
+    }
+    long[] from = tailPlayers;
+    long[] to = sortScratch;
+    for (int width = 1; width < tailSize; width *= 2) {
+      for (int low = 0; low < tailSize; low += 2 * width) {
+        int mid = Math.min(low + width, tailSize);
+        int high = Math.min(low + 2 * width, tailSize);
+        int i = low;
+        int j = mid;
+        for (int k = low; k < high; k++) {
+          int next = j == high || (i < mid && from[2 * i] <= from[2 * j])
+            ? i++
+            : j++;
+          to[2 * k] = from[2 * next];
+          to[2 * k + 1] = from[2 * next + 1];
+        }
+      }
+      long[] tmp = from;
+      from = to;
+      to = tmp;
+    }
+    tailPlayers = from;
+    sortScratch = to;
+  }
+
+  // Ascending keys put the best score first and, within it, the oldest game
+  private static long scoreKey(int score, long seq) {
+    return (long) (Integer.MAX_VALUE - score) << 32 | seq;
+  }
+
+  // Ascending keys group a player's games, best score first; the name hash
+  // is only a filter, so other names can share the range
+  private static long playerKey(int score, int playerHash) {
+    return (long) playerHash << 32 | (Integer.MAX_VALUE - score);
+  }
+
+  // Key i of the index section starting at record offset section
+  private long indexKey(long section, long i) {
+    return index.getLong((int) (HEADER + 8 * (section + i)));
+  }
+
+  // First position in an index section whose key is at least key
+  private long lowerBound(long section, long key) {
+    long low = 0;
+    long high = indexed;
+    while (low < high) {
+      long mid = (low + high) >>> 1;
+      if (indexKey(section, mid) < key) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  private long indexPlayerKey(long i) {
+    return index.getLong((int) (HEADER + 8 * indexed + 16 * i));
+  }
+
+  private long indexPlayerSeq(long i) {
+    return index.getLong((int) (HEADER + 8 * indexed + 16 * i + 8));
+  }
+
+  // First entry of the player section whose key is at least key
+  private long lowerBoundPlayer(long key) {
+    long low = 0;
+    long high = indexed;
+    while (low < high) {
+      long mid = (low + high) >>> 1;
+      if (indexPlayerKey(mid) < key) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  private int lowerBoundTailPlayer(long key) {
+    int low = 0;
+    int high = tailSize;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (tailPlayers[2 * mid] < key) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  private int lowerBound(long[] tail, long key) {
+    int at = Arrays.binarySearch(tail, 0, tailSize, key);
+    if (at < 0) return -at - 1;
+    while (at > 0 && tail[at - 1] == key) at--;
+    return at;
+  }
+
+  // Streams one index section merged with its tail keys into out
+  private void merge(
+    long section,
+    long[] tail,
+    FileChannel out,
+    ByteBuffer buffer
+  ) throws IOException {
+    long i = 0;
+    int j = 0;
+    while (i < indexed || j < tailSize) {
+      long key;
+      if (j == tailSize || (i < indexed && indexKey(section, i) < tail[j])) {
+        key = indexKey(section, i++);
+      } else {
+        key = tail[j++];
+      }
+      if (!buffer.hasRemaining()) flush(out, buffer);
+      buffer.putLong(key);
+    }
+  }
+
+  // Streams the player section merged with the tail's pairs into out; on
+  // equal keys the index goes first, as it only holds older games
+  private void mergePlayers(FileChannel out, ByteBuffer buffer)
+    throws IOException {
+    long i = 0;
+    int j = 0;
+    while (i < indexed || j < tailSize) {
+      long key;
+      long seq;
+      if (
+        j == tailSize ||
+        (i < indexed && indexPlayerKey(i) <= tailPlayers[2 * j])
+      ) {
+        key = indexPlayerKey(i);
+        seq = indexPlayerSeq(i++);
+      } else {
+        key = tailPlayers[2 * j];
+        seq = tailPlayers[2 * j++ + 1];
+      }
+      if (buffer.remaining() < 16) flush(out, buffer);
+      buffer.putLong(key).putLong(seq);
+    }
+  }
+
+  private static void flush(FileChannel out, ByteBuffer buffer)
+    throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) out.write(buffer);
+    buffer.clear();
+  }
+
+  private static void readFully(FileChannel in, ByteBuffer to, long position)
+    throws IOException {
+    while (to.hasRemaining()) {
+      int read = in.read(to, position);
+      if (read < 0) throw new IOException("Unexpected end of file");
+      position += read;
+    }
+  }
+
+  // Makes the rename itself durable where the platform allows it
+  private void syncDirectory() {
+    try {
+      FileChannel dir = FileChannel.open(
+        indexPath.getParent(),
+        StandardOpenOption.READ
+      );
+      try {
+        dir.force(true);
+      } finally {
+        dir.close();
+      }
+    } catch (IOException e) {
+      // Not supported here; the index is rebuilt if the rename is lost
+    }
+  }
+
+  private Path tempIndexPath() {
+    return indexPath.resolveSibling(INDEX_FILE + ".tmp");
+  }
+
+  // Prints the best games in a store
+  // Usage: ScoreStore <dir> [--top N] [--player NAME]
+  public static void main(String[] args) throws IOException {
+    if (args.length < 1) {
+      System.err.println("Usage: ScoreStore <dir> [--top N] [--player NAME]");
+      System.exit(2);
+    }
+    int n = 10;
+    String player = null;
+    for (int i = 1; i < args.length; i++) {
+      if (i + 1 >= args.length) {
+        throw new IllegalArgumentException("Missing value for " + args[i]);
+      }
+      String value = args[++i];
+      switch (args[i - 1]) {
+        case "--top":
+          n = Integer.parseInt(value);
+          break;
+        case "--player":
+          player = value;
+          break;
+        default:
+          throw new IllegalArgumentException("Unknown option " + args[i - 1]);
+      }
+    }
+    ScoreStore store = ScoreStore.openReadOnly(Paths.get(args[0]));
+    try {
+      List<ScoreRecord> best = player == null
+        ? store.top(n)
+        : store.topForPlayer(player, n);
+      for (int i = 0; i < best.size(); i++) {
+        System.out.println((i + 1) + ". " + best.get(i));
+      }
+      System.out.println(store.size() + " games");
+    } finally {
+      store.close();
+    }
+  }
+}
@@ -61,6 +61,18 @@ public class Scoreboard {
     if (cells > 0) score += 2 * cells; // +2 per hard-dropped cell
   }
 
+  // Score in the high half, total lines in the low half; the level follows
+  // from the lines
+  public long snapshot() {
+    return ((long) score << 32) | (totalLines & 0xffffffffL);
+  }
+
+  public void restore(long snapshot) {
+    score = (int) (snapshot >>> 32);
+    totalLines = (int) snapshot;
+    level = 1 + (totalLines / 10);
+  }
+
   public int getFallDelayMs() {
     // Decrease with level. Cap minimum at 80ms for playability.
     int base = 700; // level 1
@@ -0,0 +1,129 @@
+package org;
+
+import java.util.Locale;
+
+// Aggregate of many finished games. Each worker fills its own instance and
+// the instances are merged, so recording never contends.
+public class SimulationStats {
+
+  public static final int MAX_LEVEL = 64; // higher levels share the last bucket
+  private static final int SCORE_BUCKETS = 32; // powers of two
+
+  private long games;
+  private long totalScore;
+  private double scoreSquares;
+  private long minScore = Long.MAX_VALUE;
+  private long maxScore;
+  private long totalLines;
+  private long totalPieces;
+  private final long[] levelCounts = new long[MAX_LEVEL + 1];
+  private final long[] scoreBuckets = new long[SCORE_BUCKETS];
+
+  public void record(int score, int lines, int level, int pieces) {
+    games++;
+    totalScore += score;
+    scoreSquares += (double) score * score;
+    if (score < minScore) minScore = score;
+    if (score > maxScore) maxScore = score;
+    totalLines += lines;
+    totalPieces += pieces;
+    levelCounts[Math.min(level, MAX_LEVEL)]++;
+    scoreBuckets[scoreBucket(score)]++;
+  }
+
+  public void merge(SimulationStats other) {
+    games += other.games;
+    totalScore += other.totalScore;
+    scoreSquares += other.scoreSquares;
+    minScore = Math.min(minScore, other.minScore);
+    maxScore = Math.max(maxScore, other.maxScore);
+    totalLines += other.totalLines;
+    totalPieces += other.totalPieces;
+    for (int i = 0; i < levelCounts.length; i++) {
+      levelCounts[i] += other.levelCounts[i];
+    }
+    for (int i = 0; i < scoreBuckets.length; i++) {
+      scoreBuckets[i] += other.scoreBuckets[i];
+    }
+  }
+
+  // Bucket b holds scores in [2^(b-1), 2^b), bucket 0 holds zero
+  static int scoreBucket(int score) {
+    if (score <= 0) return 0;
+    return Math.min(
+      SCORE_BUCKETS - 1,
+      32 - Integer.numberOfLeadingZeros(score)
+    );
+  }
+
+  public long getGames() {
+    return games;
+  }
+
+  public double getMeanScore() {
+    return games == 0 ? 0 : (double) totalScore / games;
+  }
+
+  public double getScoreStdDev() {
+    if (games < 2) return 0;
+    double mean = getMeanScore();
+    return Math.sqrt(Math.max(0, scoreSquares / games - mean * mean));
+  }
+
+  public long getMinScore() {
+    return games == 0 ? 0 : minScore;
+  }
+
+  public long getMaxScore() {
+    return maxScore;
+  }
+
+  public double getMeanLines() {
+    return games == 0 ? 0 : (double) totalLines / games;
+  }
+
+  public long getTotalPieces() {
+    return totalPieces;
+  }
+
+  public long getLevelCount(int level) {
+    return levelCounts[Math.min(level, MAX_LEVEL)];
+  }
+
+  public long getScoreBucketCount(int bucket) {
+    return scoreBuckets[bucket];
+  }
+
+  // One JSON object with the summary and both distributions
+  public String toJson() {
+    StringBuilder sb = new StringBuilder();
+    sb.append("{\"games\":").append(games);
+    sb.append(",\"meanScore\":")
+      .append(String.format(Locale.ROOT, "%.2f", getMeanScore()));
+    sb.append(",\"scoreStdDev\":")
+      .append(String.format(Locale.ROOT, "%.2f", getScoreStdDev()));
+    sb.append(",\"minScore\":").append(getMinScore());
+    sb.append(",\"maxScore\":").append(maxScore);
+    sb.append(",\"meanLines\":")
+      .append(String.format(Locale.ROOT, "%.2f", getMeanLines()));
+    sb.append(",\"pieces\":").append(totalPieces);
+    sb.append(",\"levels\":{");
+    boolean first = true;
+    for (int i = 0; i < levelCounts.length; i++) {
+      if (levelCounts[i] == 0) continue;
+      if (!first) sb.append(',');
+      sb.append('"').append(i).append("\":").append(levelCounts[i]);
+      first = false;
+    }
+    sb.append("},\"scoreLog2\":{");
+    first = true;
+    for (int i = 0; i < scoreBuckets.length; i++) {
+      if (scoreBuckets[i] == 0) continue;
+      if (!first) sb.append(',');
+      sb.append('"').append(i).append("\":").append(scoreBuckets[i]);
+      first = false;
+    }
+    sb.append("}}");
+    return sb.toString();
+  }
+}
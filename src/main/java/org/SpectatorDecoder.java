@@ -0,0 +1,155 @@
+package org;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+// Rebuilds a spectator's view of a game from SpectatorEncoder messages.
+// Until the first keyframe arrives there is nothing to apply deltas to, so
+// they are skipped and isSynced() stays false.
+public class SpectatorDecoder {
+
+  private static final Tetromino.Type[] TYPES = Tetromino.Type.values();
+
+  private boolean synced;
+  private int width;
+  private int height;
+  private byte[] cells = new byte[0]; // row-major, -1 = empty
+  private int pieceType;
+  private int rotation;
+  private int pieceX;
+  private int pieceY;
+  private int score;
+  private int lines;
+  private int next;
+  private boolean over;
+
+  // Applies one message; false if it was skipped while waiting for a
+  // keyframe. A malformed or truncated message throws IOException and may
+  // be partly applied, so the view waits for the next keyframe again.
+  public boolean apply(ByteBuffer in) throws IOException {
+    try {
+      return applyMessage(in);
+    } catch (BufferUnderflowException e) {
+      synced = false;
+      throw new IOException("Truncated message", e);
+    } catch (IOException e) {
+      synced = false;
+      throw e;
+    }
+  }
+
+  private boolean applyMessage(ByteBuffer in) throws IOException {
+    int flags = in.get() & 0xff;
+    if ((flags & SpectatorEncoder.KEYFRAME) != 0) {
+      readKeyframe(in);
+      synced = true;
+    } else if (!synced) {
+      // Deltas have no length prefix: the caller frames messages
+      in.position(in.limit());
+      return false;
+    }
+    if ((flags & SpectatorEncoder.CLEAR) != 0) {
+      SpectatorEncoder.applyClear(cells, width, height, VarInt.getLong(in));
+    }
+    if ((flags & SpectatorEncoder.CELLS) != 0) {
+      int count = (int) VarInt.getLong(in);
+      int index = -1;
+      for (int i = 0; i < count; i++) {
+        index += (int) VarInt.getLong(in) + 1;
+        if (index >= cells.length) throw new IOException("Cell " + index);
+        cells[index] = (byte) (in.get() - 1);
+      }
+    }
+    if ((flags & SpectatorEncoder.PIECE) != 0) {
+      int bits = in.get() & 0xff;
+      pieceType = bits >>> 2;
+      rotation = bits & 3;
+      pieceX = VarInt.getSigned(in);
+      pieceY = VarInt.getSigned(in);
+    }
+    if ((flags & SpectatorEncoder.SCORE) != 0) {
+      score = (int) VarInt.getLong(in);
+      lines = (int) VarInt.getLong(in);
+    }
+    if ((flags & SpectatorEncoder.NEXT) != 0) next = in.get() & 0xff;
+    if ((flags & SpectatorEncoder.OVER) != 0) over = in.get() != 0;
+    return true;
+  }
+
+  private void readKeyframe(ByteBuffer in) throws IOException {
+    int w = (int) VarInt.getLong(in);
+    int h = (int) VarInt.getLong(in);
+    if (w != width || h != height) {
+      Board.checkSize(w, h);
+      width = w;
+      height = h;
+      cells = new byte[w * h];
+    }
+    int index = 0;
+    while (index < cells.length) {
+      int run = (int) VarInt.getLong(in);
+      if (run <= 0 || run > cells.length - index) {
+        throw new IOException("Run " + run + " at cell " + index);
+      }
+      byte value = (byte) (in.get() - 1);
+      Arrays.fill(cells, index, index + run, value);
+      index += run;
+    }
+  }
+
+  public boolean isSynced() {
+    return synced;
+  }
+
+  public int getWidth() {
+    return width;
+  }
+
+  public int getHeight() {
+    return height;
+  }
+
+  // Piece ordinal at (x, y), or -1 if the cell is empty
+  public int getCell(int x, int y) {
+    return cells[y * width + x];
+  }
+
+  public Tetromino.Type getPieceType() {
+    return TYPES[pieceType];
+  }
+
+  public int getRotation() {
+    return rotation;
+  }
+
+  public int getPieceX() {
+    return pieceX;
+  }
+
+  public int getPieceY() {
+    return pieceY;
+  }
+
+  public int getScore() {
+    return score;
+  }
+
+  public int getLines() {
+    return lines;
+  }
+
+  // Scoreboard levels up every 10 lines, so the level is not sent
+  public int getLevel() {
+    return 1 + lines / 10;
+  }
+
+  public Tetromino.Type getNextType() {
+    return TYPES[next];
+  }
+
+  public boolean isGameOver() {
+    return over;
+  }
+}
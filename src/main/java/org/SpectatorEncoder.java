@@ -0,0 +1,238 @@
+package org;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+// Turns a game into a stream of small per-tick messages for spectators
+// (see SpectatorDecoder). A message carries only what changed since the
+// previous one: cells that differ, the last line clear (so the rows a clear
+// shifts down cost nothing), the piece's type, rotation and position, score
+// and lines, the next piece and the game-over flag. Every keyframeInterval
+// ticks, and on request, a keyframe carries the whole view with its cells
+// run-length encoded, so viewers can join mid-game. Messages are the same
+// for every viewer: encode once per tick and send the bytes to all.
+//
+// Message: u8 flags, then for each flag set, in this order:
+//   KEYFRAME  varint width, varint height, runs of (varint length, u8 cell + 1)
+//   CLEAR     varint packed LineClear, applied before CELLS
+//   CELLS     varint count, count x (varint gap from previous index, u8 cell + 1)
+//   PIECE     u8 type << 2 | rotation, zigzag x, zigzag y
+//   SCORE     varint score, varint total lines
+//   NEXT      u8 type of the next piece
+//   OVER      u8 1 if the game is over
+public class SpectatorEncoder {
+
+  public static final int DEFAULT_KEYFRAME_INTERVAL = 120; // 2 s at 60 Hz
+
+  static final int KEYFRAME = 1;
+  static final int CLEAR = 1 << 1;
+  static final int CELLS = 1 << 2;
+  static final int PIECE = 1 << 3;
+  static final int SCORE = 1 << 4;
+  static final int NEXT = 1 << 5;
+  static final int OVER = 1 << 6;
+
+  private final int keyframeInterval;
+
+  // The view as viewers have it after the last message
+  private int width;
+  private int height;
+  private byte[] cells = new byte[0]; // row-major, -1 = empty
+  private int boardVersion;
+  private int pieceBits; // type << 2 | rotation
+  private int pieceX;
+  private int pieceY;
+  private int score;
+  private int lines;
+  private int next;
+  private boolean over;
+
+  private int[] changed = new int[0]; // scratch for the cell diff
+  private int sinceKeyframe;
+  private boolean keyframeDue = true;
+
+  private long messages;
+  private long keyframes;
+  private long bytes;
+
+  public SpectatorEncoder() {
+    this(DEFAULT_KEYFRAME_INTERVAL);
+  }
+
+  public SpectatorEncoder(int keyframeInterval) {
+    if (keyframeInterval < 1) {
+      throw new IllegalArgumentException("Interval " + keyframeInterval);
+    }
+    this.keyframeInterval = keyframeInterval;
+  }
+
+  // Room a message for a board this size may need
+  public static int maxMessageSize(int width, int height) {
+    return 64 + 2 * width * height;
+  }
+
+  // Makes the next message a keyframe, e.g. when a viewer joins
+  public void requestKeyframe() {
+    keyframeDue = true;
+  }
+
+  // Appends this tick's message to out and returns its length
+  public int encode(GameEngine engine, ByteBuffer out) {
+    GameBoard board = engine.getBoard();
+    if (board.getWidth() != width || board.getHeight() != height) {
+      width = board.getWidth();
+      height = board.getHeight();
+      cells = new byte[width * height];
+      changed = new int[width * height];
+      keyframeDue = true;
+    }
+    if (sinceKeyframe >= keyframeInterval) keyframeDue = true;
+
+    int start = out.position();
+    out.put((byte) 0); // flags, filled in below
+    int flags = 0;
+    if (!keyframeDue && engine.getBoardVersion() != boardVersion) {
+      boardVersion = engine.getBoardVersion();
+      long clear = engine.getLastLineClear();
+      if (clear != LineClear.NONE) {
+        flags |= CLEAR;
+        VarInt.putLong(out, clear);
+        applyClear(cells, width, height, clear);
+      }
+      int count = diff(board);
+      if (count > cells.length / 4) {
+        // Most of the board changed: a keyframe is smaller
+        out.position(start + 1);
+        flags = 0;
+        keyframeDue = true;
+      } else if (count > 0) {
+        flags |= CELLS;
+        VarInt.putLong(out, count);
+        int previous = -1;
+        for (int i = 0; i < count; i++) {
+          int index = changed[i];
+          VarInt.putLong(out, index - previous - 1);
+          out.put((byte) (cells[index] + 1));
+          previous = index;
+        }
+      }
+    }
+    if (keyframeDue) {
+      flags |= KEYFRAME;
+      writeKeyframe(board, out);
+      boardVersion = engine.getBoardVersion();
+      keyframeDue = false;
+      sinceKeyframe = 0;
+      keyframes++;
+    }
+    sinceKeyframe++;
+    boolean all = (flags & KEYFRAME) != 0;
+
+    Tetromino current = engine.getCurrent();
+    int bits = current.getType().ordinal() << 2 | current.getRotation();
+    if (
+      all ||
+      bits != pieceBits ||
+      engine.getPieceX() != pieceX ||
+      engine.getPieceY() != pieceY
+    ) {
+      flags |= PIECE;
+      pieceBits = bits;
+      pieceX = engine.getPieceX();
+      pieceY = engine.getPieceY();
+      out.put((byte) bits);
+      VarInt.putSigned(out, pieceX);
+      VarInt.putSigned(out, pieceY);
+    }
+    Scoreboard scoreboard = engine.getScoreboard();
+    if (
+      all ||
+      scoreboard.getScore() != score ||
+      scoreboard.getTotalLines() != lines
+    ) {
+      flags |= SCORE;
+      score = scoreboard.getScore();
+      lines = scoreboard.getTotalLines();
+      VarInt.putLong(out, score & 0xFFFFFFFFL);
+      VarInt.putLong(out, lines & 0xFFFFFFFFL);
+    }
+    int nextType = engine.peekType(0).ordinal();
+    if (all || nextType != next) {
+      flags |= NEXT;
+      next = nextType;
+      out.put((byte) next);
+    }
+    if (all || engine.isGameOver() != over) {
+      flags |= OVER;
+      over = engine.isGameOver();
+      out.put((byte) (over ? 1 : 0));
+    }
+
+    out.put(start, (byte) flags);
+    int length = out.position() - start;
+    messages++;
+    bytes += length;
+    return length;
+  }
+
+  public long getMessages() {
+    return messages;
+  }
+
+  public long getKeyframes() {
+    return keyframes;
+  }
+
+  public long getBytes() {
+    return bytes;
+  }
+
+  // Updates the view to the board, collecting the indices that changed
+  private int diff(GameBoard board) {
+    int count = 0;
+    for (int y = 0; y < height; y++) {
+      int row = y * width;
+      for (int x = 0; x < width; x++) {
+        byte cell = (byte) board.getCell(x, y);
+        if (cells[row + x] != cell) {
+          cells[row + x] = cell;
+          changed[count++] = row + x;
+        }
+      }
+    }
+    return count;
+  }
+
+  private void writeKeyframe(GameBoard board, ByteBuffer out) {
+    VarInt.putLong(out, width);
+    VarInt.putLong(out, height);
+    int run = 0;
+    byte value = 0;
+    for (int i = 0; i < cells.length; i++) {
+      byte cell = (byte) board.getCell(i % width, i / width);
+      cells[i] = cell;
+      if (run > 0 && cell != value) {
+        VarInt.putLong(out, run);
+        out.put((byte) (value + 1));
+        run = 0;
+      }
+      value = cell;
+      run++;
+    }
+    VarInt.putLong(out, run);
+    out.put((byte) (value + 1));
+  }
+
+  // Removes the cleared rows of a row-major view, shifting the rest down
+  static void applyClear(byte[] cells, int width, int height, long clear) {
+    int write = height - 1;
+    for (int read = height - 1; read >= 0; read--) {
+      if (LineClear.isCleared(clear, read)) continue;
+      if (write != read) {
+        System.arraycopy(cells, read * width, cells, write * width, width);
+      }
+      write--;
+    }
+    Arrays.fill(cells, 0, (write + 1) * width, (byte) -1);
+  }
+}
@@ -1,396 +1,521 @@
 package org;
 
-import java.awt.Color;
+import java.awt.BorderLayout;
 import java.awt.Dimension;
-import java.awt.Font;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
-import java.awt.RenderingHints;
-import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
-import java.util.List;
+import java.awt.GraphicsEnvironment;
+import java.awt.Rectangle;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Paths;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 import javax.swing.JPanel;
-import javax.swing.Timer;
+import javax.swing.SwingUtilities;
 
 public class TetrisPanel extends JPanel {
 
-  // Visual constants
-  private static final int CELL = 30; // pixels
-  private static final int BOARD_W = Board.COLS * CELL;
-  private static final int BOARD_H = Board.ROWS * CELL;
-  private static final int SIDE_W = 180;
+  private final GameEngine engine;
+  private final GameRenderer renderer;
+  private final MatchClient client; // thin-client mode, otherwise null
 
-  private final Board board = new Board();
-  private final PieceFactory factory = new PieceFactory();
-  private final Scoreboard score = new Scoreboard();
-
-  private Tetromino current;
-  private int pieceX;
-  private int pieceY; // can be negative during spawn
-
-  private boolean gameOver = false;
-  private boolean softDropping = false;
-
-  private final Timer timer;
-  private long lastTickNanos;
-  private long fallAccumulatorMs = 0;
+  private final GameLoop loop;
+  private volatile GameCanvas canvas; // -Dtetris.render=active, else null
 
   private final InputHandler input = new InputHandler();
+  private final Metrics metrics = new Metrics();
+  private boolean showMetrics = Boolean.getBoolean("tetris.debug");
+  private boolean leftHeld;
+  private boolean rightHeld;
+  private final String replayFile;
+  private ScoreStore scores; // -Dtetris.scores, otherwise null
+  private boolean savedGameOver;
+
+  // Writes replays and scores away from the engine lock, in game order
+  private final ExecutorService saver = Executors.newSingleThreadExecutor(
+    new ThreadFactory() {
+      public Thread newThread(Runnable r) {
+        Thread t = new Thread(r, "tetris-save");
+        t.setDaemon(true);
+        return t;
+      }
+    }
+  );
+
+  // What was on screen after the last repaint request, for dirty regions
+  private int shownBoardVersion = -1;
+  private boolean shownGameOver;
+  private int shownScore = -1;
+  private Rectangle shownPiece = new Rectangle();
+  private Rectangle shownGhost = new Rectangle();
+  private Rectangle nextPiece = new Rectangle();
+  private Rectangle nextGhost = new Rectangle();
+  private final Rectangle dirty = new Rectangle();
+
+  private final Runnable repaintTask = new Runnable() {
+    public void run() {
+      repaintChanges(false);
+    }
+  };
+
+  private final Runnable paintInputTask = new Runnable() {
+    public void run() {
+      repaintChanges(true);
+    }
+  };
 
   public TetrisPanel() {
-    setPreferredSize(new Dimension(BOARD_W + SIDE_W, BOARD_H));
-    setBackground(new Color(20, 20, 30));
+    // -Dtetris.server=<host:port> plays a match on a MatchServer; this
+    // panel then only sends inputs and shows the states it gets back
+    String server = System.getProperty("tetris.server");
+    if (server != null) {
+      client = connect(server);
+      engine = awaitMatch(client);
+    } else {
+      // -Dtetris.cols=<n> -Dtetris.rows=<n> pick the board size
+      client = null;
+      engine = new GameEngine(
+        new SplittableRandom().nextLong(),
+        Integer.getInteger("tetris.cols", Board.COLS).intValue(),
+        Integer.getInteger("tetris.rows", Board.ROWS).intValue()
+      );
+    }
+    renderer = new GameRenderer(
+      engine.getBoard().getWidth(),
+      engine.getBoard().getHeight()
+    );
+
+    setPreferredSize(
+      new Dimension(renderer.getWidth(), renderer.getHeight())
+    );
+    setBackground(GameRenderer.BACKGROUND);
     setDoubleBuffered(true);
+    setOpaque(true);
 
-    input.install(this, this);
+    // -Dtetris.rotation=legacy turns pieces with the original kicks
+    // instead of SRS
+    String rotation = System.getProperty("tetris.rotation");
+    if (rotation != null && client == null) {
+      engine.setRotationSystem(RotationSystem.forName(rotation));
+    }
 
-    startGame();
+    // -Dtetris.replay=<file> records the session and saves it on game over
+    // (not as a thin client, whose engine only mirrors the server's)
+    replayFile = System.getProperty("tetris.replay");
+    if (replayFile != null && client == null) {
+      engine.setRecorder(new ReplayRecorder(engine.getSeed()));
+    }
+
+    // -Dtetris.scores=<dir> keeps every finished game in a ScoreStore
+    String scoreDir = System.getProperty("tetris.scores");
+    if (scoreDir != null && client == null) {
+      try {
+        scores = new ScoreStore(Paths.get(scoreDir));
+      } catch (IOException e) {
+        System.err.println("Could not open scores: " + e.getMessage());
+      }
+    }
+
+    // -Dtetris.practice=true enables undo (Ctrl+Z) and redo (Ctrl+Y)
+    if (Boolean.getBoolean("tetris.practice") && client == null) {
+      engine.setUndoHistory(new UndoHistory(UndoHistory.DEFAULT_CAPACITY));
+    }
+
+    // After practice mode is known: undo and redo are only bound with it
+    input.install(this, this);
 
-    timer = new Timer(
-      16,
-      new ActionListener() {
-        public void actionPerformed(ActionEvent e) {
-          onTick();
+    engine.setMetrics(metrics);
+    metrics.register();
+
+    loop = new GameLoop(
+      engine,
+      new Runnable() {
+        public void run() {
+          GameCanvas active = canvas;
+          if (active != null) {
+            // Called on the canvas's render thread
+            active.render();
+            synchronized (engine) {
+              noteGameOver();
+            }
+          } else if (SwingUtilities.isEventDispatchThread()) {
+            repaintChanges(loop.isInputFrame());
+          } else {
+            SwingUtilities.invokeLater(
+              loop.isInputFrame() ? paintInputTask : repaintTask
+            );
+          }
         }
       }
     );
-    lastTickNanos = System.nanoTime();
-    timer.start();
+    loop.setMetrics(metrics);
+    if (client != null) {
+      startClientReader();
+    } else if (
+      "active".equals(System.getProperty("tetris.render")) &&
+      !GraphicsEnvironment.isHeadless()
+    ) {
+      // -Dtetris.render=active draws on a Canvas from its own thread, which
+      // starts once the panel is on screen (see addNotify)
+      canvas = new GameCanvas(engine, renderer, loop);
+      canvas.setMetrics(metrics);
+      canvas.setShowMetrics(showMetrics);
+      setLayout(new BorderLayout());
+      add(canvas, BorderLayout.CENTER);
+    } else if ("scheduler".equals(System.getProperty("tetris.loop"))) {
+      // -Dtetris.loop=scheduler runs game logic on its own thread
+      loop.startScheduler();
+    } else {
+      loop.startSwing();
+    }
   }
 
-  public void startGame() {
-    board.reset();
-    factory.reset();
-    score.reset();
-    gameOver = false;
-    fallAccumulatorMs = 0;
-    spawnNext();
-    repaint();
+  public GameEngine getEngine() {
+    return engine;
   }
 
-  public void restart() {
-    startGame();
+  public GameLoop getLoop() {
+    return loop;
+  }
+
+  // The active-rendering canvas, or null when painting through Swing
+  public GameCanvas getCanvas() {
+    return canvas;
   }
 
-  private void spawnNext() {
-    current = factory.nextPiece();
-    pieceX = Board.COLS / 2 - 2; // centered for 4x4 box
-    pieceY = -2; // spawn slightly above
-    if (!board.canPlace(current, pieceX, pieceY)) {
-      gameOver = true;
+  @Override
+  public void addNotify() {
+    super.addNotify();
+    GameCanvas active = canvas;
+    int fps = Integer.getInteger("tetris.fps", 0).intValue();
+    if (active != null && !active.start(fps)) {
+      // No buffer strategy here: fall back to Swing painting
+      canvas = null;
+      remove(active);
+      loop.startSwing();
     }
   }
 
-  private void onTick() {
-    long now = System.nanoTime();
-    long deltaMs = (now - lastTickNanos) / 1_000_000L;
-    lastTickNanos = now;
+  public Metrics getMetrics() {
+    return metrics;
+  }
 
-    if (gameOver) {
-      repaint();
-      return;
-    }
+  // F3: metrics overlay on top of the board
+  public void toggleMetrics() {
+    showMetrics = !showMetrics;
+    GameCanvas active = canvas;
+    if (active != null) active.setShowMetrics(showMetrics);
+    repaint(renderer.metricsBounds());
+  }
 
-    fallAccumulatorMs += deltaMs;
-    int delay = softDropping ? 50 : score.getFallDelayMs();
-
-    // Ensure reasonable delay changes
-    if (fallAccumulatorMs >= delay) {
-      // Attempt to step down
-      boolean moved = tryMove(0, 1);
-      if (!moved) {
-        // lock and clear lines
-        board.lockPiece(current, pieceX, pieceY);
-        boolean toppedOut = isLockedAboveTop(current, pieceX, pieceY);
-        int cleared = board.clearCompletedLines();
-        if (cleared > 0) {
-          score.addLines(cleared);
-        }
-        if (toppedOut) {
-          gameOver = true;
-        } else {
-          spawnNext();
-        }
-      } else if (softDropping) {
-        score.addSoftDrop(1);
-      }
-      fallAccumulatorMs = 0;
-    }
+  public void startGame() {
+    applyInput(GameInput.RESTART);
+  }
 
-    repaint();
+  public void restart() {
+    startGame();
   }
 
   // Control API (called by InputHandler)
   public void moveLeft() {
-    if (gameOver) return;
-    tryMove(-1, 0);
-    repaint();
+    applyInput(GameInput.MOVE_LEFT);
   }
 
   public void moveRight() {
-    if (gameOver) return;
-    tryMove(1, 0);
-    repaint();
+    applyInput(GameInput.MOVE_RIGHT);
   }
 
   public void rotateCW() {
-    if (gameOver) return;
-    tryRotate(true);
-    repaint();
+    applyInput(GameInput.ROTATE_CW);
   }
 
   public void rotateCCW() {
-    if (gameOver) return;
-    tryRotate(false);
-    repaint();
+    applyInput(GameInput.ROTATE_CCW);
+  }
+
+  // Held arrows auto-repeat inside the engine (DAS/ARR); repeated key
+  // events from the OS while a key is down are ignored
+  public void setLeftHeld(boolean held) {
+    if (held == leftHeld) return;
+    leftHeld = held;
+    applyInput(held ? GameInput.LEFT_PRESS : GameInput.LEFT_RELEASE);
+  }
+
+  public void setRightHeld(boolean held) {
+    if (held == rightHeld) return;
+    rightHeld = held;
+    applyInput(held ? GameInput.RIGHT_PRESS : GameInput.RIGHT_RELEASE);
   }
 
   public void setSoftDropping(boolean val) {
-    if (gameOver) return;
-    softDropping = val;
+    applyInput(val ? GameInput.SOFT_DROP_PRESS : GameInput.SOFT_DROP_RELEASE);
   }
 
   public void hardDrop() {
-    if (gameOver) return;
-    int dist = computeDropDistance();
-    if (dist > 0) {
-      pieceY += dist;
-      score.addHardDrop(dist);
+    applyInput(GameInput.HARD_DROP);
+  }
+
+  public boolean isPracticeMode() {
+    return engine.getUndoHistory() != null;
+  }
+
+  public void undo() {
+    applyInput(GameInput.UNDO);
+  }
+
+  public void redo() {
+    applyInput(GameInput.REDO);
+  }
+
+  // Timestamps the input and hands it to the loop, which applies it at the
+  // start of the next logic step and renders straight after. Thin clients
+  // send it to the server instead.
+  private void applyInput(int input) {
+    if (client == null) {
+      loop.submit(input, System.nanoTime());
+      return;
     }
-    // lock immediately
-    board.lockPiece(current, pieceX, pieceY);
-    boolean toppedOut = isLockedAboveTop(current, pieceX, pieceY);
-    int cleared = board.clearCompletedLines();
-    if (cleared > 0) score.addLines(cleared);
-    if (toppedOut) {
-      gameOver = true;
-    } else {
-      spawnNext();
+    try {
+      client.sendInput(input);
+    } catch (IOException e) {
+      System.err.println("Lost the match server: " + e.getMessage());
     }
-    repaint();
   }
 
-  private boolean tryMove(int dx, int dy) {
-    if (current == null) return false;
-    int nx = pieceX + dx;
-    int ny = pieceY + dy;
-    if (board.canPlace(current, nx, ny)) {
-      pieceX = nx;
-      pieceY = ny;
-      return true;
+  private static MatchClient connect(String server) {
+    int colon = server.lastIndexOf(':');
+    String host = colon < 0 ? server : server.substring(0, colon);
+    int port = colon < 0
+      ? MatchServer.DEFAULT_PORT
+      : Integer.parseInt(server.substring(colon + 1));
+    try {
+      return new MatchClient(host, port);
+    } catch (IOException e) {
+      throw new IllegalStateException("Cannot reach " + server, e);
     }
-    return false;
-  }
-
-  private void tryRotate(boolean cw) {
-    if (current == null) return;
-    // Rotate and try simple wall kicks
-    if (cw) current.rotateCW();
-    else current.rotateCCW();
-    if (board.canPlace(current, pieceX, pieceY)) return;
-    int[][] kicks = new int[][] {
-      { -1, 0 },
-      { 1, 0 },
-      { -2, 0 },
-      { 2, 0 },
-      { 0, -1 },
+  }
+
+  // Joins a match (-Dtetris.players=<n>, default head-to-head) and builds
+  // the local mirror of this player's game once it starts
+  private static GameEngine awaitMatch(MatchClient client) {
+    final GameEngine[] started = new GameEngine[1];
+    MatchClient.Listener listener = new MatchClient.Listener() {
+      public void started(
+        long seed,
+        int player,
+        int players,
+        int cols,
+        int rows
+      ) {
+        started[0] = new GameEngine(seed, cols, rows);
+      }
+
+      public void state(long[] snapshot, int count) {}
+
+      public void result(int player, int place) {}
     };
-    for (int i = 0; i < kicks.length; i++) {
-      int nx = pieceX + kicks[i][0];
-      int ny = pieceY + kicks[i][1];
-      if (board.canPlace(current, nx, ny)) {
-        pieceX = nx;
-        pieceY = ny;
-        return;
+    try {
+      client.join(Integer.getInteger("tetris.players", 2).intValue());
+      while (started[0] == null) {
+        if (!client.readFrame(listener)) {
+          throw new IOException("Server closed the connection");
+        }
       }
+    } catch (IOException e) {
+      throw new IllegalStateException("Could not join a match", e);
     }
-    // Revert if none fit
-    if (cw) current.rotateCCW();
-    else current.rotateCW();
+    return started[0];
   }
 
-  private int computeDropDistance() {
-    int dy = 0;
-    while (board.canPlace(current, pieceX, pieceY + dy + 1)) {
-      dy++;
-    }
-    return dy;
+  // Mirrors every state the server sends into the local engine
+  private void startClientReader() {
+    final MatchClient.Listener listener = new MatchClient.Listener() {
+      public void started(
+        long seed,
+        int player,
+        int players,
+        int cols,
+        int rows
+      ) {}
+
+      public void state(long[] snapshot, int count) {
+        synchronized (engine) {
+          engine.restoreFrom(snapshot, 0);
+        }
+        SwingUtilities.invokeLater(repaintTask);
+      }
+
+      // The mirrored engine already shows this player's game over
+      public void result(int player, int place) {}
+    };
+    Thread reader = new Thread(
+      new Runnable() {
+        public void run() {
+          try {
+            client.run(listener);
+          } catch (IOException e) {
+            System.err.println("Lost the match server: " + e.getMessage());
+          }
+        }
+      },
+      "match-client"
+    );
+    reader.setDaemon(true);
+    reader.start();
   }
 
-  private boolean isLockedAboveTop(Tetromino piece, int gx, int gy) {
-    for (java.awt.Point p : piece.getCells()) {
-      if (gy + p.y < 0) return true;
+  // Repaints only the area that changed since the last call. A frame that
+  // applied input is painted before returning, so the press reaches the
+  // screen without waiting for the repaint manager; gravity-only frames
+  // are merged into its next pass. Must run on the event thread.
+  private void repaintChanges(boolean now) {
+    dirty.setBounds(0, 0, 0, 0);
+    if (showMetrics) markDirty(renderer.metricsBounds());
+    synchronized (engine) {
+      collectDirtyRegions();
     }
-    return false;
+    if (dirty.isEmpty()) return;
+    if (now) paintImmediately(dirty);
+    else repaint(dirty);
   }
 
-  @Override
-  protected void paintComponent(Graphics g0) {
-    super.paintComponent(g0);
-    Graphics2D g = (Graphics2D) g0;
-    g.setRenderingHint(
-      RenderingHints.KEY_ANTIALIASING,
-      RenderingHints.VALUE_ANTIALIAS_ON
-    );
+  private void markDirty(Rectangle area) {
+    if (area.isEmpty()) return;
+    if (dirty.isEmpty()) dirty.setBounds(area);
+    else dirty.add(area);
+  }
 
-    // Draw board background
-    int bx = 0;
-    int by = 0;
-    g.setColor(new Color(10, 10, 18));
-    g.fillRect(bx, by, BOARD_W, BOARD_H);
-
-    // Subtle grid lines
-    g.setColor(new Color(255, 255, 255, 20));
-    for (int x = 0; x <= Board.COLS; x++) {
-      int px = bx + x * CELL;
-      g.drawLine(px, by, px, by + BOARD_H);
-    }
-    for (int y = 0; y <= Board.ROWS; y++) {
-      int py = by + y * CELL;
-      g.drawLine(bx, py, bx + BOARD_W, py);
+  private void collectDirtyRegions() {
+    if (
+      engine.getBoardVersion() != shownBoardVersion ||
+      engine.isGameOver() != shownGameOver
+    ) {
+      // Stack, next piece and maybe the overlay changed: redraw everything
+      noteGameOver();
+      shownBoardVersion = engine.getBoardVersion();
+      shownGameOver = engine.isGameOver();
+      shownScore = engine.getScoreboard().getScore();
+      updatePieceBounds();
+      swapPieceBounds();
+      markDirty(new Rectangle(0, 0, getWidth(), getHeight()));
+      return;
     }
 
-    // Draw locked cells
-    for (int y = 0; y < Board.ROWS; y++) {
-      for (int x = 0; x < Board.COLS; x++) {
-        int ord = board.getCell(x, y);
-        if (ord >= 0) {
-          drawCell(
-            g,
-            bx + x * CELL,
-            by + y * CELL,
-            Tetromino.colorForOrdinal(ord)
-          );
-        }
-      }
+    if (engine.getScoreboard().getScore() != shownScore) {
+      shownScore = engine.getScoreboard().getScore();
+      markDirty(renderer.sidePanelBounds());
     }
 
-    // Ghost piece
-    if (!gameOver && current != null) {
-      int drop = computeDropDistance();
-      drawPiece(g, current, pieceX, pieceY + drop, bx, by, true);
+    if (engine.isGameOver()) return;
+    updatePieceBounds();
+    if (!nextPiece.equals(shownPiece)) {
+      markDirty(shownPiece);
+      markDirty(nextPiece);
     }
+    if (!nextGhost.equals(shownGhost)) {
+      markDirty(shownGhost);
+      markDirty(nextGhost);
+    }
+    swapPieceBounds();
+  }
 
-    // Current piece
-    if (!gameOver && current != null) {
-      drawPiece(g, current, pieceX, pieceY, bx, by, false);
+  // Saves the replay and the score once per finished game; must hold the
+  // engine lock. Only copying happens here, the files are written by the
+  // saver thread so input and painting never wait on the disk.
+  private void noteGameOver() {
+    if (engine.isGameOver() && !savedGameOver) {
+      ReplayRecorder recorder = engine.getRecorder();
+      final byte[] replay = recorder == null
+        ? null
+        : recorder.toReplay(engine).toByteArray();
+      // The session replay holds every game so far, so a game is found by
+      // the inputs recorded up to its end
+      long events = recorder == null ? -1L : recorder.getEventCount();
+      final ScoreRecord score = scores == null
+        ? null
+        : ScoreRecord.of(
+          engine,
+          System.getProperty("tetris.player", System.getProperty("user.name")),
+          System.currentTimeMillis(),
+          events
+        );
+      if (replay != null || score != null) {
+        saver.execute(
+          new Runnable() {
+            public void run() {
+              boolean saved = replay != null && saveReplay(replay);
+              if (score == null) return;
+              saveScore(saved ? score : score.withReplay(-1L));
+            }
+          }
+        );
+      }
     }
+    savedGameOver = engine.isGameOver();
+  }
 
-    // Side panel
-    int sx = BOARD_W + 10;
-    int sy = 10;
-    g.setColor(new Color(30, 30, 45));
-    g.fillRoundRect(BOARD_W, 0, SIDE_W, BOARD_H, 16, 16);
-
-    g.setColor(Color.WHITE);
-    g.setFont(new Font("SansSerif", Font.BOLD, 16));
-    g.drawString("Score", sx, sy + 20);
-    g.setFont(new Font("SansSerif", Font.PLAIN, 18));
-    g.drawString(String.valueOf(score.getScore()), sx, sy + 40);
-
-    g.setFont(new Font("SansSerif", Font.BOLD, 16));
-    g.drawString("Level", sx, sy + 70);
-    g.setFont(new Font("SansSerif", Font.PLAIN, 18));
-    g.drawString(String.valueOf(score.getLevel()), sx, sy + 90);
-
-    g.setFont(new Font("SansSerif", Font.BOLD, 16));
-    g.drawString("Lines", sx, sy + 120);
-    g.setFont(new Font("SansSerif", Font.PLAIN, 18));
-    g.drawString(String.valueOf(score.getTotalLines()), sx, sy + 140);
-
-    // Next preview
-    g.setFont(new Font("SansSerif", Font.BOLD, 16));
-    g.drawString("Next", sx, sy + 180);
-    List<Tetromino.Type> preview = factory.peekNextTypes(1);
-    if (!preview.isEmpty()) {
-      drawPreview(g, preview.get(0), sx, sy + 200);
+  // On the saver thread
+  private boolean saveReplay(byte[] replay) {
+    try {
+      OutputStream out = new FileOutputStream(replayFile);
+      try {
+        out.write(replay);
+      } finally {
+        out.close();
+      }
+      return true;
+    } catch (IOException e) {
+      System.err.println("Could not save replay: " + e.getMessage());
+      return false;
     }
+  }
 
-    // Game Over overlay
-    if (gameOver) {
-      g.setColor(new Color(0, 0, 0, 150));
-      g.fillRect(bx, by, BOARD_W, BOARD_H);
-      g.setColor(Color.WHITE);
-      g.setFont(new Font("SansSerif", Font.BOLD, 28));
-      g.drawString("Game Over", bx + 40, by + BOARD_H / 2 - 10);
-      g.setFont(new Font("SansSerif", Font.PLAIN, 16));
-      g.drawString("Press R to Restart", bx + 40, by + BOARD_H / 2 + 18);
+  // On the saver thread, the only one that touches the store after startup
+  private void saveScore(ScoreRecord score) {
+    try {
+      scores.append(score);
+    } catch (IOException e) {
+      System.err.println("Could not save score: " + e.getMessage());
     }
   }
 
-  private void drawCell(Graphics2D g, int px, int py, Color base) {
-    // Block with simple shading for a polished look
-    int s = CELL - 2;
-    px += 1;
-    py += 1; // padding
-    g.setColor(base);
-    g.fillRoundRect(px, py, s, s, 6, 6);
-
-    // Highlights and shadows
-    g.setColor(base.brighter());
-    g.drawLine(px + 2, py + 2, px + s - 3, py + 2);
-    g.drawLine(px + 2, py + 2, px + 2, py + s - 3);
-    g.setColor(base.darker());
-    g.drawLine(px + 2, py + s - 2, px + s - 2, py + s - 2);
-    g.drawLine(px + s - 2, py + 2, px + s - 2, py + s - 2);
-
-    // Inner inset
-    g.setColor(new Color(255, 255, 255, 30));
-    g.fillRoundRect(px + 3, py + 3, s - 6, (s - 6) / 2, 6, 6);
-  }
-
-  private void drawPiece(
-    Graphics2D g,
-    Tetromino piece,
-    int gx,
-    int gy,
-    int bx,
-    int by,
-    boolean ghost
-  ) {
-    Color c = Tetromino.colorFor(piece.getType());
-    Color ghostC = new Color(c.getRed(), c.getGreen(), c.getBlue(), 70);
-    for (java.awt.Point p : piece.getCells()) {
-      int x = gx + p.x;
-      int y = gy + p.y;
-      if (y < 0) continue; // above visible area
-      int px = bx + x * CELL;
-      int py = by + y * CELL;
-      if (ghost) {
-        // ghost as translucent filled rectangle
-        int s = CELL - 2;
-        px += 1;
-        py += 1;
-        g.setColor(ghostC);
-        g.fillRoundRect(px, py, s, s, 6, 6);
-        g.setColor(new Color(255, 255, 255, 60));
-        g.drawRoundRect(px, py, s, s, 6, 6);
-      } else {
-        drawCell(g, px, py, c);
-      }
+  private void updatePieceBounds() {
+    Tetromino current = engine.getCurrent();
+    if (engine.isGameOver() || current == null) {
+      nextPiece.setBounds(0, 0, 0, 0);
+      nextGhost.setBounds(0, 0, 0, 0);
+      return;
     }
+    int x = engine.getPieceX();
+    int y = engine.getPieceY();
+    renderer.pieceBounds(current, x, y, nextPiece);
+    renderer.pieceBounds(current, x, y + engine.getDropDistance(), nextGhost);
   }
 
-  private void drawPreview(Graphics2D g, Tetromino.Type type, int sx, int sy) {
-    Tetromino tmp = new Tetromino(type);
-    // Center preview in a 4x4 area
-    int box = CELL * 4;
-    int ox = sx + 10;
-    int oy = sy + 20;
-    // Draw a subtle box
-    g.setColor(new Color(255, 255, 255, 20));
-    g.drawRoundRect(ox - 6, oy - 16, box, box, 10, 10);
-
-    Color c = Tetromino.colorFor(type);
-    for (java.awt.Point p : tmp.getCells()) {
-      int px = ox + p.x * CELL;
-      int py = oy + p.y * CELL;
-      if (type == Tetromino.Type.I) {
-        // Better centering for I piece
-        px -= CELL / 2;
-        py -= CELL / 2;
-      }
-      drawCell(g, px, py, c);
+  private void swapPieceBounds() {
+    Rectangle tmp = shownPiece;
+    shownPiece = nextPiece;
+    nextPiece = tmp;
+    tmp = shownGhost;
+    shownGhost = nextGhost;
+    nextGhost = tmp;
+  }
+
+  @Override
+  protected void paintComponent(Graphics g0) {
+    super.paintComponent(g0);
+    if (canvas != null) return; // the canvas draws itself
+    long start = System.nanoTime();
+    synchronized (engine) {
+      renderer.paint((Graphics2D) g0, engine);
     }
+    long end = System.nanoTime();
+    metrics.recordPaint(end - start);
+    metrics.markRendered(end);
+    if (showMetrics) renderer.paintMetrics((Graphics2D) g0, metrics);
   }
 }
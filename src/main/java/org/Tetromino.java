@@ -3,9 +3,14 @@ package org;
 import java.awt.Color;
 import java.awt.Point;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
-public class Tetromino {
+// A piece type in one rotation. There are only 28 of these: instances are
+// immutable flyweights shared through of(), and rotating returns another
+// shared instance, so spawning, rotating and previewing never allocate.
+// Each instance keeps references to its rows of the geometry tables.
+public final class Tetromino {
 
   public enum Type {
     I,
@@ -18,13 +23,46 @@ public class Tetromino {
   }
 
   public static final int SIZE = 4; // 4x4 bounding box per rotation
+  public static final int CELL_COUNT = 4; // every tetromino has four blocks
+
+  private static final Type[] TYPES = Type.values();
 
   private final Type type;
-  private int rotation; // 0..3
+  private final int rotation; // 0..3
+  private final int index; // type.ordinal() * 4 + rotation
+  private final int[] cellX;
+  private final int[] cellY;
+  private final int[] rowMasks;
+  private final int[] columnBottoms;
+  private final int minX;
+  private final int minY;
+  private final int maxX;
+  private final int maxY;
 
-  public Tetromino(Type type) {
+  private Tetromino(Type type, int rotation) {
     this.type = type;
-    this.rotation = 0;
+    this.rotation = rotation;
+    index = type.ordinal() * 4 + rotation;
+    cellX = CELL_X[index];
+    cellY = CELL_Y[index];
+    rowMasks = ROW_MASKS[index];
+    columnBottoms = COLUMN_BOTTOMS[index];
+    minX = BOUNDS[index][0];
+    minY = BOUNDS[index][1];
+    maxX = BOUNDS[index][2];
+    maxY = BOUNDS[index][3];
+  }
+
+  // The spawn orientation of a type
+  public static Tetromino of(Type type) {
+    return SHAPES[type.ordinal() * 4];
+  }
+
+  public static Tetromino of(Type type, int rotation) {
+    if (rotation < 0 || rotation > 3) {
+      throw new IllegalArgumentException("Rotation " + rotation);
+    }
+    return SHAPES[type.ordinal() * 4 + rotation];
   }
 
   public Type getType() {
@@ -35,57 +73,68 @@ public class Tetromino {
     return rotation;
   }
 
-  public void rotateCW() {
-    rotation = (rotation + 1) % 4;
+  public Tetromino rotatedCW() {
+    return SHAPES[index - rotation + ((rotation + 1) & 3)];
   }
 
-  public void rotateCCW() {
-    rotation = (rotation + 3) % 4;
+  public Tetromino rotatedCCW() {
+    return SHAPES[index - rotation + ((rotation + 3) & 3)];
   }
 
   public List<Point> getCells() {
-    int[][] shape = getShapeMatrix(type, rotation);
-    List<Point> cells = new ArrayList<Point>(4);
-    for (int y = 0; y < SIZE; y++) {
-      for (int x = 0; x < SIZE; x++) {
-        if (shape[y][x] == 1) {
-          cells.add(new Point(x, y));
-        }
-      }
+    List<Point> cells = new ArrayList<Point>(CELL_COUNT);
+    for (int i = 0; i < CELL_COUNT; i++) {
+      cells.add(new Point(cellX[i], cellY[i]));
     }
     return cells;
   }
 
+  // Allocation-free cell access for hot paths; i is in [0, CELL_COUNT)
+  public int cellX(int i) {
+    return cellX[i];
+  }
+
+  public int cellY(int i) {
+    return cellY[i];
+  }
+
+  // Bitmask of filled columns in the given row of the 4x4 box (bit x = column x)
+  public int rowMask(int row) {
+    return rowMasks[row];
+  }
+
+  // Lowest filled row in the given column of the 4x4 box, or -1 if empty
+  public int columnBottom(int col) {
+    return columnBottoms[col];
+  }
+
+  public int getMinX() {
+    return minX;
+  }
+
+  public int getMinY() {
+    return minY;
+  }
+
+  public int getMaxX() {
+    return maxX;
+  }
+
+  public int getMaxY() {
+    return maxY;
+  }
+
   public int getWidth() {
-    int[][] m = getShapeMatrix(type, rotation);
-    int minX = SIZE,
-      maxX = -1;
-    for (int y = 0; y < SIZE; y++) {
-      for (int x = 0; x < SIZE; x++) {
-        if (m[y][x] == 1) {
-          if (x < minX) minX = x;
-          if (x > maxX) maxX = x;
-        }
-      }
-    }
-    if (maxX == -1) return 0;
-    return (maxX - minX + 1);
+    return maxX - minX + 1;
   }
 
   public int getHeight() {
-    int[][] m = getShapeMatrix(type, rotation);
-    int minY = SIZE,
-      maxY = -1;
-    for (int y = 0; y < SIZE; y++) {
-      for (int x = 0; x < SIZE; x++) {
-        if (m[y][x] == 1) {
-          if (y < minY) minY = y;
-          if (y > maxY) maxY = y;
-        }
-      }
-    }
-    if (maxY == -1) return 0;
-    return (maxY - minY + 1);
+    return maxY - minY + 1;
+  }
+
+  @Override
+  public String toString() {
+    return type + "/" + rotation;
   }
 
   public static Color colorFor(Type t) {
@@ -110,8 +159,8 @@ public class Tetromino {
   }
 
   public static Color colorForOrdinal(int ord) {
-    if (ord < 0 || ord >= Type.values().length) return Color.DARK_GRAY;
-    return colorFor(Type.values()[ord]);
+    if (ord < 0 || ord >= TYPES.length) return Color.DARK_GRAY;
+    return colorFor(TYPES[ord]);
   }
 
   public static int[][] getShapeMatrix(Type type, int rot) {
@@ -214,4 +263,58 @@ public class Tetromino {
     // 3
     { { 0, 0, 1, 0 }, { 0, 1, 1, 0 }, { 0, 1, 0, 0 }, { 0, 0, 0, 0 } },
   };
+
+  // Geometry tables indexed by type.ordinal() * 4 + rotation, built once from
+  // the shape matrices above (they must be declared first).
+  private static final int[][] CELL_X = new int[TYPES.length * 4][CELL_COUNT];
+  private static final int[][] CELL_Y = new int[TYPES.length * 4][CELL_COUNT];
+  private static final int[][] ROW_MASKS = new int[TYPES.length * 4][SIZE];
+  private static final int[][] BOUNDS = new int[TYPES.length * 4][4]; // minX, minY, maxX, maxY
+  private static final int[][] COLUMN_BOTTOMS = new int[TYPES.length * 4][SIZE];
+
+  static {
+    for (int t = 0; t < TYPES.length; t++) {
+      for (int r = 0; r < 4; r++) {
+        int idx = t * 4 + r;
+        int[][] m = getShapeMatrix(TYPES[t], r);
+        Arrays.fill(COLUMN_BOTTOMS[idx], -1);
+        int n = 0;
+        int minX = SIZE,
+          minY = SIZE,
+          maxX = -1,
+          maxY = -1;
+        for (int y = 0; y < SIZE; y++) {
+          for (int x = 0; x < SIZE; x++) {
+            if (m[y][x] != 1) continue;
+            CELL_X[idx][n] = x;
+            CELL_Y[idx][n] = y;
+            n++;
+            ROW_MASKS[idx][y] |= 1 << x;
+            COLUMN_BOTTOMS[idx][x] = y;
+            if (x < minX) minX = x;
+            if (x > maxX) maxX = x;
+            if (y < minY) minY = y;
+            if (y > maxY) maxY = y;
+          }
+        }
+        BOUNDS[idx][0] = minX;
+        BOUNDS[idx][1] = minY;
+        BOUNDS[idx][2] = maxX;
+        BOUNDS[idx][3] = maxY;
+      }
+    }
+  }
+
+  // Every type and rotation, indexed like the tables; built after them
+  private static final Tetromino[] SHAPES = buildShapes();
+
+  private static Tetromino[] buildShapes() {
+    Tetromino[] shapes = new Tetromino[TYPES.length * 4];
+    for (int t = 0; t < TYPES.length; t++) {
+      for (int r = 0; r < 4; r++) {
+        shapes[t * 4 + r] = new Tetromino(TYPES[t], r);
+      }
+    }
+    return shapes;
+  }
 }
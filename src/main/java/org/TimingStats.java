@@ -0,0 +1,65 @@
+package org;
+
+// Running statistics for a stream of durations (frame intervals, step
+// times). Jitter is the standard deviation around the mean.
+public class TimingStats {
+
+  private long count;
+  private double mean;
+  private double m2; // sum of squared deviations (Welford)
+  private long min = Long.MAX_VALUE;
+  private long max;
+
+  public synchronized void record(long nanos) {
+    count++;
+    double delta = nanos - mean;
+    mean += delta / count;
+    m2 += delta * (nanos - mean);
+    if (nanos < min) min = nanos;
+    if (nanos > max) max = nanos;
+  }
+
+  public synchronized void reset() {
+    count = 0;
+    mean = 0;
+    m2 = 0;
+    min = Long.MAX_VALUE;
+    max = 0;
+  }
+
+  public synchronized long getCount() {
+    return count;
+  }
+
+  public synchronized double getMeanNanos() {
+    return mean;
+  }
+
+  public synchronized double getJitterNanos() {
+    return count > 1 ? Math.sqrt(m2 / (count - 1)) : 0;
+  }
+
+  public synchronized long getMinNanos() {
+    return count == 0 ? 0 : min;
+  }
+
+  public synchronized long getMaxNanos() {
+    return max;
+  }
+
+  public synchronized boolean isJitterBelow(long targetNanos) {
+    return getJitterNanos() < targetNanos;
+  }
+
+  @Override
+  public synchronized String toString() {
+    return String.format(
+      "n=%d mean=%.2fms jitter=%.2fms min=%.2fms max=%.2fms",
+      count,
+      mean / 1e6,
+      getJitterNanos() / 1e6,
+      getMinNanos() / 1e6,
+      max / 1e6
+    );
+  }
+}
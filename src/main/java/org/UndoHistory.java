@@ -0,0 +1,74 @@
+package org;
+
+// Bounded undo/redo for practice mode. The engine saves a snapshot into a
+// preallocated ring every time a piece spawns; undo restores the snapshot
+// of the previous piece and redo walks forward again until a new piece is
+// played. Each entry is GameEngine.getSnapshotLongs() longs.
+public class UndoHistory {
+
+  public static final int DEFAULT_CAPACITY = 64;
+
+  private final int capacity;
+  private long[] slots; // sized for the engine on first use
+  private int entryLongs;
+  // Absolute entry numbers: first is the oldest kept, cursor the entry of
+  // the piece in play and last one past the newest (redo) entry
+  private long first;
+  private long cursor;
+  private long last;
+
+  public UndoHistory(int capacity) {
+    // The piece queue can only be rewound over its own history
+    if (capacity < 2 || capacity > PieceFactory.HISTORY) {
+      throw new IllegalArgumentException("Capacity " + capacity);
+    }
+    this.capacity = capacity;
+    clear();
+  }
+
+  public void clear() {
+    first = 0;
+    cursor = -1;
+    last = 0;
+  }
+
+  // Called by the engine after each spawn; drops any redo entries
+  void record(GameEngine engine) {
+    if (entryLongs != engine.getSnapshotLongs()) {
+      // First use, or an engine with another board size: start over
+      entryLongs = engine.getSnapshotLongs();
+      slots = new long[capacity * entryLongs];
+      clear();
+    }
+    cursor++;
+    last = cursor + 1;
+    if (last - first > capacity) first = last - capacity;
+    engine.saveTo(slots, offset(cursor));
+  }
+
+  boolean undo(GameEngine engine) {
+    if (cursor <= first) return false;
+    cursor--;
+    engine.restoreFrom(slots, offset(cursor));
+    return true;
+  }
+
+  boolean redo(GameEngine engine) {
+    if (cursor + 1 >= last) return false;
+    cursor++;
+    engine.restoreFrom(slots, offset(cursor));
+    return true;
+  }
+
+  public int getUndoDepth() {
+    return (int) Math.max(0, cursor - first);
+  }
+
+  public int getRedoDepth() {
+    return (int) (last - cursor - 1);
+  }
+
+  private int offset(long entry) {
+    return (int) (entry % capacity) * entryLongs;
+  }
+}
@@ -0,0 +1,71 @@
+package org;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+// Unsigned LEB128 varints: 7 bits per byte, high bit set on all but the last
+public final class VarInt {
+
+  private VarInt() {}
+
+  public static void writeLong(OutputStream out, long value)
+    throws IOException {
+    while ((value & ~0x7FL) != 0) {
+      out.write((int) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    out.write((int) value);
+  }
+
+  public static long readLong(InputStream in) throws IOException {
+    long value = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      int b = in.read();
+      if (b < 0) throw new EOFException("Truncated varint");
+      value |= (long) (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) return value;
+    }
+    throw new IOException("Varint too long");
+  }
+
+  public static void writeInt(OutputStream out, int value) throws IOException {
+    writeLong(out, value & 0xFFFFFFFFL);
+  }
+
+  public static int readInt(InputStream in) throws IOException {
+    return (int) readLong(in);
+  }
+
+  // Buffer versions for encoders that must not allocate
+  public static void putLong(ByteBuffer out, long value) {
+    while ((value & ~0x7FL) != 0) {
+      out.put((byte) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    out.put((byte) value);
+  }
+
+  public static long getLong(ByteBuffer in) throws IOException {
+    long value = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      if (!in.hasRemaining()) throw new IOException("Truncated varint");
+      int b = in.get();
+      value |= (long) (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) return value;
+    }
+    throw new IOException("Varint too long");
+  }
+
+  // Zigzag: small negative numbers stay short (-1 is one byte)
+  public static void putSigned(ByteBuffer out, int value) {
+    putLong(out, ((value << 1) ^ (value >> 31)) & 0xFFFFFFFFL);
+  }
+
+  public static int getSigned(ByteBuffer in) throws IOException {
+    int zigzag = (int) getLong(in);
+    return (zigzag >>> 1) ^ -(zigzag & 1);
+  }
+}
@@ -0,0 +1,48 @@
+package org;
+
+// Zobrist hashing of board occupancy: every (x, y) cell has a fixed
+// pseudo-random 64-bit key and a board hashes to the XOR of the keys of its
+// filled cells, so locking a piece or moving a row only XORs the changed
+// cells in or out. Keys come from a mixing function rather than a table.
+public final class Zobrist {
+
+  private Zobrist() {}
+
+  public static long cell(int x, int y) {
+    return mix(((long) y << 32) | (x & 0xffffffffL));
+  }
+
+  // XOR of the cell keys for the bits of mask in row y
+  public static long row(long mask, int y) {
+    return row(mask, 0, y);
+  }
+
+  // Same for a mask whose bit 0 is column baseX
+  public static long row(long mask, int baseX, int y) {
+    long hash = 0L;
+    while (mask != 0) {
+      hash ^= cell(baseX + Long.numberOfTrailingZeros(mask), y);
+      mask &= mask - 1;
+    }
+    return hash;
+  }
+
+  // Hash of any board computed from scratch
+  public static long of(GameBoard board) {
+    long hash = 0L;
+    for (int y = 0; y < board.getHeight(); y++) {
+      for (int x = 0; x < board.getWidth(); x++) {
+        if (board.getCell(x, y) >= 0) hash ^= cell(x, y);
+      }
+    }
+    return hash;
+  }
+
+  // SplitMix64 finalizer
+  public static long mix(long z) {
+    z += 0x9E3779B97F4A7C15L;
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+}
@@ -0,0 +1,41 @@
+package org;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.Test;
+
+public class BatchSimulatorTest {
+
+  @Test
+  public void resultsDoNotDependOnThreadCount() throws IOException {
+    String single = runSorted(1);
+    String parallel = runSorted(3);
+    assertEquals(single, parallel);
+    // header + one line per game
+    assertEquals(201, single.split("\n").length);
+  }
+
+  private static String runSorted(int threads) throws IOException {
+    StringWriter out = new StringWriter();
+    BatchSimulator simulator = new BatchSimulator(
+      RandomPolicy.FACTORY,
+      Randomizer.Kind.BAG,
+      BatchSimulator.Format.CSV,
+      out
+    );
+    ForkJoinPool pool = new ForkJoinPool(threads);
+    try {
+      SimulationStats stats = simulator.run(200, 99L, pool);
+      assertEquals(200, stats.getGames());
+    } finally {
+      pool.shutdown();
+    }
+    String[] lines = out.toString().split("\n");
+    Arrays.sort(lines);
+    return String.join("\n", lines);
+  }
+}
@@ -0,0 +1,278 @@
+package org;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Drives the array board and the bitboard through the same random moves and
+ * checks that they never disagree.
+ */
+public class BoardEquivalenceTest {
+
+  @ParameterizedTest
+  @ValueSource(longs = { 1L, 7L, 42L, 1234L, 99999L })
+  public void randomGamesMatch(long seed) {
+    playRandomGame(seed, 2000, new Board(), new BitBoard());
+  }
+
+  // Wide boards cross the 64-column word boundary of the bitboard rows
+  @ParameterizedTest
+  @CsvSource({ "3, 4, 4", "5, 40, 100", "11, 70, 24", "13, 130, 16" })
+  public void otherSizesMatch(long seed, int cols, int rows) {
+    playRandomGame(
+      seed,
+      300,
+      new Board(cols, rows),
+      new BitBoard(cols, rows)
+    );
+  }
+
+  // A row filled by pieces straddling both word boundaries of a 130-wide
+  // board clears on both implementations
+  @Test
+  public void wideRowClears() {
+    Board expected = new Board(130, 8);
+    BitBoard actual = new BitBoard(130, 8);
+    Tetromino o = Tetromino.of(Tetromino.Type.O);
+    Tetromino i = Tetromino.of(Tetromino.Type.I);
+    for (GameBoard board : new GameBoard[] { expected, actual }) {
+      board.lockPiece(o, -o.getMinX(), 7 - o.getMaxY());
+      for (int x = 2; x < 130; x += 4) {
+        board.lockPiece(i, x - i.getMinX(), 7 - i.getMaxY());
+      }
+    }
+    assertEquals(1, expected.clearCompletedLines());
+    assertEquals(1, actual.clearCompletedLines());
+    assertSameCells(expected, actual);
+    assertEquals(1, actual.getColumnHeight(0));
+    assertEquals(0, actual.getColumnHeight(129));
+  }
+
+  // Every row of the tallest board cleared at once still counts right
+  @Test
+  public void tallestBoardClearsEveryRow() {
+    int rows = Board.MAX_SIZE;
+    Tetromino i = Tetromino.of(Tetromino.Type.I);
+    for (GameBoard board : new GameBoard[] {
+      new Board(4, rows),
+      new BitBoard(4, rows),
+    }) {
+      for (int y = 0; y < rows; y++) {
+        board.lockPiece(i, -i.getMinX(), y - i.getMinY());
+      }
+      long result = board.clearLines();
+      assertEquals(rows, LineClear.count(result));
+      assertEquals(rows - 1, LineClear.bottomRow(result));
+      assertTrue(LineClear.isCleared(result, rows - 32));
+      assertEquals(0, board.getStackHeight());
+    }
+  }
+
+  // Garbage with no hole would clear as it lands, so it is refused
+  @Test
+  public void garbageNeedsAHole() {
+    for (final GameBoard board : new GameBoard[] {
+      new Board(),
+      new BitBoard(),
+    }) {
+      assertThrows(
+        IllegalArgumentException.class,
+        new Executable() {
+          public void execute() {
+            board.addGarbage(1, board.getWidth());
+          }
+        }
+      );
+      assertThrows(
+        IllegalArgumentException.class,
+        new Executable() {
+          public void execute() {
+            board.addGarbage(new int[] { 0, -1 }, 0, 2);
+          }
+        }
+      );
+      assertEquals(0, board.getStackHeight());
+    }
+  }
+
+  // Raising rows in one push matches raising them one at a time, and a
+  // push that drops filled cells off the top reports the top-out
+  @ParameterizedTest
+  @CsvSource({ "10, 20", "70, 12", "130, 8" })
+  public void garbageRowsMatchOneAtATime(int cols, int rows) {
+    Random random = new Random(cols);
+    int[] holes = new int[rows + 2];
+    for (int i = 0; i < holes.length; i++) holes[i] = random.nextInt(cols);
+    GameBoard[] boards = { new Board(cols, rows), new BitBoard(cols, rows) };
+    GameBoard[] singles = { new Board(cols, rows), new BitBoard(cols, rows) };
+    for (int b = 0; b < boards.length; b++) {
+      GameBoard board = boards[b];
+      GameBoard single = singles[b];
+      Tetromino t = Tetromino.of(Tetromino.Type.T);
+      board.lockPiece(t, 0, rows - 2);
+      single.lockPiece(t, 0, rows - 2);
+      assertTrue(board.addGarbage(holes, 1, 3));
+      for (int i = 1; i < 4; i++) single.addGarbage(1, holes[i]);
+      assertSameCells(single, board);
+      assertEquals(5, board.getStackHeight());
+
+      assertTrue(board.shiftUp(rows - 5));
+      assertEquals(rows, board.getStackHeight());
+      assertEquals(-1, board.getCell(0, rows - 1));
+      assertFalse(board.shiftUp(1)); // the top of the T goes
+      assertEquals(rows, board.getStackHeight());
+      assertEquals(3, firstEmpty(board, 0)); // its bottom row is left
+      assertFalse(board.addGarbage(holes, 0, rows + 2));
+      assertEquals(rows, board.getStackHeight());
+      assertEquals(holes[2], firstEmpty(board, 0));
+      assertEquals(holes[rows + 1], firstEmpty(board, rows - 1));
+    }
+  }
+
+  // An empty column under the same hole in the top garbage rows only
+  // reaches the first row below with another hole
+  @Test
+  public void repeatedHolesKeepColumnHeights() {
+    int[] holes = { 3, 3, 5, 3 };
+    GameBoard[] boards = { new Board(), new BitBoard() };
+    for (GameBoard board : boards) {
+      GameBoard single = board instanceof Board ? new Board() : new BitBoard();
+      assertTrue(board.addGarbage(holes, 0, holes.length));
+      for (int hole : holes) single.addGarbage(1, hole);
+      assertSameCells(single, board);
+      assertEquals(2, board.getColumnHeight(3));
+      assertEquals(4, board.getColumnHeight(5));
+    }
+  }
+
+  private static int firstEmpty(GameBoard board, int y) {
+    int x = 0;
+    while (x < board.getWidth() && board.getCell(x, y) != -1) x++;
+    return x;
+  }
+
+  private static void playRandomGame(
+    long seed,
+    int moves,
+    Board expected,
+    BitBoard actual
+  ) {
+    Random random = new Random(seed);
+    int cols = expected.getWidth();
+    int rows = expected.getHeight();
+    Tetromino.Type[] types = Tetromino.Type.values();
+
+    for (int move = 0; move < moves; move++) {
+      Tetromino.Type type = types[random.nextInt(types.length)];
+      Tetromino piece = Tetromino.of(type, random.nextInt(4));
+
+      // Probe collisions across and beyond the board edges
+      for (int px = -3; px <= cols; px++) {
+        for (int py = -3; py <= rows; py++) {
+          boolean fits = expected.canPlace(piece, px, py);
+          assertEquals(
+            fits,
+            actual.canPlace(piece, px, py),
+            "canPlace at " + px + "," + py
+          );
+          if (fits) {
+            int drop = 0;
+            while (expected.canPlace(piece, px, py + drop + 1)) drop++;
+            assertEquals(drop, expected.dropDistance(piece, px, py));
+            assertEquals(drop, actual.dropDistance(piece, px, py));
+          }
+        }
+      }
+
+      int px = random.nextInt(cols + 2) - 2;
+      if (!expected.canPlace(piece, px, -2)) {
+        expected.reset();
+        actual.reset();
+        continue;
+      }
+      int py = -2;
+      while (expected.canPlace(piece, px, py + 1)) py++;
+      expected.lockPiece(piece, px, py);
+      actual.lockPiece(piece, px, py);
+      if (random.nextInt(8) == 0) {
+        int count = 1 + random.nextInt(3);
+        int hole = random.nextInt(cols);
+        int[] holes = { hole, random.nextInt(cols), random.nextInt(cols) };
+        int op = random.nextInt(4);
+        if (op < 2) {
+          assertEquals(
+            expected.addGarbage(count, hole),
+            actual.addGarbage(count, hole)
+          );
+        } else if (op == 2) {
+          assertEquals(
+            expected.addGarbage(holes, 0, count),
+            actual.addGarbage(holes, 0, count)
+          );
+        } else {
+          assertEquals(expected.shiftUp(count), actual.shiftUp(count));
+        }
+        assertEquals(expected.getStackHeight(), actual.getStackHeight());
+      }
+
+      List<Integer> full = expected.getCompletedLines();
+      assertEquals(full, actual.getCompletedLines());
+      int mode = random.nextInt(3);
+      if (mode == 0) {
+        assertEquals(
+          expected.clearCompletedLines(),
+          actual.clearCompletedLines()
+        );
+      } else if (mode == 1) {
+        long result = expected.clearLines();
+        assertEquals(result, actual.clearLines());
+        assertEquals(full.size(), LineClear.count(result));
+        for (int y = 0; y < rows; y++) {
+          assertEquals(
+            full.contains(Integer.valueOf(y)),
+            LineClear.isCleared(result, y)
+          );
+        }
+      } else {
+        List<Integer> lines = expected.getCompletedLines();
+        expected.removeLines(new ArrayList<Integer>(lines));
+        actual.removeLines(new ArrayList<Integer>(lines));
+      }
+      assertSameCells(expected, actual);
+    }
+  }
+
+  private static void assertSameCells(GameBoard expected, GameBoard actual) {
+    // Incremental hashes agree with each other and with a full rehash
+    assertEquals(Zobrist.of(expected), expected.getHash());
+    assertEquals(expected.getHash(), actual.getHash());
+    int cols = expected.getWidth();
+    int rows = expected.getHeight();
+    for (int x = 0; x < cols; x++) {
+      int y = 0;
+      while (y < rows && expected.getCell(x, y) == -1) y++;
+      assertEquals(rows - y, expected.getColumnHeight(x));
+      assertEquals(rows - y, actual.getColumnHeight(x));
+    }
+    for (int y = -1; y <= rows; y++) {
+      for (int x = -1; x <= cols; x++) {
+        assertEquals(
+          expected.getCell(x, y),
+          actual.getCell(x, y),
+          "cell " + x + "," + y
+        );
+      }
+    }
+  }
+}
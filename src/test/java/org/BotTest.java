@@ -0,0 +1,90 @@
+package org;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class BotTest {
+
+  @Test
+  public void botClearsLinesAndSurvives() {
+    GameEngine engine = new GameEngine(5L);
+    Bot bot = new Bot(Heuristic.DEFAULT, 1);
+    for (int i = 0; i < 500; i++) {
+      assertFalse(engine.isGameOver(), "topped out after " + i + " pieces");
+      bot.playPiece(engine);
+    }
+    assertTrue(engine.getScoreboard().getTotalLines() >= 150);
+    assertTrue(bot.getEvaluatedCount() > 500);
+  }
+
+  @Test
+  public void cacheDoesNotChangeDecisions() {
+    GameEngine plain = new GameEngine(11L);
+    GameEngine cached = new GameEngine(11L);
+    Bot uncachedBot = new Bot(Heuristic.DEFAULT, 1);
+    EvalCache cache = new EvalCache(1 << 16); // small enough to evict
+    Bot cachedBot = new Bot(Heuristic.DEFAULT, 1, cache);
+    for (int i = 0; i < 200 && !plain.isGameOver(); i++) {
+      uncachedBot.playPiece(plain);
+      cachedBot.playPiece(cached);
+    }
+    GameEngineTest.assertSameState(plain, cached);
+    assertTrue(cache.getHits() > 0);
+    assertTrue(cache.getEvictions() > 0);
+  }
+
+  // A Z resting in a pocket where it cannot turn clockwise can still turn
+  // counterclockwise, and that is where it fits best
+  @Test
+  public void blockedClockwiseTurnsTryCounterclockwise() {
+    GameEngine engine = new GameEngine(13L);
+    GameBoard board = engine.getBoard();
+    board.lockPiece(Tetromino.of(Tetromino.Type.S, 0), 2, 18);
+    board.lockPiece(Tetromino.of(Tetromino.Type.L, 2), 1, 17);
+    board.lockPiece(Tetromino.of(Tetromino.Type.T, 3), 7, 17);
+    Tetromino z = engine.getCurrent();
+    assertEquals(Tetromino.Type.Z, z.getType());
+    while (engine.getDropDistance() > 0) {
+      engine.step(GameInput.NONE, 1_000_000L);
+    }
+    int x = engine.getPieceX();
+    int y = engine.getPieceY();
+    RotationSystem srs = engine.getRotationSystem();
+    assertEquals(-1, srs.findKick(board, z, z.rotatedCW(), x, y));
+
+    Bot bot = new Bot(Heuristic.DEFAULT, 0);
+    assertTrue(bot.choose(engine));
+    assertEquals(3, bot.getBestRotation());
+    long[] snapshot = new long[board.getSnapshotLongs()];
+    board.saveTo(snapshot, 0);
+    Board expected = new Board();
+    expected.restoreFrom(snapshot, 0);
+    Tetromino turned = Tetromino.of(Tetromino.Type.Z, 3);
+    int px = bot.getBestX();
+    expected.lockPiece(
+      turned,
+      px,
+      y + expected.dropDistance(turned, px, y)
+    );
+    bot.playPiece(engine);
+    for (int row = 0; row < board.getHeight(); row++) {
+      for (int col = 0; col < board.getWidth(); col++) {
+        assertEquals(expected.getCell(col, row), board.getCell(col, row));
+      }
+    }
+  }
+
+  @Test
+  public void holesCountEmptyCellsUnderTheStack() {
+    BitBoard board = new BitBoard(false);
+    Tetromino o = Tetromino.of(Tetromino.Type.O);
+    board.lockPiece(o, 0, Board.ROWS - 1 - o.getMaxY()); // on the floor
+    assertEquals(0, Heuristic.countHoles(board));
+    board.reset();
+    board.lockPiece(o, 0, Board.ROWS - 3 - o.getMaxY()); // two rows up
+    assertEquals(4, Heuristic.countHoles(board));
+  }
+}
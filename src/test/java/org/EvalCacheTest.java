@@ -0,0 +1,31 @@
+package org;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class EvalCacheTest {
+
+  @Test
+  public void storesAndCountsLookups() {
+    EvalCache cache = new EvalCache(1 << 12);
+    cache.put(Zobrist.mix(1), 1.5);
+    assertEquals(1.5, cache.get(Zobrist.mix(1), Double.NaN));
+    assertTrue(Double.isNaN(cache.get(Zobrist.mix(2), Double.NaN)));
+    assertEquals(1, cache.getHits());
+    assertEquals(1, cache.getMisses());
+    assertEquals(0.5, cache.getHitRate());
+  }
+
+  @Test
+  public void staysWithinItsMemoryCap() {
+    EvalCache cache = new EvalCache(64 * EvalCache.BYTES_PER_ENTRY);
+    assertEquals(64, cache.getCapacity());
+    for (long i = 0; i < 10_000; i++) cache.put(Zobrist.mix(i), i);
+    assertTrue(cache.size() <= 64);
+    assertTrue(cache.getEvictions() > 0);
+    // Recently stored keys are still present
+    assertEquals(9_999.0, cache.get(Zobrist.mix(9_999), Double.NaN));
+  }
+}
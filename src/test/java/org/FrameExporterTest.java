@@ -0,0 +1,172 @@
+package org;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.Test;
+
+public class FrameExporterTest {
+
+  private static final long TICK = 16_666_667L;
+
+  @Test
+  public void writesOneFramePerPeriodFromAPool() throws Exception {
+    Replay replay = record(3L, 600);
+    FrameExporter exporter = new FrameExporter(30, 3);
+    final IdentityHashMap<BufferedImage, Boolean> images =
+      new IdentityHashMap<BufferedImage, Boolean>();
+    final List<Long> indexes = new ArrayList<Long>();
+    final int[] firstFrame = new int[1];
+    long frames = exporter.export(
+      replay,
+      new FrameExporter.Sink() {
+        public void write(BufferedImage frame, long index) {
+          images.put(frame, Boolean.TRUE);
+          indexes.add(index);
+          if (index == 0) firstFrame[0] = frame.getRGB(45, 45);
+        }
+
+        public void close() {}
+      }
+    );
+    assertEquals(replay.getDurationNanos() * 30 / 1_000_000_000L + 1, frames);
+    assertEquals(frames, indexes.size());
+    assertEquals(frames - 1, indexes.get(indexes.size() - 1).longValue());
+    assertTrue(images.size() <= 3, images.size() + " images");
+
+    // The first frame is the game before any input
+    GameEngine start = new GameEngine(replay.getSeed());
+    GameRenderer renderer = new GameRenderer();
+    BufferedImage expected = new BufferedImage(
+      renderer.getWidth(),
+      renderer.getHeight(),
+      BufferedImage.TYPE_INT_RGB
+    );
+    Graphics2D g = expected.createGraphics();
+    renderer.paint(g, start);
+    g.dispose();
+    assertEquals(expected.getRGB(45, 45), firstFrame[0]);
+  }
+
+  @Test
+  public void rangeLimitsTheFrames() throws Exception {
+    Replay replay = record(4L, 600);
+    FrameExporter exporter = new FrameExporter(60, 2);
+    exporter.setRange(2_000_000_000L, 4_000_000_000L);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    long frames = exporter.export(replay, new FrameExporter.RawVideo(out));
+    assertEquals(121, frames); // 2 s to 4 s inclusive
+    GameRenderer renderer = new GameRenderer();
+    int frameBytes = renderer.getWidth() * renderer.getHeight() * 3;
+    assertEquals(frames * frameBytes, out.size());
+    // The top-left pixel is the board background in every frame
+    byte[] bytes = out.toByteArray();
+    byte[] first = { bytes[0], bytes[1], bytes[2] };
+    byte[] last = {
+      bytes[bytes.length - frameBytes],
+      bytes[bytes.length - frameBytes + 1],
+      bytes[bytes.length - frameBytes + 2],
+    };
+    assertArrayEquals(first, last);
+  }
+
+  @Test
+  public void sinkFailuresStopTheExport() {
+    final Replay replay = record(5L, 600);
+    final FrameExporter exporter = new FrameExporter(60, 2);
+    IOException e = assertThrows(
+      IOException.class,
+      new org.junit.jupiter.api.function.Executable() {
+        public void execute() throws Throwable {
+          exporter.export(
+            replay,
+            new FrameExporter.Sink() {
+              public void write(BufferedImage frame, long index)
+                throws IOException {
+                if (index == 10) throw new IOException("disk full");
+              }
+
+              public void close() {}
+            }
+          );
+        }
+      }
+    );
+    assertEquals("disk full", e.getMessage());
+    assertTrue(exporter.getFrames() < 20, exporter.getFrames() + " frames");
+  }
+
+  // Practice undos render the same game ReplayPlayer verifies
+  @Test
+  public void practiceReplaysRenderWithUndo() throws Exception {
+    Replay replay = record(6L, 600, true);
+    assertTrue(replay.isPractice());
+    final BufferedImage[] last = new BufferedImage[1];
+    new FrameExporter(60, 2).export(
+      replay,
+      new FrameExporter.Sink() {
+        public void write(BufferedImage frame, long index) {
+          if (last[0] == null) {
+            last[0] = new BufferedImage(
+              frame.getWidth(),
+              frame.getHeight(),
+              BufferedImage.TYPE_INT_RGB
+            );
+          }
+          last[0].getGraphics().drawImage(frame, 0, 0, null);
+        }
+
+        public void close() {}
+      }
+    );
+    GameRenderer renderer = new GameRenderer();
+    BufferedImage expected = new BufferedImage(
+      renderer.getWidth(),
+      renderer.getHeight(),
+      BufferedImage.TYPE_INT_RGB
+    );
+    Graphics2D g = expected.createGraphics();
+    renderer.paint(g, ReplayPlayer.play(replay));
+    g.dispose();
+    for (int y = 0; y < expected.getHeight(); y++) {
+      for (int x = 0; x < expected.getWidth(); x++) {
+        assertEquals(expected.getRGB(x, y), last[0].getRGB(x, y));
+      }
+    }
+  }
+
+  private static Replay record(long seed, int ticks) {
+    return record(seed, ticks, false);
+  }
+
+  // A game of random inputs, one every few ticks; practice games also undo
+  private static Replay record(long seed, int ticks, boolean practice) {
+    GameEngine engine = new GameEngine(seed);
+    engine.setRecorder(new ReplayRecorder(seed));
+    if (practice) engine.setUndoHistory(new UndoHistory(8));
+    SplittableRandom random = new SplittableRandom(seed);
+    int[] inputs = {
+      GameInput.MOVE_LEFT,
+      GameInput.MOVE_RIGHT,
+      practice ? GameInput.UNDO : GameInput.ROTATE_CW,
+      GameInput.HARD_DROP,
+    };
+    for (int i = 0; i < ticks; i++) {
+      int input = random.nextInt(4) == 0
+        ? inputs[random.nextInt(inputs.length)]
+        : GameInput.NONE;
+      engine.step(input, TICK);
+    }
+    return engine.getRecorder().toReplay(engine);
+  }
+}
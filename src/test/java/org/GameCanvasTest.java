@@ -0,0 +1,49 @@
+package org;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.awt.GraphicsEnvironment;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+public class GameCanvasTest {
+
+  @AfterEach
+  public void clearProperties() {
+    System.clearProperty("tetris.render");
+    System.clearProperty("tetris.fps");
+  }
+
+  @Test
+  public void headlessFallsBackToSwingPainting() {
+    assumeTrue(GraphicsEnvironment.isHeadless());
+    System.setProperty("tetris.render", "active");
+    TetrisPanel panel = new TetrisPanel();
+    try {
+      assertNull(panel.getCanvas());
+    } finally {
+      panel.getLoop().stop();
+      panel.getMetrics().unregister();
+    }
+  }
+
+  @Test
+  public void unknownRefreshRateMeansSixty() {
+    assertEquals(60, GameCanvas.refreshRate(null));
+  }
+
+  // Needs a display, e.g. xvfb-run mvn test
+  @Test
+  public void activeRenderingKeepsUpWithTheFrameRate() throws Exception {
+    assumeFalse(GraphicsEnvironment.isHeadless());
+    System.setProperty("tetris.render", "active");
+    System.setProperty("tetris.fps", "60");
+    FrameTimeHarness.Result result = FrameTimeHarness.run(2_000_000_000L);
+    assertTrue(result.active, "Fell back to Swing painting");
+    assertTrue(result.fps > 50, result.toString());
+  }
+}
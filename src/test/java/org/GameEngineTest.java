@@ -0,0 +1,274 @@
+package org;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+
+public class GameEngineTest {
+
+  private static final long FRAME_NANOS = 16_000_000L;
+
+  @Test
+  public void sameSeedAndInputsGiveSameGame() {
+    GameEngine a = new GameEngine(123L);
+    GameEngine b = new GameEngine(123L);
+    Random inputs = new Random(5L);
+    for (int i = 0; i < 20_000; i++) {
+      int input = randomInput(inputs);
+      a.step(input, FRAME_NANOS);
+      b.step(input, FRAME_NANOS);
+    }
+    assertSameState(a, b);
+  }
+
+  @Test
+  public void hardDropsEventuallyEndTheGame() {
+    GameEngine engine = new GameEngine(9L);
+    int steps = 0;
+    while (!engine.isGameOver() && steps < 1000) {
+      engine.step(GameInput.HARD_DROP, 0);
+      steps++;
+    }
+    assertTrue(engine.isGameOver());
+    assertTrue(engine.getScoreboard().getScore() > 0);
+  }
+
+  @Test
+  public void gravityMovesPieceAfterFallDelay() {
+    GameEngine engine = new GameEngine(1L);
+    int startY = engine.getPieceY();
+    long delay = engine.getScoreboard().getFallDelayMs() * 1_000_000L;
+    engine.step(GameInput.NONE, delay - 1);
+    assertEquals(startY, engine.getPieceY());
+    engine.step(GameInput.NONE, 1);
+    assertEquals(startY + 1, engine.getPieceY());
+  }
+
+  @Test
+  public void longFrameCatchesUpEveryGravityStep() {
+    GameEngine engine = new GameEngine(1L);
+    int startY = engine.getPieceY();
+    long delay = engine.getScoreboard().getFallDelayMs() * 1_000_000L;
+    engine.step(GameInput.NONE, 3 * delay + delay / 2);
+    assertEquals(startY + 3, engine.getPieceY());
+    engine.step(GameInput.NONE, delay / 2);
+    assertEquals(startY + 4, engine.getPieceY());
+  }
+
+  @Test
+  public void frameSizeDoesNotChangeOutcome() {
+    GameEngine fine = new GameEngine(77L);
+    GameEngine coarse = new GameEngine(77L);
+    for (int i = 0; i < 600; i++) {
+      // Both engines see the same input at the same instant
+      fine.step(GameInput.MOVE_RIGHT, 0);
+      coarse.step(GameInput.MOVE_RIGHT, 0);
+      for (int j = 0; j < 97; j++) fine.step(GameInput.NONE, 1_000_003L);
+      coarse.step(GameInput.NONE, 97 * 1_000_003L);
+    }
+    assertSameState(fine, coarse);
+  }
+
+  @Test
+  public void garbageRisesAfterALockWithoutClears() {
+    GameEngine engine = new GameEngine(3L);
+    engine.receiveGarbage(2, 4);
+    engine.receiveGarbage(1, 0);
+    assertEquals(3, engine.getPendingGarbage());
+    engine.step(GameInput.HARD_DROP, 0);
+    assertEquals(0, engine.getPendingGarbage());
+    GameBoard board = engine.getBoard();
+    int bottom = board.getHeight() - 1;
+    for (int x = 0; x < board.getWidth(); x++) {
+      int first = x == 0 ? -1 : GameBoard.GARBAGE; // raised last
+      int second = x == 4 ? -1 : GameBoard.GARBAGE;
+      assertEquals(first, board.getCell(x, bottom));
+      assertEquals(second, board.getCell(x, bottom - 1));
+    }
+    assertEquals(Zobrist.of(board), board.getHash());
+  }
+
+  @Test
+  public void garbageAboveTheTopEndsTheGame() {
+    GameEngine engine = new GameEngine(3L);
+    engine.receiveGarbage(engine.getBoard().getHeight(), 0);
+    engine.step(GameInput.HARD_DROP, 0);
+    assertTrue(engine.isGameOver());
+  }
+
+  // Queued lines saturate rather than wrap around, and each hole has to be
+  // on the board
+  @Test
+  public void hugeGarbageStillEndsTheGame() {
+    final GameEngine engine = new GameEngine(3L);
+    for (int i = 0; i < 40; i++) {
+      engine.receiveGarbage(Integer.MAX_VALUE / 8, i % 10);
+    }
+    assertEquals(Integer.MAX_VALUE, engine.getPendingGarbage());
+    assertThrows(
+      IllegalArgumentException.class,
+      new Executable() {
+        public void execute() {
+          engine.receiveGarbage(1, -1);
+        }
+      }
+    );
+    engine.step(GameInput.HARD_DROP, 0);
+    assertTrue(engine.isGameOver());
+    assertEquals(0, engine.getPendingGarbage());
+  }
+
+  @Test
+  public void restoredSnapshotReplaysTheSameFuture() {
+    GameEngine[] engines = {
+      new GameEngine(31L),
+      new GameEngine(new Board(), new PieceFactory(31L), 31L),
+      new GameEngine(31L, 40, 100),
+      new GameEngine(new Board(70, 24), new PieceFactory(31L), 31L),
+    };
+    for (GameEngine engine : engines) {
+      Random inputs = new Random(2L);
+      for (int i = 0; i < 300; i++) {
+        engine.step(randomInput(inputs), FRAME_NANOS);
+      }
+      long[] saved = new long[engine.getSnapshotLongs()];
+      engine.saveTo(saved, 0);
+
+      long[] first = playAndSave(engine, 17L);
+      engine.restoreFrom(saved, 0);
+      long[] second = playAndSave(engine, 17L);
+      assertArrayEquals(first, second);
+    }
+  }
+
+  @Test
+  public void undoAndRedoStepBetweenPieces() {
+    GameEngine engine = new GameEngine(4L);
+    engine.setUndoHistory(new UndoHistory(8));
+    long[] start = new long[engine.getSnapshotLongs()];
+    engine.saveTo(start, 0);
+    for (int i = 0; i < 3; i++) engine.step(GameInput.HARD_DROP, 0);
+    long[] played = new long[engine.getSnapshotLongs()];
+    engine.saveTo(played, 0);
+
+    for (int i = 0; i < 3; i++) engine.step(GameInput.UNDO, 0);
+    assertFalse(engine.undo());
+    assertArrayEquals(start, snapshot(engine));
+    for (int i = 0; i < 3; i++) engine.step(GameInput.REDO, 0);
+    assertArrayEquals(played, snapshot(engine));
+
+    // Playing a new piece after an undo discards the redo entries
+    engine.undo();
+    engine.step(GameInput.MOVE_LEFT | GameInput.HARD_DROP, 0);
+    assertFalse(engine.redo());
+  }
+
+  @Test
+  public void heldDirectionAutoRepeatsAfterDelay() {
+    GameEngine engine = new GameEngine(1L);
+    int x = engine.getPieceX();
+    engine.step(GameInput.RIGHT_PRESS, 0);
+    assertEquals(x + 1, engine.getPieceX());
+    engine.step(GameInput.NONE, GameEngine.DAS_NANOS - 1);
+    assertEquals(x + 1, engine.getPieceX());
+    engine.step(GameInput.NONE, 1);
+    assertEquals(x + 2, engine.getPieceX());
+    engine.step(GameInput.NONE, GameEngine.ARR_NANOS);
+    assertEquals(x + 3, engine.getPieceX());
+    // Pressing left while right is held takes over; releasing it hands
+    // back to right with a fresh delay
+    engine.step(GameInput.LEFT_PRESS, 0);
+    assertEquals(x + 2, engine.getPieceX());
+    engine.step(GameInput.LEFT_RELEASE, 0);
+    engine.step(GameInput.NONE, GameEngine.DAS_NANOS);
+    assertEquals(x + 3, engine.getPieceX());
+    engine.step(GameInput.RIGHT_RELEASE, 0);
+    engine.step(GameInput.NONE, 10 * GameEngine.ARR_NANOS);
+    assertEquals(x + 3, engine.getPieceX());
+  }
+
+  @Test
+  public void autoRepeatDoesNotDependOnFrameSize() {
+    GameEngine fine = new GameEngine(8L);
+    GameEngine coarse = new GameEngine(8L);
+    int[] cycle = {
+      GameInput.LEFT_PRESS,
+      GameInput.RIGHT_PRESS,
+      GameInput.LEFT_RELEASE,
+      GameInput.RIGHT_RELEASE,
+    };
+    for (int i = 0; i < 200; i++) {
+      fine.step(cycle[i & 3], 0);
+      coarse.step(cycle[i & 3], 0);
+      for (int j = 0; j < 50; j++) fine.step(GameInput.NONE, 7_000_001L);
+      coarse.step(GameInput.NONE, 50 * 7_000_001L);
+    }
+    assertSameState(fine, coarse);
+    assertArrayEquals(snapshot(fine), snapshot(coarse));
+  }
+
+  private static long[] playAndSave(GameEngine engine, long seed) {
+    Random inputs = new Random(seed);
+    for (int i = 0; i < 300; i++) {
+      engine.step(randomInput(inputs), FRAME_NANOS);
+    }
+    return snapshot(engine);
+  }
+
+  private static long[] snapshot(GameEngine engine) {
+    long[] out = new long[engine.getSnapshotLongs()];
+    engine.saveTo(out, 0);
+    return out;
+  }
+
+  private static int randomInput(Random random) {
+    switch (random.nextInt(12)) {
+      case 0:
+        return GameInput.MOVE_LEFT;
+      case 1:
+        return GameInput.MOVE_RIGHT;
+      case 2:
+        return GameInput.ROTATE_CW;
+      case 3:
+        return GameInput.ROTATE_CCW;
+      case 4:
+        return GameInput.HARD_DROP;
+      case 5:
+        return GameInput.SOFT_DROP_PRESS;
+      case 6:
+        return GameInput.SOFT_DROP_RELEASE;
+      default:
+        return GameInput.NONE;
+    }
+  }
+
+  static void assertSameState(GameEngine a, GameEngine b) {
+    assertEquals(a.isGameOver(), b.isGameOver());
+    assertEquals(a.getScoreboard().getScore(), b.getScoreboard().getScore());
+    assertEquals(
+      a.getScoreboard().getTotalLines(),
+      b.getScoreboard().getTotalLines()
+    );
+    assertEquals(a.getPieceX(), b.getPieceX());
+    assertEquals(a.getPieceY(), b.getPieceY());
+    assertEquals(a.getCurrent().getType(), b.getCurrent().getType());
+    assertEquals(a.getCurrent().getRotation(), b.getCurrent().getRotation());
+    assertEquals(a.getBoard().getWidth(), b.getBoard().getWidth());
+    assertEquals(a.getBoard().getHeight(), b.getBoard().getHeight());
+    for (int y = 0; y < a.getBoard().getHeight(); y++) {
+      for (int x = 0; x < a.getBoard().getWidth(); x++) {
+        assertEquals(
+          a.getBoard().getCell(x, y),
+          b.getBoard().getCell(x, y),
+          "cell " + x + "," + y
+        );
+      }
+    }
+  }
+}
@@ -0,0 +1,54 @@
+package org;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class InputQueueTest {
+
+  @Test
+  public void keepsOrderAndTimestamps() {
+    InputQueue queue = new InputQueue(4);
+    long now = System.nanoTime();
+    for (int round = 0; round < 10; round++) {
+      for (int i = 0; i < 4; i++) {
+        assertTrue(queue.offer(GameInput.LEFT_PRESS << i, now + i));
+      }
+      assertFalse(queue.offer(GameInput.HARD_DROP, now));
+      for (int i = 0; i < 4; i++) {
+        long event = queue.poll();
+        assertEquals(GameInput.LEFT_PRESS << i, queue.inputOf(event));
+        assertEquals(now + i, queue.nanosOf(event));
+      }
+      assertEquals(InputQueue.EMPTY, queue.poll());
+    }
+    assertEquals(10, queue.getDropped());
+  }
+
+  @Test
+  public void handsEventsAcrossThreads() throws InterruptedException {
+    final InputQueue queue = new InputQueue(16);
+    final int count = 200_000;
+    Thread producer = new Thread(
+      new Runnable() {
+        public void run() {
+          for (int i = 0; i < count; i++) {
+            while (!queue.offer(i & 0xffff, System.nanoTime())) {
+              Thread.yield();
+            }
+          }
+        }
+      }
+    );
+    producer.start();
+    for (int i = 0; i < count; i++) {
+      long event;
+      while ((event = queue.poll()) == InputQueue.EMPTY) Thread.yield();
+      assertEquals(i & 0xffff, queue.inputOf(event));
+    }
+    producer.join();
+    assertEquals(InputQueue.EMPTY, queue.poll());
+  }
+}
@@ -0,0 +1,157 @@
+package org;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Plays matches against a server on a loopback port with blocking clients.
+ */
+public class MatchServerTest {
+
+  private MatchServer server;
+
+  @BeforeEach
+  public void startServer() throws IOException {
+    server = new MatchServer(
+      new InetSocketAddress("127.0.0.1", 0),
+      Board.COLS,
+      Board.ROWS
+    );
+    server.start();
+  }
+
+  @AfterEach
+  public void stopServer() throws IOException {
+    server.close();
+  }
+
+  @Test
+  public void headToHeadEndsWhenOnePlayerTopsOut() throws IOException {
+    MatchClient a = new MatchClient("127.0.0.1", server.getPort());
+    MatchClient b = new MatchClient("127.0.0.1", server.getPort());
+    try {
+      a.join(2);
+      b.join(2);
+      Recorder ra = new Recorder();
+      Recorder rb = new Recorder();
+      a.readFrame(ra);
+      b.readFrame(rb);
+      assertEquals(ra.seed, rb.seed);
+      assertNotEquals(ra.player, rb.player);
+      assertEquals(Board.COLS, ra.cols);
+
+      // The first state mirrors into an engine with the match seed
+      a.readFrame(ra);
+      GameEngine mirror = new GameEngine(ra.seed, ra.cols, ra.rows);
+      mirror.restoreFrom(ra.snapshot, 0);
+      assertArrayEquals(
+        ra.snapshot,
+        snapshot(mirror),
+        "mirror matches the server's state"
+      );
+
+      // a hard drops until it tops out
+      while (ra.places.isEmpty()) {
+        a.sendInput(GameInput.HARD_DROP);
+        a.readFrame(ra);
+      }
+      while (ra.places.size() < 2) assertTrue(a.readFrame(ra));
+      while (rb.places.size() < 2) assertTrue(b.readFrame(rb));
+      assertEquals(2, ra.placeOf(ra.player));
+      assertEquals(1, ra.placeOf(rb.player));
+      assertEquals(2, rb.placeOf(ra.player));
+      assertEquals(1, rb.placeOf(rb.player));
+    } finally {
+      a.close();
+      b.close();
+    }
+  }
+
+  @Test
+  public void leavingForfeitsTheMatch() throws IOException {
+    MatchClient a = new MatchClient("127.0.0.1", server.getPort());
+    MatchClient b = new MatchClient("127.0.0.1", server.getPort());
+    try {
+      a.join(2);
+      b.join(2);
+      Recorder rb = new Recorder();
+      b.readFrame(rb);
+      a.close();
+      while (rb.places.size() < 2) assertTrue(b.readFrame(rb));
+      assertEquals(1, rb.placeOf(rb.player));
+    } finally {
+      b.close();
+    }
+  }
+
+  @Test
+  public void loadGeneratorPlaysManyMatches() throws IOException {
+    MatchLoadGenerator load = new MatchLoadGenerator(
+      "127.0.0.1",
+      server.getPort(),
+      50,
+      2,
+      50
+    );
+    try {
+      load.run(3_000_000_000L);
+    } finally {
+      load.close();
+    }
+    assertTrue(load.getStates() > 0);
+    assertTrue(load.getMatchesFinished() > 0);
+  }
+
+  private static long[] snapshot(GameEngine engine) {
+    long[] out = new long[engine.getSnapshotLongs()];
+    engine.saveTo(out, 0);
+    return out;
+  }
+
+  private static final class Recorder implements MatchClient.Listener {
+
+    long seed;
+    int player;
+    int cols;
+    int rows;
+    long[] snapshot;
+    final List<int[]> places = new ArrayList<int[]>();
+
+    public void started(
+      long seed,
+      int player,
+      int players,
+      int cols,
+      int rows
+    ) {
+      this.seed = seed;
+      this.player = player;
+      this.cols = cols;
+      this.rows = rows;
+    }
+
+    public void state(long[] snapshot, int count) {
+      this.snapshot = Arrays.copyOf(snapshot, count);
+    }
+
+    public void result(int player, int place) {
+      places.add(new int[] { player, place });
+    }
+
+    int placeOf(int player) {
+      for (int[] p : places) if (p[0] == player) return p[1];
+      return 0;
+    }
+  }
+}
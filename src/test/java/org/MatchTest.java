@@ -0,0 +1,58 @@
+package org;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class MatchTest {
+
+  @Test
+  public void playersGetTheSamePieces() {
+    Match match = new Match(8L, 3, Board.COLS, Board.ROWS, 0L);
+    for (int i = 0; i < 20; i++) {
+      Tetromino.Type type = match.getEngine(0).getCurrent().getType();
+      for (int p = 0; p < 3; p++) {
+        assertEquals(type, match.getEngine(p).getCurrent().getType());
+        match.input(p, GameInput.HARD_DROP, 0L);
+      }
+    }
+  }
+
+  @Test
+  public void attacksGoToTheNextPlayerStillIn() {
+    Match match = new Match(8L, 3, Board.COLS, Board.ROWS, 0L);
+    match.sendAttack(0, 2);
+    assertEquals(2, match.getEngine(1).getPendingGarbage());
+    match.forfeit(1);
+    match.sendAttack(0, 1);
+    assertEquals(1, match.getEngine(2).getPendingGarbage());
+    match.sendAttack(2, 3);
+    assertEquals(3, match.getEngine(0).getPendingGarbage());
+  }
+
+  @Test
+  public void lastPlayerStandingWins() {
+    Match match = new Match(8L, 3, Board.COLS, Board.ROWS, 0L);
+    match.forfeit(2);
+    assertEquals(3, match.getPlace(2));
+    assertFalse(match.isFinished());
+    // Player 1 hard drops until it tops out; player 0 does nothing
+    for (int i = 0; i < 1000 && match.getPlace(1) == 0; i++) {
+      match.input(1, GameInput.HARD_DROP, 0L);
+    }
+    assertEquals(2, match.getPlace(1));
+    assertEquals(1, match.getPlace(0));
+    assertTrue(match.isFinished());
+  }
+
+  @Test
+  public void restartIsIgnoredMidMatch() {
+    Match match = new Match(8L, 2, Board.COLS, Board.ROWS, 0L);
+    match.input(0, GameInput.HARD_DROP, 0L);
+    int version = match.getEngine(0).getBoardVersion();
+    match.input(0, GameInput.RESTART, 0L);
+    assertEquals(version, match.getEngine(0).getBoardVersion());
+  }
+}
@@ -0,0 +1,67 @@
+package org;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import javax.management.ObjectName;
+import org.junit.jupiter.api.Test;
+
+public class MetricsTest {
+
+  @Test
+  public void percentilesStayWithinBucketPrecision() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (long v = 1; v <= 100_000; v++) histogram.record(v * 1_000L);
+    assertEquals(100_000, histogram.getCount());
+    assertEquals(100_000_000L, histogram.getMaxNanos());
+    long p50 = histogram.getPercentileNanos(50);
+    long p99 = histogram.getPercentileNanos(99);
+    assertTrue(Math.abs(p50 - 50_000_000L) < 1_750_000L, "p50 " + p50);
+    assertTrue(Math.abs(p99 - 99_000_000L) < 3_465_000L, "p99 " + p99);
+  }
+
+  @Test
+  public void bucketsCoverEveryValue() {
+    long previousHigh = -1;
+    for (int i = 0; i < LatencyHistogram.bucketOf(Long.MAX_VALUE); i++) {
+      long high = LatencyHistogram.bucketHigh(i);
+      assertEquals(i, LatencyHistogram.bucketOf(previousHigh + 1));
+      assertEquals(i, LatencyHistogram.bucketOf(high));
+      previousHigh = high;
+    }
+  }
+
+  @Test
+  public void engineReportsPiecesAndLines() {
+    Metrics metrics = new Metrics();
+    GameEngine engine = new GameEngine(5L);
+    engine.setMetrics(metrics);
+    Bot bot = new Bot(Heuristic.DEFAULT, 0);
+    for (int i = 0; i < 100; i++) bot.playPiece(engine);
+    assertEquals(100, metrics.getPieces());
+    assertEquals(
+      engine.getScoreboard().getTotalLines(),
+      metrics.getLinesCleared()
+    );
+    assertTrue(metrics.getLineClears() > 0);
+  }
+
+  @Test
+  public void registersAsMBean() throws Exception {
+    Metrics metrics = new Metrics();
+    assertTrue(metrics.register());
+    try {
+      assertFalse(new Metrics().register());
+      metrics.recordTick(2_000);
+      Object ticks = ManagementFactory.getPlatformMBeanServer().getAttribute(
+        new ObjectName(Metrics.OBJECT_NAME),
+        "Ticks"
+      );
+      assertEquals(Long.valueOf(1), ticks);
+    } finally {
+      metrics.unregister();
+    }
+  }
+}
@@ -0,0 +1,82 @@
+package org;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+
+public class PieceFactoryTest {
+
+  @Test
+  public void bagDealsEveryTypeOncePerSeven() {
+    PieceFactory factory = new PieceFactory(3L);
+    for (int bag = 0; bag < 100; bag++) {
+      Set<Tetromino.Type> seen = EnumSet.noneOf(Tetromino.Type.class);
+      for (int i = 0; i < 7; i++) seen.add(factory.nextType());
+      assertEquals(7, seen.size());
+    }
+  }
+
+  @Test
+  public void rewindReplaysTheSameTypes() {
+    PieceFactory factory = new PieceFactory(12L);
+    for (int i = 0; i < 50; i++) factory.nextType();
+    final long mark = factory.mark();
+    Tetromino.Type[] drawn = new Tetromino.Type[PieceFactory.HISTORY];
+    for (int i = 0; i < drawn.length; i++) drawn[i] = factory.nextType();
+    factory.rewind(mark);
+    for (int i = 0; i < drawn.length; i++) {
+      assertEquals(drawn[i], factory.nextType());
+    }
+    // One piece too far back has been overwritten
+    factory.nextType();
+    final PieceFactory f = factory;
+    assertThrows(
+      IllegalStateException.class,
+      new Executable() {
+        public void execute() {
+          f.rewind(mark);
+        }
+      }
+    );
+  }
+
+  @Test
+  public void peekMatchesUpcomingDraws() {
+    PieceFactory factory = new PieceFactory(
+      new HistoryRandomizer(new SplittableRandom(8L))
+    );
+    for (int i = 0; i < 1000; i++) {
+      Tetromino.Type[] preview = new Tetromino.Type[PieceFactory.PREVIEW];
+      for (int j = 0; j < preview.length; j++) preview[j] = factory.peekType(j);
+      assertEquals(preview[0], factory.nextType());
+      for (int j = 1; j < preview.length; j++) {
+        assertEquals(preview[j], factory.peekType(j - 1));
+      }
+    }
+  }
+
+  @Test
+  public void seedsAreReproducibleAndIndependent() {
+    for (Randomizer.Kind kind : Randomizer.Kind.values()) {
+      PieceFactory a = new PieceFactory(kind.create(42L));
+      PieceFactory b = new PieceFactory(kind.create(42L));
+      PieceFactory c = new PieceFactory(kind.create(43L));
+      StringBuilder sa = new StringBuilder();
+      StringBuilder sb = new StringBuilder();
+      StringBuilder sc = new StringBuilder();
+      for (int i = 0; i < 200; i++) {
+        sa.append(a.nextType());
+        sb.append(b.nextType());
+        sc.append(c.nextType());
+      }
+      assertEquals(sa.toString(), sb.toString(), kind.name());
+      assertNotEquals(sa.toString(), sc.toString(), kind.name());
+    }
+  }
+}
@@ -0,0 +1,88 @@
+package org;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+public class ReplayTest {
+
+  private static final int[] INPUTS = {
+    GameInput.MOVE_LEFT,
+    GameInput.MOVE_RIGHT,
+    GameInput.ROTATE_CW,
+    GameInput.ROTATE_CCW,
+    GameInput.HARD_DROP,
+    GameInput.SOFT_DROP_PRESS,
+    GameInput.SOFT_DROP_RELEASE,
+  };
+
+  @ParameterizedTest
+  @CsvSource({ "10, 20, srs", "40, 100, srs", "10, 20, legacy" })
+  public void replayReproducesRecordedSession(
+    int cols,
+    int rows,
+    String rotation
+  ) throws IOException {
+    GameEngine live = new GameEngine(2024L, cols, rows);
+    live.setRotationSystem(RotationSystem.forName(rotation));
+    live.setRecorder(new ReplayRecorder(live.getSeed()));
+    Random random = new Random(11L);
+    for (int frame = 0; frame < 50_000; frame++) {
+      // Uneven frame times like a real loop, with occasional input
+      long elapsed = 1_000_000L + random.nextInt(30_000_000);
+      int input = random.nextInt(6) == 0
+        ? INPUTS[random.nextInt(INPUTS.length)]
+        : GameInput.NONE;
+      live.step(input, elapsed);
+      if (live.isGameOver()) live.step(GameInput.RESTART, 0);
+    }
+
+    byte[] bytes = live.getRecorder().toReplay(live).toByteArray();
+    Replay replay = Replay.read(new ByteArrayInputStream(bytes));
+    assertSame(live.getRotationSystem(), replay.getRotationSystem());
+    GameEngine replayed = ReplayPlayer.play(replay);
+
+    GameEngineTest.assertSameState(live, replayed);
+    assertTrue(ReplayPlayer.matchesRecordedOutcome(replay));
+  }
+
+  // Undo only does something in practice mode, and only practice replays
+  // play it back
+  @ParameterizedTest
+  @CsvSource({ "false", "true" })
+  public void undoIsReplayedOnlyInPractice(boolean practice)
+    throws IOException {
+    GameEngine live = new GameEngine(77L);
+    live.setRecorder(new ReplayRecorder(live.getSeed()));
+    if (practice) live.setUndoHistory(new UndoHistory(8));
+    for (int i = 0; i < 40; i++) {
+      live.step(GameInput.HARD_DROP, 1_000_000L);
+      if (i % 5 == 4) live.step(GameInput.UNDO, 0);
+    }
+    Replay replay = Replay.read(
+      new ByteArrayInputStream(live.getRecorder().toReplay(live).toByteArray())
+    );
+    assertEquals(practice, replay.isPractice());
+    assertEquals(practice ? 48 : 40, replay.getEventCount());
+    assertTrue(ReplayPlayer.matchesRecordedOutcome(replay));
+    GameEngineTest.assertSameState(live, ReplayPlayer.play(replay));
+  }
+
+  @Test
+  public void varIntRoundTrip() throws IOException {
+    long[] values = { 0L, 1L, 127L, 128L, 16_666_667L, Long.MAX_VALUE, -1L };
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    for (long v : values) VarInt.writeLong(out, v);
+    ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray());
+    for (long v : values) assertEquals(v, VarInt.readLong(in));
+    assertEquals(-1, in.read());
+  }
+}
@@ -0,0 +1,318 @@
+package org;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.Test;
+
+public class RotationSystemTest {
+
+  // Each case gives the piece (type, rotation, direction, box position),
+  // then the board: '#' filled, 'o' the piece before the turn, '@' after
+  // it and '*' both. Without any '@' or '*' the turn is blocked. The SRS
+  // results come from the guideline shapes and kick tables.
+  private static final String[][] SRS_CASES = {
+    {
+      "T 0 CW 2 2", // kick 0
+      "......",
+      "......",
+      "...*.#",
+      "..o**.",
+      "...@..",
+      "..#...",
+      "......",
+    },
+    {
+      "T 0 CW 2 1", // kick 1
+      "......",
+      "..@o..",
+      "..**o.",
+      "..@#.#",
+      "......",
+      ".#.##.",
+      "#...##",
+    },
+    {
+      "T 1 CCW 0 3", // kick 2
+      "......",
+      "......",
+      ".##.#.",
+      ".o###.",
+      "#o*..#",
+      ".*@@..",
+      "..##..",
+    },
+    {
+      "T 1 CW 3 2", // kick 3
+      "......",
+      "...@@@",
+      "....*#",
+      "#.##oo",
+      "###.o#",
+      "......",
+      "#.#...",
+    },
+    {
+      "T 1 CCW 1 4", // kick 4
+      "......",
+      "......",
+      "..#@..",
+      "..@@@#",
+      "..o#.#",
+      ".#oo..",
+      "##o.#.",
+    },
+    {
+      "T 3 CCW 4 3", // kick none
+      "......",
+      "......",
+      ".....#",
+      ".....o",
+      "..##oo",
+      "....#o",
+      ".#.##.",
+    },
+    {
+      "I 2 CCW 2 4", // kick 1
+      "......",
+      "......",
+      "....#.",
+      ".....@",
+      ".#..#@",
+      "..ooo*",
+      ".....@",
+    },
+    {
+      "I 1 CW -1 1", // kick 2
+      "......",
+      ".o....",
+      ".o....",
+      ".*@@@.",
+      ".o..#.",
+      ".#....",
+      "....##",
+    },
+    {
+      "I 1 CW 3 1", // kick 3
+      "......",
+      "..@@@*",
+      ".....o",
+      ".#..#o",
+      "..#.#o",
+      "....#.",
+      "###...",
+    },
+    {
+      "I 0 CW 2 4", // kick 4
+      "......",
+      "......",
+      ".....@",
+      ".....@",
+      ".....@",
+      "..ooo*",
+      "......",
+    },
+    {
+      "I 2 CCW 0 3", // kick none
+      "......",
+      "......",
+      ".#.#.#",
+      "#.##.#",
+      "oooo.#",
+      "......",
+      "..#...",
+    },
+    {
+      "S 1 CCW 3 2", // kick 3
+      "....@@",
+      "...@@.",
+      "....o#",
+      "....oo",
+      ".....o",
+      "......",
+      "......",
+    },
+    {
+      "Z 3 CCW 3 1", // kick 2
+      "......",
+      ".....o",
+      "....oo",
+      ".#.@*#",
+      ".###@@",
+      "......",
+      ".#....",
+    },
+    {
+      "J 3 CCW 4 1", // kick 4
+      "...@@@",
+      ".....*",
+      "....#o",
+      "...#oo",
+      ".#..#.",
+      "..#..#",
+      "#.#...",
+    },
+    {
+      "L 1 CW 3 1", // kick 3
+      "...@@@",
+      "...@o.",
+      "#..#o.",
+      "..##oo",
+      "#..#..",
+      "...#..",
+      ".#....",
+    },
+    {
+      "O 3 CCW 2 4", // kick 0
+      "......",
+      "......",
+      "......",
+      ".##...",
+      "..#**.",
+      "...**.",
+      ".....#",
+    },
+  };
+
+  private static final String[][] LEGACY_CASES = {
+    {
+      "T 2 CW 3 1", // kick 3
+      "......",
+      "..@ooo",
+      ".@@#o.",
+      "..@..#",
+      ".....#",
+      "..#...",
+      "......",
+    },
+    {
+      "I 3 CW 2 1", // kick 5
+      "......",
+      "..@@*@",
+      "...#o#",
+      "##..o.",
+      "#...o.",
+      "..##..",
+      ".#.#.#",
+    },
+    {
+      "Z 2 CW 2 3", // kick none
+      "......",
+      "......",
+      "...#..",
+      ".#oo#.",
+      "..#oo.",
+      ".#..##",
+      ".#..#.",
+    },
+  };
+
+  private static final RotationSystem[] SYSTEMS = {
+    RotationSystem.SRS,
+    RotationSystem.LEGACY,
+  };
+
+  @Test
+  public void srsKicksMatchTheGuideline() {
+    for (String[] c : SRS_CASES) assertTurn(RotationSystem.SRS, c);
+  }
+
+  @Test
+  public void legacyKicksAreUnchanged() {
+    for (String[] c : LEGACY_CASES) assertTurn(RotationSystem.LEGACY, c);
+  }
+
+  @Test
+  public void turningBackOnAnEmptyBoardRestoresThePiece() {
+    BitBoard board = new BitBoard(10, 20);
+    for (RotationSystem rotation : SYSTEMS) {
+      for (Tetromino.Type type : Tetromino.Type.values()) {
+        for (int r = 0; r < 4; r++) {
+          Tetromino piece = Tetromino.of(type, r);
+          Tetromino[] turns = { piece.rotatedCW(), piece.rotatedCCW() };
+          for (Tetromino turned : turns) {
+            int kick = rotation.findKick(board, piece, turned, 3, 8);
+            assertEquals(0, kick, rotation + " " + piece);
+            int x = 3 + rotation.kickX(piece, turned, kick);
+            int y = 8 + rotation.kickY(piece, turned, kick);
+            int back = rotation.findKick(board, turned, piece, x, y);
+            assertEquals(0, back, rotation + " " + turned);
+            assertEquals(3, x + rotation.kickX(turned, piece, back));
+            assertEquals(8, y + rotation.kickY(turned, piece, back));
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void engineUsesItsRotationSystem() {
+    assertSame(RotationSystem.SRS, new GameEngine(1L).getRotationSystem());
+    assertSame(RotationSystem.SRS, RotationSystem.forName("srs"));
+    assertSame(RotationSystem.LEGACY, RotationSystem.forName("legacy"));
+  }
+
+  private static void assertTurn(RotationSystem rotation, String[] c) {
+    String[] piece = c[0].split(" ");
+    Tetromino start = Tetromino.of(
+      Tetromino.Type.valueOf(piece[0]),
+      Integer.parseInt(piece[1])
+    );
+    Tetromino turned = "CW".equals(piece[2])
+      ? start.rotatedCW()
+      : start.rotatedCCW();
+    int x = Integer.parseInt(piece[3]);
+    int y = Integer.parseInt(piece[4]);
+    int width = c[1].length();
+    int height = c.length - 1;
+
+    // Filled cells go in through a snapshot, four bits per cell
+    BitBoard board = new BitBoard(width, height);
+    long[] cells = new long[board.getSnapshotLongs()];
+    boolean blocked = true;
+    for (int row = 0; row < height; row++) {
+      for (int col = 0; col < width; col++) {
+        char ch = c[row + 1].charAt(col);
+        int i = row * width + col;
+        int slot = i % Board.CELLS_PER_LONG;
+        if (ch == '#') cells[i / Board.CELLS_PER_LONG] |= 1L << (4 * slot);
+        if (ch == '@' || ch == '*') blocked = false;
+        assertEquals(ch == 'o' || ch == '*', covers(start, x, y, col, row));
+      }
+    }
+    board.restoreFrom(cells, 0);
+
+    int kick = rotation.findKick(board, start, turned, x, y);
+    if (blocked) {
+      assertEquals(-1, kick, c[0]);
+      return;
+    }
+    int tx = x + rotation.kickX(start, turned, kick);
+    int ty = y + rotation.kickY(start, turned, kick);
+    for (int row = 0; row < height; row++) {
+      for (int col = 0; col < width; col++) {
+        char ch = c[row + 1].charAt(col);
+        assertEquals(
+          ch == '@' || ch == '*',
+          covers(turned, tx, ty, col, row),
+          c[0] + " at " + col + "," + row
+        );
+      }
+    }
+  }
+
+  private static boolean covers(
+    Tetromino piece,
+    int x,
+    int y,
+    int col,
+    int row
+  ) {
+    int dx = col - x;
+    int dy = row - y;
+    if (dx < 0 || dx >= Tetromino.SIZE || dy < 0 || dy >= Tetromino.SIZE) {
+      return false;
+    }
+    return (piece.rowMask(dy) & 1 << dx) != 0;
+  }
+}
@@ -0,0 +1,218 @@
+package org;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ScoreStoreTest {
+
+  // "Aa" and "BB" have the same hash code
+  private static final String[] PLAYERS = { "ada", "bob", "cy", "Aa", "BB" };
+
+  @TempDir
+  Path dir;
+
+  @Test
+  public void queriesMergeTheIndexWithRecentGames() throws IOException {
+    ScoreStore store = new ScoreStore(dir, 100);
+    store.setSync(false);
+    List<ScoreRecord> all = fill(store, 1050, 1L);
+    // 1000 indexed by compactions, 50 still in the tail
+    assertEquals(1000, store.getIndexedCount());
+    assertTop(all, store);
+    store.close();
+
+    ScoreStore reopened = new ScoreStore(dir, 100);
+    assertEquals(1050, reopened.size());
+    assertEquals(1050, reopened.getIndexedCount());
+    assertTop(all, reopened);
+    reopened.close();
+  }
+
+  @Test
+  public void tornAndCorruptRecordsAreCutOnOpen() throws IOException {
+    ScoreStore store = new ScoreStore(dir, 100);
+    List<ScoreRecord> all = fill(store, 150, 2L);
+    store.close();
+    // A crash after more games: one written out but not yet indexed, one
+    // with a flipped bit, one torn halfway
+    store = new ScoreStore(dir, 100);
+    all.add(game(store, 3L));
+    store.append(all.get(all.size() - 1));
+    store.append(game(store, 4L));
+    store.append(game(store, 5L));
+    Path log = dir.resolve(ScoreStore.LOG_FILE);
+    FileChannel channel = FileChannel.open(log, StandardOpenOption.WRITE);
+    try {
+      long second = ScoreStore.HEADER + 151L * ScoreRecord.BYTES;
+      channel.write(ByteBuffer.wrap(new byte[] { 0x55 }), second + 20);
+      channel.truncate(second + ScoreRecord.BYTES + 30);
+    } finally {
+      channel.close();
+    }
+
+    ScoreStore recovered = new ScoreStore(dir, 100);
+    assertEquals(151, recovered.size());
+    assertEquals(ScoreRecord.BYTES + 30, recovered.getRecoveredBytes());
+    assertEquals(ScoreStore.HEADER + 151L * 64, Files.size(log));
+    assertTop(all, recovered);
+    recovered.close();
+  }
+
+  @Test
+  public void lostOrDamagedIndexIsRebuilt() throws IOException {
+    ScoreStore store = new ScoreStore(dir, 64);
+    store.setSync(false);
+    List<ScoreRecord> all = fill(store, 500, 6L);
+    store.close();
+
+    Files.delete(dir.resolve(ScoreStore.INDEX_FILE));
+    store = new ScoreStore(dir, 64);
+    assertEquals(448, store.getIndexedCount()); // rebuilt 64 at a time
+    assertTop(all, store);
+    store.close();
+
+    Files.write(dir.resolve(ScoreStore.INDEX_FILE), new byte[] { 1, 2, 3 });
+    store = new ScoreStore(dir, 64);
+    assertEquals(500, store.size());
+    assertTop(all, store);
+    store.close();
+  }
+
+  @Test
+  public void readOnlyStoresNeverWrite() throws IOException {
+    ScoreStore store = new ScoreStore(dir, 100);
+    store.setSync(false);
+    List<ScoreRecord> all = fill(store, 150, 8L);
+    store.close();
+    // A crash with games past the index and a torn record at the end
+    store = new ScoreStore(dir, 100);
+    all.addAll(fill(store, 30, 9L));
+    Path log = dir.resolve(ScoreStore.LOG_FILE);
+    Path index = dir.resolve(ScoreStore.INDEX_FILE);
+    Files.write(log, new byte[10], StandardOpenOption.APPEND);
+    byte[] logBytes = Files.readAllBytes(log);
+    byte[] indexBytes = Files.readAllBytes(index);
+
+    final ScoreStore reader = ScoreStore.openReadOnly(dir);
+    assertTrue(reader.isReadOnly());
+    assertEquals(180, reader.size());
+    assertEquals(150, reader.getIndexedCount());
+    assertEquals(10, reader.getRecoveredBytes());
+    assertTop(all, reader);
+    assertThrows(
+      IOException.class,
+      new Executable() {
+        public void execute() throws IOException {
+          reader.append(all.get(0));
+        }
+      }
+    );
+    reader.close();
+    assertArrayEquals(logBytes, Files.readAllBytes(log));
+    assertArrayEquals(indexBytes, Files.readAllBytes(index));
+  }
+
+  @Test
+  public void longNamesAreCutToWholeCharacters() {
+    assertEquals(
+      "abcdefghijklmnop",
+      ScoreRecord.fitPlayer("abcdefghijklmnopq")
+    );
+    assertEquals("éééééééé", ScoreRecord.fitPlayer("ééééééééé"));
+    // Three bytes each, so only five fit
+    assertEquals("東京東京東", ScoreRecord.fitPlayer("東京東京東京"));
+  }
+
+  private static List<ScoreRecord> fill(ScoreStore store, int n, long seed)
+    throws IOException {
+    SplittableRandom random = new SplittableRandom(seed);
+    List<ScoreRecord> all = new ArrayList<ScoreRecord>();
+    for (int i = 0; i < n; i++) {
+      ScoreRecord score = new ScoreRecord(
+        PLAYERS[random.nextInt(PLAYERS.length)],
+        random.nextInt(2000) * 10, // plenty of ties
+        random.nextInt(200),
+        random.nextInt(20),
+        random.nextLong(1L << 40),
+        random.nextLong(),
+        1_700_000_000_000L + i,
+        i % 3 == 0 ? -1L : i
+      );
+      assertEquals(store.size(), store.append(score));
+      all.add(score);
+    }
+    return all;
+  }
+
+  private static ScoreRecord game(ScoreStore store, long seed) {
+    GameEngine engine = new GameEngine(seed);
+    while (!engine.isGameOver()) engine.step(GameInput.HARD_DROP, 0);
+    return ScoreRecord.of(engine, "eve", store.size(), -1L);
+  }
+
+  // Checks top, topForPlayer and rank against a sort of every game
+  private static void assertTop(List<ScoreRecord> all, ScoreStore store)
+    throws IOException {
+    List<ScoreRecord> sorted = new ArrayList<ScoreRecord>(all);
+    // Stable, so equal scores stay in the order they were added
+    Collections.sort(
+      sorted,
+      new Comparator<ScoreRecord>() {
+        public int compare(ScoreRecord a, ScoreRecord b) {
+          return Integer.compare(b.getScore(), a.getScore());
+        }
+      }
+    );
+    assertSame(sorted.subList(0, 20), store.top(20));
+    for (String player : PLAYERS) {
+      List<ScoreRecord> mine = new ArrayList<ScoreRecord>();
+      for (ScoreRecord score : sorted) {
+        if (score.getPlayer().equals(player) && mine.size() < 5) {
+          mine.add(score);
+        }
+      }
+      assertSame(mine, store.topForPlayer(player, 5));
+    }
+    ScoreRecord fifth = sorted.get(4);
+    long better = 0;
+    for (ScoreRecord score : all) {
+      if (score.getScore() > fifth.getScore()) better++;
+    }
+    assertEquals(better + 1, store.rank(fifth.getScore()));
+    assertTrue(store.rank(fifth.getScore()) <= 5);
+  }
+
+  private static void assertSame(
+    List<ScoreRecord> expected,
+    List<ScoreRecord> actual
+  ) {
+    assertEquals(expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); i++) {
+      ScoreRecord e = expected.get(i);
+      ScoreRecord a = actual.get(i);
+      assertEquals(e.getPlayer(), a.getPlayer());
+      assertEquals(e.getScore(), a.getScore());
+      assertEquals(e.getFinishedMillis(), a.getFinishedMillis());
+      assertEquals(e.getSeed(), a.getSeed());
+      assertEquals(e.getPlayNanos(), a.getPlayNanos());
+      assertEquals(e.getReplay(), a.getReplay());
+    }
+  }
+}
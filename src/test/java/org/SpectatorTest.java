@@ -0,0 +1,132 @@
+package org;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+public class SpectatorTest {
+
+  private static final long TICK = 16_666_667L;
+
+  private static final int[] INPUTS = {
+    GameInput.NONE,
+    GameInput.NONE,
+    GameInput.MOVE_LEFT,
+    GameInput.MOVE_RIGHT,
+    GameInput.ROTATE_CW,
+    GameInput.ROTATE_CCW,
+    GameInput.HARD_DROP,
+  };
+
+  @ParameterizedTest
+  @CsvSource({ "10, 20", "40, 100", "70, 24" })
+  public void viewMatchesTheGameEveryTick(int cols, int rows)
+    throws Exception {
+    GameEngine engine = new GameEngine(5L, cols, rows);
+    SpectatorEncoder encoder = new SpectatorEncoder();
+    SpectatorDecoder decoder = new SpectatorDecoder();
+    ByteBuffer buffer = ByteBuffer.allocate(
+      SpectatorEncoder.maxMessageSize(cols, rows)
+    );
+    SplittableRandom random = new SplittableRandom(5L);
+    for (int tick = 0; tick < 3000; tick++) {
+      if (engine.isGameOver()) {
+        engine.step(GameInput.RESTART, 0);
+      } else if (random.nextInt(40) == 0) {
+        engine.receiveGarbage(1 + random.nextInt(3), random.nextInt(cols));
+      }
+      engine.step(INPUTS[random.nextInt(INPUTS.length)], TICK);
+      buffer.clear();
+      encoder.encode(engine, buffer);
+      buffer.flip();
+      assertTrue(decoder.apply(buffer));
+      assertFalse(buffer.hasRemaining());
+      assertSameView(engine, decoder);
+    }
+    // Most ticks send a few bytes; a snapshot is 160 bytes at 10x20
+    double perTick = encoder.getBytes() / (double) encoder.getMessages();
+    int snapshotBytes = engine.getSnapshotLongs() * 8;
+    assertTrue(perTick * 8 < snapshotBytes, "Average " + perTick + " bytes");
+  }
+
+  @Test
+  public void lateViewerWaitsForAKeyframe() throws Exception {
+    GameEngine engine = new GameEngine(9L);
+    SpectatorEncoder encoder = new SpectatorEncoder(30);
+    SpectatorDecoder early = new SpectatorDecoder();
+    SpectatorDecoder late = new SpectatorDecoder();
+    ByteBuffer buffer = ByteBuffer.allocate(
+      SpectatorEncoder.maxMessageSize(Board.COLS, Board.ROWS)
+    );
+    for (int tick = 0; tick < 100; tick++) {
+      engine.step(tick % 7 == 0 ? GameInput.HARD_DROP : GameInput.NONE, TICK);
+      buffer.clear();
+      encoder.encode(engine, buffer);
+      buffer.flip();
+      early.apply(buffer.duplicate());
+      if (tick < 10) continue; // joins after the first keyframe
+      boolean applied = late.apply(buffer);
+      // Keyframes go out on ticks 0, 30, 60 and 90
+      assertEquals(tick >= 30, applied);
+      if (applied) assertSameView(engine, late);
+    }
+    assertSameView(engine, early);
+    assertEquals(4, encoder.getKeyframes());
+  }
+
+  // Every cut of a keyframe is reported as an IOException, and the view
+  // waits for a whole keyframe again
+  @Test
+  public void truncatedMessagesThrowIOException() {
+    GameEngine engine = new GameEngine(4L);
+    SpectatorEncoder encoder = new SpectatorEncoder(30);
+    ByteBuffer buffer = ByteBuffer.allocate(
+      SpectatorEncoder.maxMessageSize(Board.COLS, Board.ROWS)
+    );
+    encoder.encode(engine, buffer);
+    buffer.flip();
+    final SpectatorDecoder view = new SpectatorDecoder();
+    for (int length = 0; length < buffer.limit(); length++) {
+      final ByteBuffer cut = buffer.duplicate();
+      cut.limit(length);
+      assertThrows(
+        IOException.class,
+        new Executable() {
+          public void execute() throws IOException {
+            view.apply(cut);
+          }
+        }
+      );
+      assertFalse(view.isSynced());
+    }
+  }
+
+  private static void assertSameView(GameEngine engine, SpectatorDecoder view) {
+    GameBoard board = engine.getBoard();
+    assertEquals(board.getWidth(), view.getWidth());
+    assertEquals(board.getHeight(), view.getHeight());
+    for (int y = 0; y < board.getHeight(); y++) {
+      for (int x = 0; x < board.getWidth(); x++) {
+        assertEquals(board.getCell(x, y), view.getCell(x, y));
+      }
+    }
+    assertEquals(engine.getCurrent().getType(), view.getPieceType());
+    assertEquals(engine.getCurrent().getRotation(), view.getRotation());
+    assertEquals(engine.getPieceX(), view.getPieceX());
+    assertEquals(engine.getPieceY(), view.getPieceY());
+    assertEquals(engine.getScoreboard().getScore(), view.getScore());
+    assertEquals(engine.getScoreboard().getTotalLines(), view.getLines());
+    assertEquals(engine.getScoreboard().getLevel(), view.getLevel());
+    assertEquals(engine.peekType(0), view.getNextType());
+    assertEquals(engine.isGameOver(), view.isGameOver());
+  }
+}
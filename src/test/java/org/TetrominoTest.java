@@ -0,0 +1,58 @@
+package org;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.Test;
+
+public class TetrominoTest {
+
+  @Test
+  public void tablesMatchShapeMatrices() {
+    for (Tetromino.Type type : Tetromino.Type.values()) {
+      Tetromino piece = Tetromino.of(type);
+      for (int r = 0; r < 4; r++) {
+        int[][] m = Tetromino.getShapeMatrix(type, r);
+        int[][] fromTable = new int[Tetromino.SIZE][Tetromino.SIZE];
+        for (int i = 0; i < Tetromino.CELL_COUNT; i++) {
+          fromTable[piece.cellY(i)][piece.cellX(i)] = 1;
+        }
+        int minX = Tetromino.SIZE, maxX = -1, minY = Tetromino.SIZE, maxY = -1;
+        for (int y = 0; y < Tetromino.SIZE; y++) {
+          int mask = 0;
+          for (int x = 0; x < Tetromino.SIZE; x++) {
+            assertEquals(m[y][x], fromTable[y][x], type + " rot " + r);
+            if (m[y][x] == 1) {
+              mask |= 1 << x;
+              minX = Math.min(minX, x);
+              maxX = Math.max(maxX, x);
+              minY = Math.min(minY, y);
+              maxY = Math.max(maxY, y);
+            }
+          }
+          assertEquals(mask, piece.rowMask(y));
+        }
+        assertEquals(maxX - minX + 1, piece.getWidth());
+        assertEquals(maxY - minY + 1, piece.getHeight());
+        assertEquals(minY, piece.getMinY());
+        piece = piece.rotatedCW();
+      }
+    }
+  }
+
+  @Test
+  public void rotationsAreSharedInstances() {
+    for (Tetromino.Type type : Tetromino.Type.values()) {
+      Tetromino spawn = Tetromino.of(type);
+      assertSame(spawn, Tetromino.of(type, 0));
+      Tetromino piece = spawn;
+      for (int r = 1; r <= 4; r++) {
+        piece = piece.rotatedCW();
+        assertSame(Tetromino.of(type, r & 3), piece);
+        assertEquals(r & 3, piece.getRotation());
+        assertSame(piece.rotatedCCW().rotatedCW(), piece);
+      }
+      assertSame(spawn, piece);
+    }
+  }
+}